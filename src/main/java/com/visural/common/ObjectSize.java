@@ -16,13 +16,19 @@
  */
 package com.visural.common;
 
+import com.google.common.collect.MapMaker;
+import java.lang.management.ManagementFactory;
 import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
 
 /**
  * Uses reflection to get a rough guesstimate of how much memory an Object
@@ -32,15 +38,30 @@ import java.util.Set;
  * idea of runtime memory use for any type of object graph, without the use
  * of instrumentation.
  * 
+ * The graph is walked with an explicit stack, so long chains of objects
+ * don't overflow the thread's stack, and objects are only counted once by
+ * identity, without calling their hashCode(). The size and reference fields
+ * of each class are worked out once and kept while the class is in use.
+ * Sizes assume a HotSpot layout, with compressed references where the JVM
+ * uses them, which is checked the first time an object is sized.
+ * 
  * @author Richard Nichols
  */
 public class ObjectSize {
 
     public static final Map<Class, Integer> primitiveSizes;
+    /**
+     * Sizes of a reference, and object and array headers, on a typical JVM.
+     * {@link #estimate(Object)} uses the sizes for the running JVM.
+     */
     public static final int refSize = 4;
     public static final int classSize = 8;
     public static final int arraySize = 16;
 
+    // a layout refers to its class through its fields, so values are soft for
+    // the class and its class loader to be unloadable
+    private static final ConcurrentMap<Class, ClassLayout> layouts = new MapMaker().weakKeys().softValues().makeMap();
+
     static {
         primitiveSizes = new HashMap<Class, Integer>();
         primitiveSizes.put(boolean.class, Integer.valueOf(1));
@@ -53,132 +74,175 @@ public class ObjectSize {
         primitiveSizes.put(double.class, Integer.valueOf(8));
     }
 
+    /**
+     * Sizes for the running JVM, worked out when first used rather than when
+     * ObjectSize is loaded, as asking the JVM starts the platform MBean server.
+     */
+    static class JvmSizes {
+
+        static final int REF;
+        static final int OBJECT_HEADER;
+        static final int ARRAY_HEADER;
+
+        static {
+            if ("32".equals(System.getProperty("sun.arch.data.model"))) {
+                REF = 4;
+                OBJECT_HEADER = 8;
+                ARRAY_HEADER = 12;
+            } else if (isCompressedOops()) {
+                REF = 4;
+                OBJECT_HEADER = 12;
+                ARRAY_HEADER = 16;
+            } else {
+                REF = 8;
+                OBJECT_HEADER = 16;
+                ARRAY_HEADER = 24;
+            }
+        }
+
+        private static boolean isCompressedOops() {
+            try {
+                Object option = ManagementFactory.getPlatformMBeanServer().invoke(
+                        new ObjectName("com.sun.management:type=HotSpotDiagnostic"), "getVMOption",
+                        new Object[]{"UseCompressedOops"}, new String[]{String.class.getName()});
+                return Boolean.parseBoolean(String.valueOf(((CompositeData) option).get("value")));
+            } catch (Exception e) {
+                // not HotSpot, assume the usual heap of under 32GB
+                return true;
+            } catch (LinkageError e) {
+                // no java.lang.management on this platform
+                return true;
+            }
+        }
+    }
+
     /**
      * Uses reflection to get a rough guesstimate of how much memory an Object
      * graph is using. Will not be very accurate, but is useful to get a rough
      * idea of runtime memory use for any type of object graph, without the use
      * of instrumentation.
      * @param obj
-     * @return 
+     * @return the size in bytes, or Integer.MAX_VALUE if larger
      */
     public static int estimate(Object obj) {
-        Set visited = new HashSet();
-        Map<Class, Field[]> classFieldMap = new HashMap();
-        return estimate(obj, visited, classFieldMap);
-    }
-
-    private static int estimate(Object o, Set<Reference> visited, Map<Class, Field[]> classFieldMap) {
-        Class c = o.getClass();
-        if (c.isPrimitive()) {
-            return primitiveSizes.get(c);
-        }
-        // see if already visited or special case for string
-        Reference or = new Reference(o);
-        if (visited.contains(or) || internalPooled(o)) {
+        if (obj == null || internalPooled(obj)) {
             return 0;
         }
-        visited.add(or);
-
-        int total = 0;
-        if (c.isArray()) {
-            total += arraySize;
-            int len = Array.getLength(o);
-            if (c.getComponentType().isPrimitive()) {
-                // shortcut for primitize arrays
-                total += len * primitiveSizes.get(c.getComponentType());
-            } else {
-                for (int n = 0; n < len; n++) {
-                    Object av = Array.get(o, n);
-                    if (av != null) {
-                        total += refSize + estimate(av, visited, classFieldMap);
-                    }
+        IdentityHashMap<Object, Boolean> visited = new IdentityHashMap<Object, Boolean>();
+        Object[] stack = new Object[64];
+        int depth = 0;
+        visited.put(obj, Boolean.TRUE);
+        stack[depth++] = obj;
+        long total = 0;
+        while (depth > 0) {
+            Object o = stack[--depth];
+            stack[depth] = null;
+            Class c = o.getClass();
+            if (c.isArray()) {
+                Class component = c.getComponentType();
+                int len = Array.getLength(o);
+                if (component.isPrimitive()) {
+                    total += align(JvmSizes.ARRAY_HEADER + (long) len * primitiveSizes.get(component));
+                    continue;
                 }
-            }
-        } else {
-            total += classSize;
-            while (c != null) {
-                // performance is constrained by Field duplication
-                boolean mark = false;
-                Field[] fields = classFieldMap.get(c);
-                if (fields == null) {
-                    fields = c.getDeclaredFields();
-                    for (Field f : fields) {
-                        f.setAccessible(true);
+                total += align(JvmSizes.ARRAY_HEADER + (long) len * JvmSizes.REF);
+                for (Object av : (Object[]) o) {
+                    if (av != null && !internalPooled(av) && visited.put(av, Boolean.TRUE) == null) {
+                        if (depth == stack.length) {
+                            stack = grow(stack);
+                        }
+                        stack[depth++] = av;
                     }
-                    classFieldMap.put(c, fields);
                 }
-                for (Field f : fields) {
-                    if (!Modifier.isStatic(f.getModifiers())) {
-                        if (f.getType().isPrimitive()) {
-                            total += primitiveSizes.get(f.getType());
-                        } else {
-                            try {
-                                Object fv = f.get(o);
-                                if (fv != null) {
-                                    total += refSize + estimate(fv, visited, classFieldMap);
-                                }
-                            } catch (IllegalAccessException ex) {
-                                throw new IllegalStateException("Unable to read field '"
-                                        + f.getName() + "' on class '" + c.getName() + "'. "
-                                        + "Unable to estimate object sizes.", ex);
-                            }
+            } else {
+                ClassLayout layout = layout(c);
+                total += layout.size;
+                for (Field f : layout.references) {
+                    Object fv;
+                    try {
+                        fv = f.get(o);
+                    } catch (IllegalAccessException ex) {
+                        throw new IllegalStateException("Unable to read field '"
+                                + f.getName() + "' on class '" + f.getDeclaringClass().getName() + "'. "
+                                + "Unable to estimate object sizes.", ex);
+                    }
+                    if (fv != null && !internalPooled(fv) && visited.put(fv, Boolean.TRUE) == null) {
+                        if (depth == stack.length) {
+                            stack = grow(stack);
                         }
+                        stack[depth++] = fv;
                     }
                 }
-                c = c.getSuperclass();
             }
         }
-        // round up to nearest 8 bytes
-        int remainder = total % 8;
-        if (remainder > 0) {
-            total += 8 - remainder;
+        return (int) Math.min(total, Integer.MAX_VALUE);
+    }
+
+    private static Object[] grow(Object[] stack) {
+        Object[] result = new Object[stack.length * 2];
+        System.arraycopy(stack, 0, result, 0, stack.length);
+        return result;
+    }
+
+    private static long align(long size) {
+        // objects are allocated on 8 byte boundaries
+        return (size + 7) & ~7L;
+    }
+
+    private static ClassLayout layout(Class c) {
+        ClassLayout layout = layouts.get(c);
+        if (layout == null) {
+            layout = new ClassLayout(c);
+            ClassLayout existing = layouts.putIfAbsent(c, layout);
+            if (existing != null) {
+                layout = existing;
+            }
         }
-        return total;
+        return layout;
     }
 
+    /**
+     * Objects which are shared JVM wide, so aren't counted. Strings are not
+     * checked, as String.intern() adds the string to the pool.
+     */
     private static boolean internalPooled(Object o) {
-        return (o instanceof String && ((String) o).intern() == o)
-                || (o instanceof Boolean && Boolean.valueOf(((Boolean) o).booleanValue()) == o)
+        return (o instanceof Boolean && Boolean.valueOf(((Boolean) o).booleanValue()) == o)
                 || (o instanceof Byte && Byte.valueOf(((Byte) o).byteValue()) == o)
                 || (o instanceof Character && Character.valueOf(((Character) o).charValue()) == o)
                 || (o instanceof Short && Short.valueOf(((Short) o).shortValue()) == o)
                 || (o instanceof Integer && Integer.valueOf(((Integer) o).intValue()) == o)
                 || (o instanceof Long && Long.valueOf(((Long) o).longValue()) == o)
-                || (o instanceof Float && Float.valueOf(((Float) o).floatValue()) == o)
-                || (o instanceof Double && Double.valueOf(((Double) o).doubleValue()) == o);
+                || (o instanceof Class);
     }
 
     /**
-     * Used to hold a reference to an instance of an object, such that the
-     * the equals method is ignored (i.e. must be same instance).
-     * Used as a wrapper in collections
+     * Size of an instance of a class, and its non static reference fields
+     * including those of superclasses.
      */
-    private static class Reference {
+    private static class ClassLayout {
 
-        private final int hash;
-        public final Object obj;
+        private final long size;
+        private final Field[] references;
 
-        public Reference(Object o) {
-            this.obj = o;
-            hash = this.obj.hashCode();
-        }
-
-        @Override
-        public boolean equals(Object obj) {
-            if (obj == null) {
-                return false;
-            }
-            if (getClass() != obj.getClass()) {
-                return false;
+        public ClassLayout(Class c) {
+            long fieldBytes = 0;
+            List<Field> refs = new ArrayList<Field>();
+            for (Class k = c; k != null; k = k.getSuperclass()) {
+                for (Field f : k.getDeclaredFields()) {
+                    if (Modifier.isStatic(f.getModifiers())) {
+                        continue;
+                    }
+                    if (f.getType().isPrimitive()) {
+                        fieldBytes += primitiveSizes.get(f.getType());
+                    } else {
+                        fieldBytes += JvmSizes.REF;
+                        f.setAccessible(true);
+                        refs.add(f);
+                    }
+                }
             }
-            final Reference other = (Reference) obj;
-            return this.obj == other.obj;
+            size = align(JvmSizes.OBJECT_HEADER + fieldBytes);
+            references = refs.toArray(new Field[refs.size()]);
         }
-
-        @Override
-        public int hashCode() {
-            return hash;
-        }        
-        
     }
-}
\ No newline at end of file
+}
@@ -23,6 +23,18 @@ import java.lang.annotation.Target;
 
 /**
  * Annotation to tag a method that should cache its results.
+ * <p>
+ * Methods returning a Future or ListenableFuture are cached asynchronously.
+ * The returned future is cached as soon as the method returns, so concurrent
+ * callers share it, and is replaced by its value once it succeeds. Failed
+ * futures are removed, unless their exception is given by cacheExceptions.
+ * Hits return a ListenableFuture of the cached value.
+ * <p>
+ * With the default {@link KeyProvider}, calls hit the same result when their
+ * arguments are equal by equals(). Arguments without their own equals() are
+ * compared by toString() instead, and arrays by content. Arguments used as
+ * they are must not be changed after the call, or their result will no
+ * longer be found.
  * 
  * @version $Id: Cache.java 38 2010-05-24 11:39:51Z tibes80@gmail.com $
  * @author Richard Nichols
@@ -38,6 +50,16 @@ public @interface Cache {
      */
     int timeToLive() default 0;
 
+    /**
+     * Time in milliseconds after which a cached result is reloaded in the
+     * background the next time it is requested. The existing result is
+     * returned while the reload is in progress, so callers don't wait for it.
+     * Must be >= 0, and less than timeToLive when that is set. 0 (default) disables
+     * background refresh.
+     * @return
+     */
+    int refreshAfter() default 0;
+
     /**
      * Maximum number of results to cache. Must be > 0.
      * If you want to disable caching then remove the {@link CacheModule} or 
@@ -48,11 +70,85 @@ public @interface Cache {
      */
     int maxEntries() default 1000;
 
+    /**
+     * Number of segments to split the cache into, for methods called by
+     * many threads at once. Each segment holds an equal share of maxEntries
+     * and maxWeight, and evicts independently, so writes to different
+     * segments don't contend. Rounded to a power of two. Must be > 0 and no
+     * more than maxEntries. 1 (default) uses a single segment.
+     * @return
+     */
+    int concurrencyLevel() default 1;
+
+    /**
+     * Maximum total weight of cached results, as calculated by the
+     * {@link #weigher()}. Entries are evicted, using the eviction strategy,
+     * whenever either this or maxEntries is exceeded. 0 (default) means
+     * results are not weighed and only maxEntries applies.
+     * @return
+     */
+    long maxWeight() default 0;
+
+    /**
+     * Calculates the weight of each result when maxWeight is set. The default
+     * weighs results by their estimated size in bytes.
+     * @return
+     */
+    Class<? extends Weigher> weigher() default EstimatedSizeWeigher.class;
+
+    /**
+     * Cache the results of a method which takes a collection of IDs and
+     * returns a Map of results by ID, one ID at a time. IDs which are cached
+     * are served from the cache, and the rest are passed to one call of the
+     * method, as a collection of the same kind, and its results are cached
+     * individually. IDs missing from the Map it returns are cached as null,
+     * and are left out of the Map returned to callers.
+     * <p>
+     * The method must return Map, and its first Collection parameter must be
+     * declared as Collection, List or Set. Any other parameters are part of
+     * the key for each ID. refreshAfter and load coalescing do not apply.
+     * @return
+     */
+    boolean bulk() default false;
+
+    /**
+     * Which instances share this method's cached results, see
+     * {@link CacheScope}. Shared scopes suit non-singleton and request scoped
+     * services, whose results depend only on the arguments, as every
+     * instance would otherwise start with an empty cache.
+     * @return
+     */
+    CacheScope scope() default CacheScope.INSTANCE;
+
     /**
      * Set eviction strategy for cache. See {@link EvictionStrategy}
      */
     EvictionStrategy evictionStrategy() default EvictionStrategy.LRU;
     
+    /**
+     * Time in milliseconds that null results remain valid, for methods which
+     * return null for "not found" and should look again sooner than for other
+     * results. 0 (default) treats null like any other result.
+     * @return
+     */
+    int nullTimeToLive() default 0;
+
+    /**
+     * Exceptions to cache. While cached, calls with the same arguments rethrow
+     * the same exception instance rather than repeating the failing work,
+     * until exceptionTimeToLive has passed. Cached exceptions are never moved
+     * to the off heap or disk tiers. Empty (default) caches no exceptions.
+     * @return
+     */
+    Class<? extends Throwable>[] cacheExceptions() default {};
+
+    /**
+     * Time in milliseconds that exceptions given by cacheExceptions remain
+     * cached. Must be > 0 when cacheExceptions is set. Default 1 second.
+     * @return
+     */
+    int exceptionTimeToLive() default 1000;
+
     /**
      * You can use {@link SoftReference} values rather than hard referenced values
      * to have bigger caches that will be garbage collected if memory is running out.
@@ -60,5 +156,63 @@ public @interface Cache {
      * @return 
      */
     boolean softValues() default false;    
+
+    /**
+     * Bytes of memory outside the Java heap to use as a second tier for this
+     * method's results. Results evicted from the cache are serialized and
+     * moved to this tier, and are moved back when they are next requested.
+     * Results which aren't {@link java.io.Serializable} are simply evicted.
+     * Memory is allocated as needed in slabs of up to 4MB, so larger values
+     * are rounded up to a whole number of slabs. The tier evicts a slab at a
+     * time, oldest first, once full. It is split into as many segments as the
+     * cache, see {@link #concurrencyLevel()}, as long as each can have a slab.
+     * 0 (default) disables the tier.
+     * @return
+     */
+    long offHeapBytes() default 0;
+
+    /**
+     * Bytes of disk to use as a persistent tier for this method's results,
+     * so that they survive restarts. Results evicted from memory are written
+     * to disk, see {@link #diskWriteThrough()}, and are read back when not
+     * found in memory. Results which aren't {@link java.io.Serializable} are
+     * not written. Once full, the oldest results are dropped.
+     * <p>
+     * Data is kept in memory mapped files under the directory given by the
+     * system property {@value #DISK_DIRECTORY_PROPERTY}, by default
+     * "visural-cache" in the temporary directory, one directory per method,
+     * or per class and method with {@link CacheScope#CLASS} scope. Requires
+     * a shared {@link #scope()}, as results are read back by later caches of
+     * the method, e.g. after a restart, so should only be used for methods
+     * whose results depend on nothing but their arguments.
+     * 0 (default) disables the tier.
+     * @return
+     */
+    long diskBytes() default 0;
+
+    /**
+     * Write results to the disk tier as they are loaded, rather than only
+     * once they are evicted from memory, so that a restart finds the results
+     * which were still in memory too. Each load then waits for its result to
+     * be written. Only used with {@link #diskBytes()}.
+     * @return
+     */
+    boolean diskWriteThrough() default false;
+
+    /**
+     * System property for the directory used by {@link #diskBytes()}.
+     */
+    String DISK_DIRECTORY_PROPERTY = "com.visural.common.cache.diskDirectory";
+
+    /**
+     * Time in milliseconds that a caller which misses will wait for another
+     * thread already loading the same key, rather than loading it again.
+     * Once it has waited this long it loads the value itself. Defaults to
+     * 10 seconds, so a stuck load holds up its waiters for no longer than
+     * that. 0 waits for as long as the load takes. A negative value disables
+     * load coalescing, so every miss loads the value itself.
+     * @return
+     */
+    int loadWaitTimeout() default 10000;
         
 }
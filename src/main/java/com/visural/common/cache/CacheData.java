@@ -39,13 +39,15 @@ public interface CacheData {
     Map<String, CacheStatsAggregated> getStatistics(boolean estimateMemory); 
     
     /**
-     * Invalidate any cached value for the given method call.
+     * Invalidate any cached value for the given method call. Results of the
+     * method memoized by open {@link CacheMemo} scopes are discarded too.
      * @param methodCall 
      */
     void invalidateCache(MethodCall methodCall);
 
     /**
-     * Invalidate any cached values for all possible invocations of the given method.
+     * Invalidate any cached values for all possible invocations of the given method,
+     * including those memoized by open {@link CacheMemo} scopes.
      * @param method 
      */
     void invalidateCache(Method method);
@@ -0,0 +1,99 @@
+/*
+ *  Copyright 2026 the visural-common contributors.
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+package com.visural.common.cache;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Immutable composite cache key made up of the arguments of a method call.
+ *
+ * Equality compares the arguments themselves (arrays by content), and the
+ * hash code is computed once up front, so looking up a key doesn't require
+ * converting each argument to a String. Arguments must therefore implement
+ * equals() and hashCode(), and must not be changed after the call.
+ *
+ * The String form is unambiguous for different numbers of arguments. Where
+ * a key needs to outlive the JVM, e.g. the disk tier, the serialized key is
+ * used instead, which leaves out the hash code as it may differ between
+ * JVMs.
+ */
+public final class CacheKey implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Object[] parts;
+    private final transient int hash;
+
+    public CacheKey(Object... parts) {
+        this.parts = parts.clone();
+        this.hash = Arrays.deepHashCode(this.parts);
+    }
+
+    private Object readResolve() {
+        return new CacheKey(parts);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof CacheKey)) {
+            return false;
+        }
+        CacheKey other = (CacheKey) obj;
+        return hash == other.hash && Arrays.deepEquals(parts, other.parts);
+    }
+
+    /**
+     * Each part as length:value, or - for null, e.g. "1:a,-,3:b,c"
+     * @return
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int n = 0; n < parts.length; n++) {
+            if (n > 0) {
+                sb.append(',');
+            }
+            String s = partString(parts[n]);
+            if (s == null) {
+                sb.append('-');
+            } else {
+                sb.append(s.length()).append(':').append(s);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String partString(Object o) {
+        if (o == null) {
+            return null;
+        }
+        if (o.getClass().isArray()) {
+            String s = Arrays.deepToString(new Object[]{o});
+            return s.substring(1, s.length() - 1);
+        }
+        return o.toString();
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ *  Copyright 2026 the visural-common contributors.
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+package com.visural.common.cache;
+
+import com.visural.common.cache.impl.MemoScope;
+
+/**
+ * Request scoped memo in front of all {@link Cache} methods.
+ * <p>
+ * While a scope is open on a thread, the result of each cached method call
+ * made by that thread is remembered, and repeated calls with the same key
+ * return it directly, without looking up the shared cache or updating its
+ * counters. Results are held until the scope is closed, even if they expire
+ * from the cache or a newer result is loaded in the meantime, so scopes
+ * should be short, e.g. one web request; see {@link CacheMemoFilter}.
+ * <p>
+ * Invalidating a cache, through {@link CacheData} or JMX and from any thread,
+ * discards the results memoized from it by every open scope. Memo hits are
+ * reported separately from other hits in the statistics.
+ * <p>
+ * Usage:
+ * <pre>
+ * CacheMemo.begin();
+ * try {
+ *     ...
+ * } finally {
+ *     CacheMemo.end();
+ * }
+ * </pre>
+ * Scopes may be nested, in which case the outermost one applies.
+ */
+public final class CacheMemo {
+
+    private CacheMemo() {
+    }
+
+    /**
+     * Open a memo scope on the current thread.
+     */
+    public static void begin() {
+        MemoScope.begin();
+    }
+
+    /**
+     * Close the memo scope opened by the matching {@link #begin()}, which
+     * discards the memoized results if it is the outermost one.
+     */
+    public static void end() {
+        MemoScope.end();
+    }
+
+    /**
+     * Discard results memoized so far in the current thread's scope, e.g.
+     * after changing data that cached methods depend on.
+     */
+    public static void clear() {
+        MemoScope.clearCurrent();
+    }
+
+    /**
+     * @return whether a memo scope is open on the current thread
+     */
+    public static boolean isActive() {
+        return MemoScope.current() != null;
+    }
+}
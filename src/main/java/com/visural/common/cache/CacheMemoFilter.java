@@ -0,0 +1,48 @@
+/*
+ *  Copyright 2026 the visural-common contributors.
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+package com.visural.common.cache;
+
+import java.io.IOException;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+/**
+ * Servlet filter which opens a {@link CacheMemo} scope for each request, so
+ * repeated calls to cached methods within a request are answered from the
+ * memo.
+ */
+public class CacheMemoFilter implements Filter {
+
+    public void init(FilterConfig fc) throws ServletException {
+    }
+
+    public void doFilter(ServletRequest sr, ServletResponse sr1, FilterChain fc) throws IOException, ServletException {
+        CacheMemo.begin();
+        try {
+            fc.doFilter(sr, sr1);
+        } finally {
+            CacheMemo.end();
+        }
+    }
+
+    public void destroy() {
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ *  Copyright 2026 the visural-common contributors.
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+package com.visural.common.cache;
+
+/**
+ * Which instances of a {@link Cacheable} class share cached results.
+ */
+public enum CacheScope {
+
+    /**
+     * Each instance has its own cache, held by its {@link CacheData} (default).
+     */
+    INSTANCE,
+
+    /**
+     * All instances of the same class created by an injector share one
+     * cache per method.
+     */
+    CLASS,
+
+    /**
+     * All instances created by an injector share one cache per method,
+     * including instances of subclasses which inherit the method.
+     */
+    INJECTOR;
+}
@@ -9,15 +9,49 @@ public class CacheSettings implements Serializable {
     private static final long serialVersionUID = 1L;
 
     private int timeToLive;
+    private int refreshAfter;
     private int maxEntries;
+    private int concurrencyLevel;
+    private long maxWeight;
+    private String weigher;
+    private boolean bulk;
+    private CacheScope scope;
     private EvictionStrategy evictionStrategy;   
     private boolean softValues;   
+    private int nullTimeToLive;
+    private String cacheExceptions;
+    private int exceptionTimeToLive;
+    private long offHeapBytes;
+    private long diskBytes;
+    private boolean diskWriteThrough;
+    private int loadWaitTimeout;
 
     public CacheSettings(Cache settings) {
         timeToLive = settings.timeToLive();
+        refreshAfter = settings.refreshAfter();
         maxEntries = settings.maxEntries();
+        concurrencyLevel = settings.concurrencyLevel();
+        maxWeight = settings.maxWeight();
+        weigher = settings.weigher().getName();
+        bulk = settings.bulk();
+        scope = settings.scope();
         evictionStrategy = settings.evictionStrategy();
         softValues = settings.softValues();
+        nullTimeToLive = settings.nullTimeToLive();
+        StringBuilder exceptions = new StringBuilder();
+        for (Class<? extends Throwable> c : settings.cacheExceptions()) {
+            exceptions.append(exceptions.length() > 0 ? "," : "").append(c.getName());
+        }
+        cacheExceptions = exceptions.toString();
+        exceptionTimeToLive = settings.exceptionTimeToLive();
+        offHeapBytes = settings.offHeapBytes();
+        diskBytes = settings.diskBytes();
+        diskWriteThrough = settings.diskWriteThrough();
+        loadWaitTimeout = settings.loadWaitTimeout();
+    }
+
+    public CacheScope getScope() {
+        return scope;
     }
 
     public EvictionStrategy getEvictionStrategy() {
@@ -28,12 +62,67 @@ public class CacheSettings implements Serializable {
         return maxEntries;
     }
 
+    public void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    public int getConcurrencyLevel() {
+        return concurrencyLevel;
+    }
+
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    public String getWeigher() {
+        return weigher;
+    }
+
+    public boolean isBulk() {
+        return bulk;
+    }
+
     public int getTimeToLive() {
         return timeToLive;
     }
 
+    public int getRefreshAfter() {
+        return refreshAfter;
+    }
+
     public boolean isSoftValues() {
         return softValues;
     }
+
+    public int getNullTimeToLive() {
+        return nullTimeToLive;
+    }
+
+    /**
+     * @return comma separated class names
+     */
+    public String getCacheExceptions() {
+        return cacheExceptions;
+    }
+
+    public int getExceptionTimeToLive() {
+        return exceptionTimeToLive;
+    }
+
+    public long getOffHeapBytes() {
+        return offHeapBytes;
+    }
+
+    public long getDiskBytes() {
+        return diskBytes;
+    }
+
+    public boolean isDiskWriteThrough() {
+        return diskWriteThrough;
+    }
+
+    public int getLoadWaitTimeout() {
+        return loadWaitTimeout;
+    }
     
 }
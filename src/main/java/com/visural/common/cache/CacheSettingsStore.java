@@ -28,7 +28,7 @@ public interface CacheSettingsStore {
     /**
      * Load {@link CacheSettings} bean for given method
      * @param m
-     * @return 
+     * @return the saved settings, or null if there are none
      */
     CacheSettings load(Method m);
     
@@ -0,0 +1,281 @@
+/*
+ *  Copyright 2026 the visural-common contributors.
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+package com.visural.common.cache;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.visural.common.cache.impl.CacheInterceptor;
+import com.visural.common.cache.impl.CacheStatsAggregated;
+import com.visural.common.cache.impl.CacheStatsSnapshot;
+import com.visural.common.cache.impl.HitRatioCurve;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Periodically resizes caches to make the best use of a memory budget shared
+ * between them, and saves the sizes so they are used on the next start.
+ *
+ * Each round the budget is split between methods by how much load time each
+ * extra byte would save. That is the method's requests, times its average
+ * load time, times the hit rate its hit ratio curve gives at a size, for
+ * memory at the method's estimated bytes per entry. Sizes are grown in steps,
+ * looking far enough ahead to get past flat parts of a curve, until the
+ * budget runs out or no method would gain at least 1% more hits from more
+ * entries.
+ *
+ * Methods which don't have enough history yet, or too few keys for their
+ * curve to be sampled, and caches with entries but no memory estimate keep
+ * their size, and their memory counts against the budget. Sizes change by
+ * at most a factor of {@value #MAX_CHANGE} per round, so the caches can fill
+ * and show the effect of a change before the next, and usage can be over
+ * the budget for a few rounds after shrinking.
+ *
+ * For instance scoped caches the budget covers all instances, so each
+ * instance is sized for its share.
+ *
+ * Create the controller before the caches are first used, so they start out
+ * at their saved sizes and their hit ratios are sampled from the start.
+ */
+public class CacheSizeController {
+
+    public static final long DEFAULT_PERIOD = 5 * 60 * 1000;
+    public static final int MAX_CHANGE = 2;
+
+    private static final Logger logger = Logger.getLogger(CacheSizeController.class.getName());
+    // smallest size given to a cache, and the steps sizes are chosen from
+    private static final int MIN_ENTRIES = 16;
+    private static final double GROWTH = 1.25;
+    private static final int MAX_ENTRIES = 1 << 24;
+    private static final int[] SIZES;
+    static {
+        List<Integer> sizes = new ArrayList<Integer>();
+        for (long size = MIN_ENTRIES; size <= MAX_ENTRIES; size = (long) Math.ceil(size * GROWTH)) {
+            sizes.add((int) size);
+        }
+        SIZES = new int[sizes.size()];
+        for (int n = 0; n < SIZES.length; n++) {
+            SIZES[n] = sizes.get(n);
+        }
+    }
+    // sampled accesses, and keys, needed before a method's curve is trusted
+    private static final long MIN_SAMPLED = 100;
+    private static final long MIN_SAMPLED_KEYS = 32;
+    // growth which would raise the hit ratio by less is not worth the memory
+    private static final double MIN_HIT_RATIO_GAIN = 0.01;
+    // smaller changes are left alone
+    private static final double MIN_CHANGE = 0.1;
+
+    private final CacheInterceptor interceptor;
+    private final CacheSettingsStore store;
+    private final long memoryBudget;
+    private ScheduledExecutorService executor = null;
+
+    /**
+     * @param module
+     * @param store where to save and load sizes, or null to not keep them
+     * @param memoryBudget bytes to share between all caches
+     */
+    public CacheSizeController(CacheModule module, CacheSettingsStore store, long memoryBudget) {
+        if (memoryBudget <= 0) {
+            throw new IllegalArgumentException("memoryBudget must be > 0");
+        }
+        this.interceptor = module.getInterceptor();
+        this.store = store;
+        this.memoryBudget = memoryBudget;
+        interceptor.setTrackReferences(true);
+        interceptor.setSampleHitRatios(true);
+        if (store != null) {
+            interceptor.setSettingsStore(store);
+        }
+    }
+
+    /**
+     * Resize the caches every period milliseconds, in a background thread.
+     * @param period
+     */
+    public synchronized void start(long period) {
+        if (executor != null) {
+            throw new IllegalStateException("CacheSizeController has already been started");
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("cache-size-controller").build());
+        executor.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                try {
+                    resize();
+                } catch (Throwable t) {
+                    // keep trying next period
+                    logger.log(Level.WARNING, "Unable to resize caches", t);
+                }
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    /**
+     * Resize the caches once, and save their settings. Safe to call while
+     * the controller is started, rounds are never run at the same time.
+     * @return the new maxEntries of the methods which were resized, by class
+     * name and method, as given by {@link CacheModule#getStatistics(boolean)}
+     */
+    public synchronized Map<String, Map<String, Integer>> resize() {
+        List<Candidate> candidates = new ArrayList<Candidate>();
+        long available = memoryBudget;
+        for (Entry<String, Map<String, CacheStatsAggregated>> c : interceptor.getStatistics(true).entrySet()) {
+            for (Entry<String, CacheStatsAggregated> m : c.getValue().entrySet()) {
+                Candidate candidate = Candidate.of(c.getKey(), m.getKey(), m.getValue());
+                if (candidate != null) {
+                    candidates.add(candidate);
+                } else {
+                    available -= m.getValue().getCombinedStats().getEstimatedMemoryUsageBytes();
+                }
+            }
+        }
+        allocate(candidates, available);
+        Map<String, Map<String, Integer>> result = new HashMap<String, Map<String, Integer>>();
+        for (Candidate c : candidates) {
+            int target = (int) Math.max(c.current / MAX_CHANGE, Math.min((long) c.current * MAX_CHANGE, c.size()));
+            target = Math.max(target, c.minimum);
+            if (Math.abs(target - c.current) > c.current * MIN_CHANGE) {
+                interceptor.setMaxEntries(c.className, c.method, target);
+                if (result.get(c.className) == null) {
+                    result.put(c.className, new HashMap<String, Integer>());
+                }
+                result.get(c.className).put(c.method, target);
+            }
+        }
+        if (store != null) {
+            interceptor.saveSettings();
+        }
+        return result;
+    }
+
+    /**
+     * Choose sizes greedily, taking whichever step up in size saves the most
+     * load time per byte, until nothing more fits or gains.
+     */
+    private static void allocate(List<Candidate> candidates, long available) {
+        for (Candidate c : candidates) {
+            available -= c.bytes(c.index);
+        }
+        while (true) {
+            Candidate best = null;
+            int bestIndex = 0;
+            double bestGain = 0;
+            for (Candidate c : candidates) {
+                for (int n = c.index + 1; n < SIZES.length; n++) {
+                    long bytes = c.bytes(n) - c.bytes(c.index);
+                    if (bytes > available) {
+                        break;
+                    }
+                    if (c.hitRatio(n) - c.hitRatio(c.index) < MIN_HIT_RATIO_GAIN) {
+                        continue;
+                    }
+                    double gain = (c.benefit(n) - c.benefit(c.index)) / bytes;
+                    if (gain > bestGain) {
+                        best = c;
+                        bestIndex = n;
+                        bestGain = gain;
+                    }
+                }
+            }
+            if (best == null) {
+                return;
+            }
+            available -= best.bytes(bestIndex) - best.bytes(best.index);
+            best.index = bestIndex;
+        }
+    }
+
+    private static class Candidate {
+        private final String className;
+        private final String method;
+        private final int current;
+        private final int minimum;
+        private final double bytesPerEntry;
+        private final int instances;
+        // hit ratio, and load time saved, at each of SIZES
+        private final double[] hitRatios = new double[SIZES.length];
+        private final double[] benefits = new double[SIZES.length];
+        private int index;
+
+        private Candidate(String className, String method, CacheStatsAggregated stats) {
+            CacheStatsSnapshot s = stats.getCombinedStats();
+            this.className = className;
+            this.method = method;
+            this.current = stats.getSettings().getMaxEntries();
+            // a cache can't be smaller than its number of segments
+            this.minimum = Math.max(MIN_ENTRIES, 2 * stats.getSettings().getConcurrencyLevel());
+            this.bytesPerEntry = (double) s.getEstimatedMemoryUsageBytes() / s.getEntries();
+            this.instances = Math.max(1, stats.getInstanceCount());
+            // load time saved if every request was a hit
+            double loadTime = (double) s.getRequestCount() * s.getTotalLoadTime().get() / s.getLoadCount().get();
+            HitRatioCurve curve = s.getHitRatioCurve();
+            for (int n = 0; n < SIZES.length; n++) {
+                hitRatios[n] = curve.getHitRatio(Math.max(minimum, SIZES[n]));
+                benefits[n] = loadTime * hitRatios[n];
+            }
+            int n = 0;
+            while (n < SIZES.length - 1 && SIZES[n] < minimum) {
+                n++;
+            }
+            this.index = n;
+        }
+
+        /**
+         * @return a candidate, or null if the method should be left alone
+         */
+        static Candidate of(String className, String method, CacheStatsAggregated stats) {
+            CacheStatsSnapshot s = stats.getCombinedStats();
+            if (s.getEntries() == 0 || s.getEstimatedMemoryUsageBytes() <= 0 || s.getLoadCount().get() == 0
+                    || s.getHitRatioCurve().getSampledAccesses() < MIN_SAMPLED
+                    || s.getHitRatioCurve().getSampledKeys() < MIN_SAMPLED_KEYS) {
+                return null;
+            }
+            return new Candidate(className, method, stats);
+        }
+
+        int size() {
+            return Math.max(minimum, SIZES[index]);
+        }
+
+        long bytes(int n) {
+            return (long) (Math.max(minimum, SIZES[n]) * bytesPerEntry * instances);
+        }
+
+        double hitRatio(int n) {
+            return hitRatios[n];
+        }
+
+        double benefit(int n) {
+            return benefits[n];
+        }
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ *  Copyright 2026 the visural-common contributors.
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+package com.visural.common.cache;
+
+import com.visural.common.ObjectSize;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Default {@link Weigher}, which weighs results by their estimated size in
+ * bytes using {@link ObjectSize}.
+ */
+public class EstimatedSizeWeigher implements Weigher {
+
+    private static final Logger logger = Logger.getLogger(EstimatedSizeWeigher.class.getName());
+
+    public int weigh(Object result) {
+        if (result == null) {
+            return 0;
+        }
+        try {
+            return ObjectSize.estimate(result);
+        } catch (Throwable t) {
+            logger.log(Level.WARNING, "Unable to estimate size of " + result.getClass().getName(), t);
+            return 0;
+        }
+    }
+}
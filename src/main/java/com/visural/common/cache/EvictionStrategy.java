@@ -25,8 +25,8 @@ public enum EvictionStrategy {
     LRU,  // LEAST RECENTLY USED (default)
     FIFO, // FIRST IN FIRST OUT
     
-    // Note that LFU and LFU_TIMECOST are more costly in terms of CPU and thread
-    // performance due to thread locking needing to occur for each get()
+    // Note that LFU and LFU_TIMECOST keep frequency buckets, so a get() costs
+    // about the same as for LRU, but use more memory per entry
     
     LFU,  // LEAST FREQUENTLY USED
     
@@ -35,5 +35,13 @@ public enum EvictionStrategy {
      * +1 is added to timecost to ensure value >= 1.
      * Note that timecost uses System.nanoTime();
      */
-    LFU_TIMECOST;
+    LFU_TIMECOST,
+
+    /**
+     * Window TinyLFU. New entries enter a small LRU window, and only replace
+     * an entry in the main (segmented LRU) region if they have been requested
+     * more often recently, as estimated by a compact frequency sketch.
+     * Gives better hit rates than LRU for skewed or scan heavy access patterns.
+     */
+    TINY_LFU;
 }
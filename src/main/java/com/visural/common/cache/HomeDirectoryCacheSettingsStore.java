@@ -17,20 +17,129 @@
 package com.visural.common.cache;
 
 import com.google.inject.Inject;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.reflect.Method;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
+/**
+ * Stores settings changed at runtime in a properties file per method, in the
+ * directory given by the system property {@value #DIRECTORY_PROPERTY}, or
+ * <code>.visural-cache</code> in the user's home directory by default.
+ *
+ * Only maxEntries is stored, the other settings always come from the method's
+ * {@link Cache} annotation. Saved settings are ignored once the annotation's
+ * maxEntries is changed, so a new setting in code takes effect.
+ */
 public class HomeDirectoryCacheSettingsStore implements CacheSettingsStore {
 
+    public static final String DIRECTORY_PROPERTY = "com.visural.common.cache.settingsDirectory";
+
+    private static final Logger logger = Logger.getLogger(HomeDirectoryCacheSettingsStore.class.getName());
+    private static final String METHOD = "method";
+    private static final String MAX_ENTRIES = "maxEntries";
+    private static final String DECLARED_MAX_ENTRIES = "declaredMaxEntries";
+
+    private final File directory;
+
     @Inject
     public HomeDirectoryCacheSettingsStore() {
+        this(new File(System.getProperty(DIRECTORY_PROPERTY,
+                new File(System.getProperty("user.home"), ".visural-cache").getPath())));
+    }
+
+    public HomeDirectoryCacheSettingsStore(File directory) {
+        this.directory = directory;
     }
-    
+
+    /**
+     * @param m
+     * @return the saved settings, or null if none have been saved, they can't
+     * be read or the annotation has changed since
+     */
     public CacheSettings load(Method m) {
-        throw new UnsupportedOperationException("Not supported yet.");
+        Cache annot = m.getAnnotation(Cache.class);
+        File file = fileFor(m);
+        if (annot == null || !file.exists()) {
+            return null;
+        }
+        Properties p = new Properties();
+        InputStream in = null;
+        try {
+            in = new FileInputStream(file);
+            p.load(in);
+        } catch (IOException ex) {
+            logger.log(Level.WARNING, String.format("Unable to read cache settings for '%s'", m), ex);
+            return null;
+        } finally {
+            close(in);
+        }
+        try {
+            if (!m.toString().equals(p.getProperty(METHOD))
+                    || Integer.parseInt(p.getProperty(DECLARED_MAX_ENTRIES)) != annot.maxEntries()) {
+                return null;
+            }
+            CacheSettings result = new CacheSettings(annot);
+            result.setMaxEntries(Integer.parseInt(p.getProperty(MAX_ENTRIES)));
+            return result;
+        } catch (NumberFormatException ex) {
+            logger.log(Level.WARNING, String.format("Invalid cache settings for '%s' in %s", m, file), ex);
+            return null;
+        }
     }
 
     public void save(Method m, CacheSettings save) {
-        throw new UnsupportedOperationException("Not supported yet.");
+        Cache annot = m.getAnnotation(Cache.class);
+        if (annot == null) {
+            throw new IllegalArgumentException(String.format("Method '%s' has no @Cache annotation", m));
+        }
+        Properties p = new Properties();
+        p.setProperty(METHOD, m.toString());
+        p.setProperty(MAX_ENTRIES, Integer.toString(save.getMaxEntries()));
+        p.setProperty(DECLARED_MAX_ENTRIES, Integer.toString(annot.maxEntries()));
+        File file = fileFor(m);
+        // write then rename, so a crash never leaves a half written file
+        File temp = new File(directory, file.getName() + ".tmp");
+        OutputStream out = null;
+        try {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Unable to create " + directory);
+            }
+            out = new FileOutputStream(temp);
+            p.store(out, "Cache settings for " + m);
+            out.close();
+            out = null;
+            if (!temp.renameTo(file) && !(file.delete() && temp.renameTo(file))) {
+                throw new IOException("Unable to replace " + file);
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException(String.format("Unable to save cache settings for '%s'", m), ex);
+        } finally {
+            close(out);
+        }
+    }
+
+    private File fileFor(Method m) {
+        // same naming as disk caches, readable but short enough for any file system
+        String name = m.getDeclaringClass().getName() + "." + m.getName();
+        name = name.replaceAll("[^A-Za-z0-9_.-]", "_") + "-" + Integer.toHexString(m.toString().hashCode());
+        return new File(directory, name + ".properties");
+    }
+
+    private static void close(Closeable c) {
+        if (c != null) {
+            try {
+                c.close();
+            } catch (IOException ex) {
+                // ignore
+            }
+        }
     }
-    
 }
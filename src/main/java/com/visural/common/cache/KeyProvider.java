@@ -17,7 +17,13 @@
 package com.visural.common.cache;
 
 /**
- * Converts a {@link MethodCall} into a String key for cache.
+ * Converts a {@link MethodCall} into a key for cache.
+ * 
+ * Keys are compared with equals() and hashCode(), so must not change once
+ * returned, and their serialized form is used to identify entries in the
+ * disk tier, so should be {@link java.io.Serializable} and the same across
+ * restarts. A String or a {@link CacheKey} are both suitable. A key which
+ * holds an argument must copy it if it could be changed by the caller.
  * 
  * @version $Id: KeyProvider.java 38 2010-05-24 11:39:51Z tibes80@gmail.com $
  * @author Richard Nichols
@@ -29,5 +35,5 @@ public interface KeyProvider {
      * @param methodCall
      * @return
      */
-    String getKey(MethodCall methodCall);
+    Object getKey(MethodCall methodCall);
 }
@@ -0,0 +1,35 @@
+/*
+ *  Copyright 2026 the visural-common contributors.
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+package com.visural.common.cache;
+
+/**
+ * Calculates the weight of a cached result, for caches bounded by
+ * {@link Cache#maxWeight()}.
+ *
+ * Implementations must have a public no-argument constructor and be thread
+ * safe. A result's weight is calculated once, when it is cached.
+ */
+public interface Weigher {
+
+    /**
+     * The weight of the given result, in whatever unit the cache's maxWeight
+     * is expressed in. Must not be negative.
+     * @param result the result to be cached, which may be null
+     * @return
+     */
+    int weigh(Object result);
+}
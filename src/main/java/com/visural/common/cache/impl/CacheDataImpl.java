@@ -19,24 +19,31 @@ package com.visural.common.cache.impl;
 import com.google.inject.Inject;
 import com.visural.common.cache.Cache;
 import com.visural.common.cache.CacheData;
+import com.visural.common.cache.CacheScope;
 import com.visural.common.cache.KeyProvider;
 import com.visural.common.cache.MethodCall;
 import java.lang.reflect.Method;
-import java.util.Collections;
+import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Set;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Local cache implementation.
  *
+ * Caches for methods with a shared {@link CacheScope} are held by the
+ * {@link CacheInterceptor}, and only referenced here.
+ *
  * @version $Id: CacheDataImpl.java 38 2010-05-24 11:39:51Z tibes80@gmail.com $
  * @author Richard Nichols
  */
 public class CacheDataImpl implements CacheData {
 
-    private Map<String, MethodCache> caches = new HashMap<String, MethodCache>();
+    private final ConcurrentMap<String, MethodCache> caches = new ConcurrentHashMap<String, MethodCache>();
+    // Method.toString() is actually quite expensive, so caches are found by Method
+    private final ConcurrentMap<Method, MethodCache> methodCaches = new ConcurrentHashMap<Method, MethodCache>();
     private final KeyProvider keyProvider;
     private final CacheInterceptor interceptor;
 
@@ -53,7 +60,7 @@ public class CacheDataImpl implements CacheData {
     public CacheEntry get(MethodCall methodCall) {
         MethodCache cache = getMethodCache(methodCall.getMethod());
         if (cache != null) {
-            return cache.get(methodCall);
+            return cache.get(cache.getKey(methodCall));
         } else {
             return null;
         }
@@ -61,7 +68,7 @@ public class CacheDataImpl implements CacheData {
 
     public void put(long created, long timeCost, MethodCall methodCall, Cache annot, Object result) {
         MethodCache cache = getAndCreateMethodCache(methodCall.getMethod(), annot);
-        cache.put(created, timeCost, methodCall, result);
+        cache.put(created, timeCost, cache.getKey(methodCall), result);
     }
 
     protected MethodCache getAndCreateMethodCache(Method m, Cache annot) {
@@ -72,29 +79,33 @@ public class CacheDataImpl implements CacheData {
         return result;
     }
     
-    private synchronized MethodCache createMethodCache(Method m, Cache annot) {
-        MethodCache result = getMethodCache(m);
-        if (result == null) {
-            result = new MethodCache(annot, m, keyProvider);
-            caches.put(getMethodString(m), result);
-        }
+    private MethodCache createMethodCache(Method m, Cache annot) {
+        return addMethodCache(m, new MethodCache(annot, m, keyProvider));
+    }
+
+    /**
+     * Use the given cache for a method, unless it already has one.
+     * @param m
+     * @param created
+     * @return the method's cache
+     */
+    protected MethodCache addMethodCache(Method m, MethodCache created) {
+        MethodCache existing = caches.putIfAbsent(m.toString(), created);
+        MethodCache result = existing != null ? existing : created;
+        methodCaches.put(m, result);
         return result;
     }
     
     protected MethodCache getMethodCache(Method m) {
-        return caches.get(getMethodString(m));
+        return methodCaches.get(m);
     }
 
-    // Method.toString() is actually quite expensive so we use a local cache for this
-    private Map<Method, String> methodToStringCache = Collections.synchronizedMap(new HashMap<Method, String>());
-    
-    private String getMethodString(Method m) {
-        String key = methodToStringCache.get(m);
-        if (key == null) {
-            key = m.toString();
-            methodToStringCache.put(m, key);
-        }
-        return key;        
+    /**
+     * @param method the method's toString()
+     * @return
+     */
+    protected MethodCache getMethodCache(String method) {
+        return caches.get(method);
     }
         
     public void invalidateCache(MethodCall methodCall) {
@@ -111,14 +122,30 @@ public class CacheDataImpl implements CacheData {
         }
     }
     
+    /**
+     * The caches used so far by this instance, including shared ones.
+     * @return
+     */
+    Collection<MethodCache> getMethodCaches() {
+        return caches.values();
+    }
+
     public Map<String, CacheStatsAggregated> getStatistics(boolean estimateMemory) {
+        return getStatistics(estimateMemory, true);
+    }
+
+    /**
+     * @param estimateMemory
+     * @param includeShared whether to include caches shared with other
+     *        instances, see {@link CacheScope}
+     * @return
+     */
+    public Map<String, CacheStatsAggregated> getStatistics(boolean estimateMemory, boolean includeShared) {
         Map<String, CacheStatsAggregated> result = new HashMap<String, CacheStatsAggregated>();
-        Set<String> keys;
-        synchronized (this) {
-            keys = new HashSet<String>(caches.keySet());
-        }
-        for (String key : keys) {
-            result.put(key, new CacheStatsAggregated(caches.get(key).getSettings(), caches.get(key).getStatsSnapshot(estimateMemory)));
+        for (Entry<String, MethodCache> e : caches.entrySet()) {
+            if (includeShared || e.getValue().getSettings().scope() == CacheScope.INSTANCE) {
+                result.put(e.getKey(), new CacheStatsAggregated(e.getValue().getCacheSettings(), e.getValue().getStatsSnapshot(estimateMemory)));
+            }
         }
         return result;
     }
@@ -17,7 +17,7 @@
 package com.visural.common.cache.impl;
 
 import java.lang.ref.SoftReference;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 
 /**
  * Stateless wrapper for a cached result, which keeps created and ttl data.
@@ -26,16 +26,29 @@ import java.util.concurrent.atomic.AtomicLong;
  * @author Richard Nichols
  */
 public class CacheEntry {
-    private final String key;
+    private final Object key;
 
     private final long created;
     private final int ttl;
     private final long timeCost;
     private final Object result;
     private final boolean softRef;
-    private AtomicLong uses = new AtomicLong(1);
+    private static final AtomicLongFieldUpdater<CacheEntry> USES = AtomicLongFieldUpdater.newUpdater(CacheEntry.class, "uses");
 
-    public CacheEntry(String key, long created, long ttl, long timeCost, Object result) {
+    private volatile long uses = 1;
+    private volatile boolean live = true;
+
+    private int weight;
+    private boolean negative;
+    // whether weight is included in the store's total, guarded by its eviction lock
+    boolean weighed;
+
+    // expiry schedule, maintained by TimerWheel under the store's eviction lock
+    int wheelBucket = -1;
+    CacheEntry wheelPrev;
+    CacheEntry wheelNext;
+
+    public CacheEntry(Object key, long created, long ttl, long timeCost, Object result) {
         this.key = key;
         this.created = created;        
         this.ttl = (int)ttl;
@@ -44,7 +57,7 @@ public class CacheEntry {
         softRef = false;
     }
 
-    public CacheEntry(String key, long created, long ttl, long timeCost, SoftReference result) {
+    public CacheEntry(Object key, long created, long ttl, long timeCost, SoftReference result) {
         this.key = key;
         this.created = created;        
         this.ttl = (int)ttl;
@@ -53,16 +66,31 @@ public class CacheEntry {
         this.result = (result.get() == null ? null : result);
     }
     
-    public String getKey() {
+    public Object getKey() {
         return key;
     }
     
+    /**
+     * Count a use of the entry for eviction ordering.
+     */
     public void incrementUses() {
-        uses.addAndGet(1);
+        USES.incrementAndGet(this);
+    }
+
+    /**
+     * Whether this entry is still held by its {@link CacheStore}.
+     * @return
+     */
+    boolean isLive() {
+        return live;
+    }
+
+    void retire() {
+        live = false;
     }
 
     public long getUses() {
-        return uses.get();
+        return uses;
     }
 
     public long getCreated() {
@@ -84,6 +112,32 @@ public class CacheEntry {
         }
     }
 
+    /**
+     * The weight calculated by the cache's {@link com.visural.common.cache.Weigher},
+     * or 0 if it isn't bounded by weight.
+     * @return
+     */
+    public int getWeight() {
+        return weight;
+    }
+
+    void setWeight(int weight) {
+        this.weight = weight;
+    }
+
+    /**
+     * Whether this entry holds a cached exception, or a null result with its
+     * own time to live.
+     * @return
+     */
+    public boolean isNegative() {
+        return negative;
+    }
+
+    void setNegative(boolean negative) {
+        this.negative = negative;
+    }
+
     public long getTimeCost() {
         return timeCost;
     }           
@@ -91,9 +145,27 @@ public class CacheEntry {
     public int getTtl() {
         return ttl;
     }
+
+    /**
+     * The time this entry expires, if it has a time to live.
+     * @return
+     */
+    public long getExpiresAt() {
+        return created + ttl;
+    }
     
     public long getUsesByTimecost() {
-        return uses.get()*(timeCost+1);
+        return uses*(timeCost+1);
+    }
+
+    /**
+     * Returns whether the entry was created more than the given number of
+     * milliseconds ago.
+     * @param millis
+     * @return
+     */
+    public boolean isOlderThan(long millis) {
+        return CacheTimer.currentTimeMillis() > created + millis;
     }
 
     /**
@@ -103,7 +175,7 @@ public class CacheEntry {
      */
     public boolean isExpired() {
         // Note: ttl == 0 means does not expire
-        return (ttl > 0 && System.currentTimeMillis() > created + ttl) 
+        return (ttl > 0 && CacheTimer.currentTimeMillis() > created + ttl) 
             || (softRef && result != null && ((SoftReference)result).get() == null);
     }
 
@@ -16,20 +16,42 @@
  */
 package com.visural.common.cache.impl;
 
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import com.visural.common.EqualsWeakReference;
 import com.visural.common.GuiceUtil;
 import com.visural.common.cache.Cache;
+import com.visural.common.cache.CacheData;
+import com.visural.common.cache.CacheScope;
+import com.visural.common.cache.CacheSettings;
+import com.visural.common.cache.CacheSettingsStore;
 import com.visural.common.cache.Cacheable;
 import com.visural.common.cache.KeyProvider;
 import com.visural.common.cache.MethodCall;
 import java.lang.ref.WeakReference;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.aopalliance.intercept.MethodInterceptor;
@@ -44,16 +66,32 @@ import org.aopalliance.intercept.MethodInvocation;
 public class CacheInterceptor implements MethodInterceptor {
 
     private static final Logger logger = Logger.getLogger(CacheInterceptor.class.getName());
+    private static final int REFRESH_THREADS = 2;
+    private static final int REFRESH_QUEUE_SIZE = 1000;
+    private static final ThreadLocal<MethodCall> refreshing = new ThreadLocal<MethodCall>();
+    private static final ThreadLocal<MethodCall> bulkLoading = new ThreadLocal<MethodCall>();
     
     @Inject KeyProvider keyProvider;
     
     private Set<EqualsWeakReference<Cacheable>> instances = null;
+    private volatile Executor refreshExecutor = null;
+    // caches for methods with a shared scope, by method or class and method
+    private final ConcurrentMap<Object, MethodCache> sharedCaches = new ConcurrentHashMap<Object, MethodCache>();
+    // shared caches already set up for an instance, by method or runtime class
+    // and method, so later instances skip the set up
+    private final ConcurrentMap<Object, MethodCache> setUpSharedCaches = new ConcurrentHashMap<Object, MethodCache>();
+    // maxEntries changed at runtime, by class name and method, see setMaxEntries()
+    private final ConcurrentMap<List<String>, Integer> maxEntries = new ConcurrentHashMap<List<String>, Integer>();
+    private volatile MethodCacheListener methodCacheListener = null;
+    private volatile CacheSettingsStore settingsStore = null;
+    private volatile boolean sampleHitRatios = false;
+    // maxEntries loaded from the settings store, 0 where none was saved
+    private final ConcurrentMap<Method, Integer> savedMaxEntries = new ConcurrentHashMap<Method, Integer>();
 
     public CacheInterceptor() {
     }
     
     public Object invoke(MethodInvocation mi) throws Throwable {        
-        Cache annot = mi.getMethod().getAnnotation(Cache.class);
         Cacheable cacheable = (Cacheable) mi.getThis();
         if (instances != null) {
             synchronized (this) {
@@ -62,31 +100,463 @@ public class CacheInterceptor implements MethodInterceptor {
         }
 
         CacheDataImpl cacheData = (CacheDataImpl) cacheable.__cacheData();
-        
         MethodCall call = MethodCall.fromInvocation(mi);
-        CacheEntry ce = cacheData.get(call);
+        MethodCache cache = cacheData.getMethodCache(mi.getMethod());
+        if (cache == null) {
+            cache = getAndCreateMethodCache(cacheable, cacheData, mi.getMethod());
+        }
+        MemoScope memo = refreshing.get() == null && bulkLoading.get() == null ? MemoScope.current() : null;
+        if (memo == null) {
+            return invoke(mi, cache, call, null);
+        }
+        Object key = cache.getKey(call);
+        MemoScope.Memo m = memo.get(cache, key);
+        if (m != null) {
+            return m.hit();
+        }
+        // before the call, so an invalidation during it discards the result
+        int generation = cache.getGeneration();
+        Object result = invoke(mi, cache, call, key);
+        memo.put(cache, key, generation, result);
+        return result;
+    }
+
+    /**
+     * @param key the call's key, or null if not yet known
+     */
+    private Object invoke(MethodInvocation mi, MethodCache cache, MethodCall call, Object key) throws Throwable {
+        if (cache.isBulk()) {
+            return invokeBulk(mi, cache, call);
+        }
+        Cache annot = cache.getSettings();
+        if (key == null) {
+            key = cache.getKey(call);
+        }
+        if (refreshing.get() != null && call.equals(refreshing.get())) {
+            // background refresh of this call, see refresh()
+            refreshing.remove();
+            return load(mi, cache, key, true);
+        }
+        CacheEntry ce = cache.get(key);
         if (ce != null) {
             // attempt to return result. there is a minor possibility that a
             // soft reference is cleared by GC in between CacheEntry retrieval
             // and final return to caller
+            Throwable cached = null;
             try {
                 logger.log(Level.FINE, "Cache hit: {0}", call);
-                return ce.getResult();
+                Object result = ce.getResult();
+                if (cache.isAsync()) {
+                    boolean pending = result instanceof PendingFuture;
+                    result = toFuture(result);
+                    if (!pending && annot.refreshAfter() > 0 && ce.isOlderThan(annot.refreshAfter())) {
+                        refresh(mi, cache, call, key, result);
+                    }
+                    return result;
+                }
+                if (result instanceof CachedException) {
+                    cached = ((CachedException) result).getThrowable();
+                } else {
+                    if (annot.refreshAfter() > 0 && ce.isOlderThan(annot.refreshAfter())) {
+                        refresh(mi, cache, call, key, result);
+                    }
+                    return result;
+                }
             } catch (Throwable e) {
                 logger.log(Level.WARNING, "Cache error", e);
             }
+            if (cached != null) {
+                throw cached;
+            }
         } 
 
-        // full execute
-        try {                
-            long inNano = System.nanoTime();
-            Object result = mi.proceed();
-            long outNano = System.nanoTime();
-            long out = System.currentTimeMillis();
-            cacheData.put(out, outNano-inNano, call, annot, result);
+        if (annot.loadWaitTimeout() < 0) {
+            return load(mi, cache, key, false);
+        }
+        
+        // only one thread loads a given key, any others wait for its result
+        InFlightLoad mine = new InFlightLoad();
+        InFlightLoad inFlight = cache.startLoad(key, mine);
+        if (inFlight != mine) {
+            if (inFlight.isLoadingThread()) {
+                // recursive call for the same key, waiting would deadlock
+                return load(mi, cache, key, false);
+            }
+            if (awaitLoad(inFlight, annot.loadWaitTimeout())) {
+                Throwable failure = inFlight.isFailed() ? inFlight.copyFailure() : null;
+                if (!inFlight.isFailed() || failure != null) {
+                    cache.getStats().getCoalescedCounter().increment();
+                    if (failure != null) {
+                        throw failure;
+                    }
+                    return inFlight.getResult();
+                }
+                // the failure can't be copied, so load it to get our own
+            } else {
+                cache.getStats().getCoalescedTimeoutCounter().increment();
+            }
+            // carry on without the loader, on this thread
+            return load(mi, cache, key, false);
+        }
+        try {
+            Object result = loadUnlessCached(mi, cache, key);
+            mine.complete(result);
             return result;
-        } finally { //NOPMD
-            // let error pass up the stack
+        } catch (Throwable t) {
+            mine.fail(t);
+            throw t;
+        } finally {
+            cache.endLoad(key, mine);
+        }
+    }
+
+    /**
+     * Serve each ID passed to a bulk method from the cache, and load the rest
+     * with a single call. IDs already being loaded by another thread are
+     * waited for, as other loads are.
+     */
+    private Object invokeBulk(MethodInvocation mi, MethodCache cache, MethodCall call) throws Throwable {
+        if (bulkLoading.get() != null && call.equals(bulkLoading.get())) {
+            // the load of the missing IDs, see loadBulk()
+            bulkLoading.remove();
+            return mi.proceed();
+        }
+        int index = cache.getBulkIndex();
+        Collection<?> ids = (Collection<?>) call.getArguments()[index];
+        if (ids == null) {
+            return mi.proceed();
+        }
+        Map<Object, Object> found = new HashMap<Object, Object>();
+        Map<Object, Object> missing = new LinkedHashMap<Object, Object>();
+        for (Object id : ids) {
+            Object[] idArgs = call.getArguments().clone();
+            idArgs[index] = id;
+            Object key = cache.getKey(new MethodCall(call.getMethod(), idArgs));
+            CacheEntry ce = cache.get(key);
+            if (ce != null) {
+                try {
+                    found.put(id, ce.getResult());
+                    continue;
+                } catch (Throwable e) {
+                    logger.log(Level.WARNING, "Cache error", e);
+                }
+            }
+            missing.put(id, key);
+        }
+        if (!missing.isEmpty()) {
+            int timeout = cache.getSettings().loadWaitTimeout();
+            Map<Object, Object> toLoad = new LinkedHashMap<Object, Object>();
+            Map<Object, InFlightLoad> loads = new HashMap<Object, InFlightLoad>();
+            Map<Object, InFlightLoad> waits = new LinkedHashMap<Object, InFlightLoad>();
+            for (Entry<Object, Object> e : missing.entrySet()) {
+                InFlightLoad mine = new InFlightLoad();
+                InFlightLoad inFlight = timeout < 0 ? mine : cache.startLoad(e.getValue(), mine);
+                if (inFlight != mine && !inFlight.isLoadingThread()) {
+                    waits.put(e.getKey(), inFlight);
+                } else {
+                    toLoad.put(e.getKey(), e.getValue());
+                    loads.put(e.getKey(), mine);
+                }
+            }
+            try {
+                loadBulk(mi, cache, call, toLoad, found);
+                for (Entry<Object, InFlightLoad> e : loads.entrySet()) {
+                    e.getValue().complete(found.get(e.getKey()));
+                }
+            } catch (Throwable t) {
+                for (InFlightLoad load : loads.values()) {
+                    load.fail(t);
+                }
+                throw t;
+            } finally {
+                for (Entry<Object, InFlightLoad> e : loads.entrySet()) {
+                    cache.endLoad(missing.get(e.getKey()), e.getValue());
+                }
+            }
+            // IDs which failed or took too long on another thread are loaded here
+            Map<Object, Object> retry = new LinkedHashMap<Object, Object>();
+            for (Entry<Object, InFlightLoad> e : waits.entrySet()) {
+                InFlightLoad inFlight = e.getValue();
+                if (!awaitLoad(inFlight, timeout)) {
+                    cache.getStats().getCoalescedTimeoutCounter().increment();
+                    retry.put(e.getKey(), missing.get(e.getKey()));
+                } else if (inFlight.isFailed()) {
+                    retry.put(e.getKey(), missing.get(e.getKey()));
+                } else {
+                    cache.getStats().getCoalescedCounter().increment();
+                    found.put(e.getKey(), inFlight.getResult());
+                }
+            }
+            loadBulk(mi, cache, call, retry, found);
+        }
+        Map<Object, Object> result = new LinkedHashMap<Object, Object>();
+        for (Object id : ids) {
+            Object value = found.get(id);
+            if (value != null) {
+                result.put(id, value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Load the given IDs with one call of the bulk method, and cache and add
+     * to found the value of each.
+     * @param keys the cache key of each ID to load
+     */
+    private void loadBulk(MethodInvocation mi, MethodCache cache, MethodCall call, Map<Object, Object> keys,
+            Map<Object, Object> found) throws Throwable {
+        if (keys.isEmpty()) {
+            return;
+        }
+        // the invocation's own arguments are left alone, and the method is
+        // called again with only the missing IDs, which the interceptor
+        // passes straight through
+        Object[] args = call.getArguments().clone();
+        args[cache.getBulkIndex()] = cache.newBulkArgument(keys.keySet());
+        long inNano = System.nanoTime();
+        Map<?, ?> loaded = (Map<?, ?>) invokeAgain(bulkLoading, mi.getMethod(), mi.getThis(), args,
+                new MethodCall(call.getMethod(), args));
+        long timeCost = (System.nanoTime() - inNano) / keys.size();
+        long out = CacheTimer.currentTimeMillis();
+        for (Entry<Object, Object> e : keys.entrySet()) {
+            Object value = loaded == null ? null : loaded.get(e.getKey());
+            cache.put(out, timeCost, e.getValue(), value);
+            found.put(e.getKey(), value);
+        }
+    }
+
+    private MethodCache getAndCreateMethodCache(Cacheable cacheable, CacheDataImpl cacheData, Method m) {
+        MethodCache setUp = setUpSharedCaches.get(m);
+        if (setUp != null) {
+            return cacheData.addMethodCache(m, setUp);
+        }
+        Cache annot = m.getAnnotation(Cache.class);
+        Object setUpKey = null;
+        if (annot.scope() != CacheScope.INSTANCE) {
+            setUpKey = annot.scope() == CacheScope.CLASS ? Arrays.<Object>asList(cacheable.getClass(), m) : m;
+            setUp = setUpSharedCaches.get(setUpKey);
+            if (setUp != null) {
+                return cacheData.addMethodCache(m, setUp);
+            }
+        }
+        MethodCache result = annot.scope() == CacheScope.INSTANCE
+                ? cacheData.getAndCreateMethodCache(m, annot)
+                : getAndCreateSharedCache(cacheable, cacheData, m, annot);
+        if (sampleHitRatios) {
+            result.setSampleHitRatios(true);
+        }
+        MethodCacheListener listener = methodCacheListener;
+        CacheSettingsStore store = settingsStore;
+        if (!maxEntries.isEmpty() || listener != null || store != null) {
+            String className = annot.scope() == CacheScope.INJECTOR
+                    ? m.getDeclaringClass().getName() : GuiceUtil.unproxyClass(cacheable).getName();
+            Integer resized = maxEntries.get(Arrays.asList(className, m.toString()));
+            if (resized != null && resized.intValue() != result.getMaxEntries()) {
+                result.setMaxEntries(resized);
+            } else if (resized == null && store != null) {
+                applySavedSettings(store, result, m);
+            }
+            if (listener != null) {
+                listener.onCreate(className, m.toString());
+            }
+        }
+        if (setUpKey != null) {
+            setUpSharedCaches.put(setUpKey, result);
+        }
+        return result;
+    }
+
+    private void applySavedSettings(CacheSettingsStore store, MethodCache cache, Method m) {
+        Integer saved = savedMaxEntries.get(m);
+        if (saved == null) {
+            CacheSettings settings = null;
+            try {
+                settings = store.load(m);
+            } catch (RuntimeException ex) {
+                logger.log(Level.WARNING, String.format("Unable to load cache settings for '%s'", m), ex);
+            }
+            saved = settings == null ? 0 : settings.getMaxEntries();
+            savedMaxEntries.put(m, saved);
+        }
+        if (saved.intValue() > 0 && saved.intValue() != cache.getMaxEntries()) {
+            try {
+                cache.setMaxEntries(saved);
+            } catch (IllegalArgumentException ex) {
+                logger.log(Level.WARNING, String.format("Ignoring saved cache settings for '%s'", m), ex);
+                savedMaxEntries.put(m, 0);
+            }
+        }
+    }
+
+    private MethodCache getAndCreateSharedCache(Cacheable cacheable, CacheDataImpl cacheData, Method m, Cache annot) {
+        Class<?> scopeClass = annot.scope() == CacheScope.CLASS ? GuiceUtil.unproxyClass(cacheable) : m.getDeclaringClass();
+        Object scopeKey = annot.scope() == CacheScope.CLASS ? Arrays.<Object>asList(scopeClass, m) : m;
+        MethodCache shared = sharedCaches.get(scopeKey);
+        if (shared == null) {
+            MethodCache created = new MethodCache(annot, m, scopeClass, keyProvider);
+            shared = sharedCaches.putIfAbsent(scopeKey, created);
+            if (shared == null) {
+                shared = created;
+            }
+        }
+        return cacheData.addMethodCache(m, shared);
+    }
+
+    /**
+     * @param refresh whether this is a background refresh, which leaves the
+     * existing entry in place until it succeeds
+     */
+    private Object load(MethodInvocation mi, MethodCache cache, Object key, boolean refresh) throws Throwable {
+        long inNano = System.nanoTime();
+        Object result;
+        try {
+            result = mi.proceed();
+        } catch (Throwable t) {
+            if (!refresh && cache.isCachedException(t)) {
+                cache.putException(CacheTimer.currentTimeMillis(), System.nanoTime()-inNano, key, t);
+            }
+            throw t;
+        }
+        if (cache.isAsync() && result != null) {
+            return cache.putFuture(key, inNano, (Future) result, !refresh);
+        }
+        long outNano = System.nanoTime();
+        long out = CacheTimer.currentTimeMillis();
+        cache.put(out, outNano-inNano, key, result);
+        return result;
+    }
+
+    private Object loadUnlessCached(MethodInvocation mi, MethodCache cache, Object key) throws Throwable {
+        CacheEntry ce = cache.peek(key);
+        if (ce != null) {
+            // another thread finished loading in between our miss and now
+            Object result = null;
+            try {
+                result = ce.getResult();
+                cache.getStats().getCoalescedCounter().increment();
+            } catch (Throwable e) {
+                logger.log(Level.WARNING, "Cache error", e);
+                return load(mi, cache, key, false);
+            }
+            if (cache.isAsync()) {
+                return toFuture(result);
+            }
+            if (result instanceof CachedException) {
+                throw ((CachedException) result).getThrowable();
+            }
+            return result;
+        }
+        return load(mi, cache, key, false);
+    }
+
+    /**
+     * The future to return for a cached result of a method returning a Future.
+     */
+    private static Object toFuture(Object result) {
+        if (result instanceof PendingFuture) {
+            return ((PendingFuture) result).getFuture();
+        }
+        if (result instanceof CachedException) {
+            return Futures.immediateFailedFuture(((CachedException) result).getThrowable());
+        }
+        return Futures.immediateFuture(result);
+    }
+
+    /**
+     * Reload a stale entry in the background. Requests for the key which miss
+     * in the meantime wait for the refresh as they would for any other load.
+     * If a load is already in flight, or the refresh executor is saturated,
+     * the entry is left alone until the next hit or its expiry.
+     */
+    private void refresh(final MethodInvocation mi, final MethodCache cache, final MethodCall call, final Object key, Object current) {
+        // the invocation can't be proceeded once this call has returned, so
+        // the refresh calls the method again, and the interceptor loads it
+        // rather than returning the cached result
+        final Method method = mi.getMethod();
+        final Object target = mi.getThis();
+        final Object[] args = mi.getArguments();
+        final InFlightLoad refresh = new InFlightLoad(null);
+        if (cache.startLoad(key, refresh) != refresh) {
+            return;
+        }
+        try {
+            getRefreshExecutor().execute(new Runnable() {
+                public void run() {
+                    long inNano = System.nanoTime();
+                    try {
+                        refresh.complete(invokeAgain(refreshing, method, target, args, call));
+                        cache.getStats().getRefreshCounter().increment();
+                        cache.getStats().getTotalRefreshTimeCounter().add(System.nanoTime()-inNano);
+                    } catch (Throwable t) {
+                        logger.log(Level.WARNING, "Cache refresh failed: " + call, t);
+                        refresh.fail(t);
+                    } finally {
+                        cache.endLoad(key, refresh);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.log(Level.FINE, "Cache refresh rejected: {0}", call);
+            refresh.complete(current);
+            cache.endLoad(key, refresh);
+        }
+    }
+
+    /**
+     * Call the method on the target, so that the interceptor sees the given
+     * marker set for the call and doesn't serve it from the cache.
+     */
+    private static Object invokeAgain(ThreadLocal<MethodCall> marker, Method method, Object target, Object[] args,
+            MethodCall call) throws Throwable {
+        marker.set(call);
+        try {
+            if (!method.isAccessible()) {
+                method.setAccessible(true);
+            }
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        } finally {
+            marker.remove();
+        }
+    }
+
+    private Executor getRefreshExecutor() {
+        Executor executor = refreshExecutor;
+        if (executor == null) {
+            synchronized (this) {
+                if (refreshExecutor == null) {
+                    ThreadPoolExecutor pool = new ThreadPoolExecutor(REFRESH_THREADS, REFRESH_THREADS,
+                            60, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(REFRESH_QUEUE_SIZE),
+                            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("cache-refresh-%d").build());
+                    pool.allowCoreThreadTimeOut(true);
+                    refreshExecutor = pool;
+                }
+                executor = refreshExecutor;
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * Set the executor used to reload entries in the background for methods
+     * with {@link Cache#refreshAfter()} set. By default a small pool of daemon
+     * threads with a bounded queue is used. Refreshes rejected by the executor
+     * are skipped.
+     * @param refreshExecutor 
+     */
+    public void setRefreshExecutor(Executor refreshExecutor) {
+        this.refreshExecutor = refreshExecutor;
+    }
+
+    private boolean awaitLoad(InFlightLoad inFlight, int timeout) {
+        try {
+            return inFlight.await(timeout);
+        } catch (InterruptedException e) {
+            // load it ourselves, but leave the interrupt for the caller to see
+            Thread.currentThread().interrupt();
+            return false;
         }
     }
 
@@ -112,7 +582,8 @@ public class CacheInterceptor implements MethodInterceptor {
     
     /**
      * Return stats across all registered {@link Cacheable} instances which 
-     * have not been garbage collected.
+     * have not been garbage collected, and all caches shared between
+     * instances.
      * @return 
      */
     public Map<String, Map<String, CacheStatsAggregated>> getStatistics(boolean estimateMemory) {
@@ -124,24 +595,184 @@ public class CacheInterceptor implements MethodInterceptor {
             }
             for (WeakReference<Cacheable> c : instancesSnapshot) {
                 if (c.get() != null) {
-                    Map<String, CacheStatsAggregated> cs = c.get().__cacheData().getStatistics(estimateMemory);
-                    String key = GuiceUtil.unproxyClass(c.get().getClass()).getName();
-                    if (result.get(key) == null) {
-                        result.put(key, cs);
-                    } else {
-                        for (Entry<String,CacheStatsAggregated> e : cs.entrySet()) {
-                            if (result.get(key).get(e.getKey()) != null) {
-                                result.get(key).put(e.getKey(), result.get(key).get(e.getKey()).combine(e.getValue()));
-                            } else {
-                                result.get(key).put(e.getKey(), e.getValue());
-                            }
-                        }
-                    }
+                    CacheData data = c.get().__cacheData();
+                    // shared caches are added below, once rather than per instance
+                    Map<String, CacheStatsAggregated> cs = data instanceof CacheDataImpl
+                            ? ((CacheDataImpl) data).getStatistics(estimateMemory, false)
+                            : data.getStatistics(estimateMemory);
+                    merge(result, GuiceUtil.unproxyClass(c.get().getClass()).getName(), cs);
+                }
+            }
+        }
+        for (Entry<Object, MethodCache> e : sharedCaches.entrySet()) {
+            Map<String, CacheStatsAggregated> cs = new HashMap<String, CacheStatsAggregated>();
+            cs.put(scopeMethod(e.getKey()).toString(), new CacheStatsAggregated(e.getValue().getCacheSettings(), e.getValue().getStatsSnapshot(estimateMemory)));
+            merge(result, scopeClass(e.getKey()).getName(), cs);
+        }
+        return result;
+    }
 
+    /**
+     * Invalidate a method's caches, as reported by {@link #getStatistics(boolean)}.
+     * @param className
+     * @param method the method's toString()
+     */
+    public void invalidateCache(String className, String method) {
+        for (MethodCache cache : getMethodCaches(className, method)) {
+            cache.invalidateCache();
+        }
+    }
+
+    /**
+     * Change the maxEntries of a method's caches, as reported by
+     * {@link #getStatistics(boolean)}, including caches created from now on.
+     * @param className
+     * @param method the method's toString()
+     * @param maxEntries
+     */
+    public void setMaxEntries(String className, String method, int maxEntries) {
+        for (MethodCache cache : getMethodCaches(className, method)) {
+            cache.setMaxEntries(maxEntries);
+        }
+        this.maxEntries.put(Arrays.asList(className, method), maxEntries);
+    }
+
+    /**
+     * Set a listener to be told when a method cache is first used by an
+     * instance.
+     * @param methodCacheListener
+     */
+    public void setMethodCacheListener(MethodCacheListener methodCacheListener) {
+        this.methodCacheListener = methodCacheListener;
+    }
+
+    /**
+     * Set a store to load the settings of caches from when they are created,
+     * in place of their @Cache settings. Only maxEntries is applied, and only
+     * where it has not been changed by {@link #setMaxEntries(String, String, int)}.
+     * @param settingsStore
+     */
+    public void setSettingsStore(CacheSettingsStore settingsStore) {
+        savedMaxEntries.clear();
+        this.settingsStore = settingsStore;
+    }
+
+    /**
+     * Sample the hit ratio each cache would get at other sizes, see
+     * {@link MethodCache#setSampleHitRatios(boolean)}. Applies to the caches
+     * created from now on, the shared caches, and the caches of registered
+     * instances.
+     * @param sampleHitRatios
+     */
+    public void setSampleHitRatios(boolean sampleHitRatios) {
+        this.sampleHitRatios = sampleHitRatios;
+        for (MethodCache cache : getMethodCaches()) {
+            cache.setSampleHitRatios(sampleHitRatios);
+        }
+    }
+
+    /**
+     * Save the current settings of the shared caches, and the caches of
+     * registered instances, to the settings store. Where a method has several
+     * caches, e.g. class scoped caches of subclasses, one of them is saved.
+     */
+    public void saveSettings() {
+        CacheSettingsStore store = settingsStore;
+        if (store == null) {
+            throw new IllegalStateException("No CacheSettingsStore has been set");
+        }
+        Map<Method, CacheSettings> settings = new HashMap<Method, CacheSettings>();
+        for (MethodCache cache : getMethodCaches()) {
+            settings.put(cache.getMethod(), cache.getCacheSettings());
+        }
+        for (Entry<Method, CacheSettings> e : settings.entrySet()) {
+            store.save(e.getKey(), e.getValue());
+            savedMaxEntries.put(e.getKey(), e.getValue().getMaxEntries());
+        }
+    }
+
+    private Collection<MethodCache> getMethodCaches() {
+        Map<MethodCache, Boolean> result = new IdentityHashMap<MethodCache, Boolean>();
+        for (Cacheable cacheable : getInstances()) {
+            if (cacheable.__cacheData() instanceof CacheDataImpl) {
+                for (MethodCache cache : ((CacheDataImpl) cacheable.__cacheData()).getMethodCaches()) {
+                    result.put(cache, Boolean.TRUE);
+                }
+            }
+        }
+        for (MethodCache cache : sharedCaches.values()) {
+            result.put(cache, Boolean.TRUE);
+        }
+        return result.keySet();
+    }
+
+    /**
+     * The registered instances which have not been garbage collected.
+     */
+    private List<Cacheable> getInstances() {
+        List<Cacheable> result = new ArrayList<Cacheable>();
+        if (instances != null) {
+            Set<WeakReference<Cacheable>> instancesSnapshot;
+            synchronized (this) {
+                instancesSnapshot = new HashSet<WeakReference<Cacheable>>(instances);
+            }
+            for (WeakReference<Cacheable> c : instancesSnapshot) {
+                Cacheable cacheable = c.get();
+                if (cacheable != null) {
+                    result.add(cacheable);
                 }
             }
         }
         return result;
     }
+
+    /**
+     * The shared caches, and the caches of registered instances, for the
+     * given method.
+     */
+    private Collection<MethodCache> getMethodCaches(String className, String method) {
+        Map<MethodCache, Boolean> result = new IdentityHashMap<MethodCache, Boolean>();
+        for (Cacheable cacheable : getInstances()) {
+            if (cacheable.__cacheData() instanceof CacheDataImpl
+                    && GuiceUtil.unproxyClass(cacheable.getClass()).getName().equals(className)) {
+                MethodCache cache = ((CacheDataImpl) cacheable.__cacheData()).getMethodCache(method);
+                if (cache != null && cache.getSettings().scope() == CacheScope.INSTANCE) {
+                    result.put(cache, Boolean.TRUE);
+                }
+            }
+        }
+        for (Entry<Object, MethodCache> e : sharedCaches.entrySet()) {
+            if (scopeClass(e.getKey()).getName().equals(className) && scopeMethod(e.getKey()).toString().equals(method)) {
+                result.put(e.getValue(), Boolean.TRUE);
+            }
+        }
+        return result.keySet();
+    }
+
+    /**
+     * The class a shared cache's statistics are reported under.
+     * @param scopeKey a key of sharedCaches
+     */
+    private static Class<?> scopeClass(Object scopeKey) {
+        return scopeKey instanceof List ? (Class<?>) ((List<?>) scopeKey).get(0) : ((Method) scopeKey).getDeclaringClass();
+    }
+
+    private static Method scopeMethod(Object scopeKey) {
+        return scopeKey instanceof List ? (Method) ((List<?>) scopeKey).get(1) : (Method) scopeKey;
+    }
+
+    private static void merge(Map<String, Map<String, CacheStatsAggregated>> result, String key, Map<String, CacheStatsAggregated> cs) {
+        if (result.get(key) == null) {
+            result.put(key, cs);
+        } else {
+            for (Entry<String,CacheStatsAggregated> e : cs.entrySet()) {
+                if (result.get(key).get(e.getKey()) != null) {
+                    result.get(key).put(e.getKey(), result.get(key).get(e.getKey()).combine(e.getValue()));
+                } else {
+                    result.get(key).put(e.getKey(), e.getValue());
+                }
+            }
+        }
+    }
     
 }
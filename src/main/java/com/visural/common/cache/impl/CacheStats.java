@@ -21,51 +21,102 @@ import java.io.Serializable;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * Data class to hold statistics about cache usage
+ * Data class to hold statistics about cache usage.
+ *
+ * The counters are updated on every hit, so are {@link StripedCounter}s to
+ * avoid contention between threads. They are updated and read through the
+ * get...Counter() methods. The get...Count() methods, which return a copy of
+ * the current value, are deprecated.
+ *
  * @author Visural
  */
 public class CacheStats implements Serializable {
     
-    private final AtomicLong hitCount;
-    private final AtomicLong missCount;
-    private final AtomicLong loadCount;
-    private final AtomicLong totalLoadTime;
-    private final AtomicLong evictionCount;
+    private final StripedCounter hitCount;
+    private final StripedCounter missCount;
+    private final StripedCounter loadCount;
+    private final StripedCounter totalLoadTime;
+    private final StripedCounter evictionCount;
+    private final StripedCounter coalescedCount;
+    private final StripedCounter coalescedTimeoutCount;
+    private final StripedCounter refreshCount;
+    private final StripedCounter totalRefreshTime;
+    private final StripedCounter expirationCount;
+    private final StripedCounter offHeapHitCount;
+    private final StripedCounter diskHitCount;
+    private final StripedCounter memoHitCount;
+    private final StripedCounter negativeHitCount;
+    private final LatencyHistogram loadLatency;
 
     public CacheStats() {
-        this(0, 1, 0, 0, 0);
+        this(0, 1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, new LatencyHistogram());
     }
 
     public CacheStats(long hitCount, long missCount, long loadCount, long totalLoadTime, long evictionCount) {
-        this.hitCount = new AtomicLong(hitCount);
-        this.missCount = new AtomicLong(missCount);
-        this.loadCount = new AtomicLong(loadCount);
-        this.totalLoadTime = new AtomicLong(totalLoadTime);
-        this.evictionCount = new AtomicLong(evictionCount);    
+        this(hitCount, missCount, loadCount, totalLoadTime, evictionCount, 0, 0, 0, 0, 0, 0, 0, 0, 0, new LatencyHistogram());
+    }
+
+    public CacheStats(long hitCount, long missCount, long loadCount, long totalLoadTime, long evictionCount,
+            long coalescedCount, long coalescedTimeoutCount, long refreshCount, long totalRefreshTime, long expirationCount, long offHeapHitCount, long diskHitCount, long memoHitCount, long negativeHitCount, LatencyHistogram loadLatency) {
+        this.hitCount = new StripedCounter(hitCount);
+        this.missCount = new StripedCounter(missCount);
+        this.loadCount = new StripedCounter(loadCount);
+        this.totalLoadTime = new StripedCounter(totalLoadTime);
+        this.evictionCount = new StripedCounter(evictionCount);    
+        this.coalescedCount = new StripedCounter(coalescedCount);
+        this.coalescedTimeoutCount = new StripedCounter(coalescedTimeoutCount);
+        this.refreshCount = new StripedCounter(refreshCount);
+        this.totalRefreshTime = new StripedCounter(totalRefreshTime);
+        this.expirationCount = new StripedCounter(expirationCount);
+        this.offHeapHitCount = new StripedCounter(offHeapHitCount);
+        this.diskHitCount = new StripedCounter(diskHitCount);
+        this.memoHitCount = new StripedCounter(memoHitCount);
+        this.negativeHitCount = new StripedCounter(negativeHitCount);
+        this.loadLatency = loadLatency;
     }
     
     public CacheStats plus(CacheStats other) {
-        return new CacheStats(hitCount.get()+other.hitCount.get(),
-                missCount.get()+other.missCount.get(),
-                loadCount.get()+other.loadCount.get(),
-                totalLoadTime.get()+other.totalLoadTime.get(),
-                evictionCount.get()+other.evictionCount.get());
+        return new CacheStats(hitCount.sum()+other.hitCount.sum(),
+                missCount.sum()+other.missCount.sum(),
+                loadCount.sum()+other.loadCount.sum(),
+                totalLoadTime.sum()+other.totalLoadTime.sum(),
+                evictionCount.sum()+other.evictionCount.sum(),
+                coalescedCount.sum()+other.coalescedCount.sum(),
+                coalescedTimeoutCount.sum()+other.coalescedTimeoutCount.sum(),
+                refreshCount.sum()+other.refreshCount.sum(),
+                totalRefreshTime.sum()+other.totalRefreshTime.sum(),
+                expirationCount.sum()+other.expirationCount.sum(),
+                offHeapHitCount.sum()+other.offHeapHitCount.sum(),
+                diskHitCount.sum()+other.diskHitCount.sum(),
+                memoHitCount.sum()+other.memoHitCount.sum(),
+                negativeHitCount.sum()+other.negativeHitCount.sum(),
+                loadLatency.plus(other.loadLatency));
     }
     
     public CacheStats minus(CacheStats other) {
-        return new CacheStats(hitCount.get()-other.hitCount.get(),
-                missCount.get()-other.missCount.get(),
-                loadCount.get()-other.loadCount.get(),
-                totalLoadTime.get()-other.totalLoadTime.get(),
-                evictionCount.get()-other.evictionCount.get());
+        return new CacheStats(hitCount.sum()-other.hitCount.sum(),
+                missCount.sum()-other.missCount.sum(),
+                loadCount.sum()-other.loadCount.sum(),
+                totalLoadTime.sum()-other.totalLoadTime.sum(),
+                evictionCount.sum()-other.evictionCount.sum(),
+                coalescedCount.sum()-other.coalescedCount.sum(),
+                coalescedTimeoutCount.sum()-other.coalescedTimeoutCount.sum(),
+                refreshCount.sum()-other.refreshCount.sum(),
+                totalRefreshTime.sum()-other.totalRefreshTime.sum(),
+                expirationCount.sum()-other.expirationCount.sum(),
+                offHeapHitCount.sum()-other.offHeapHitCount.sum(),
+                diskHitCount.sum()-other.diskHitCount.sum(),
+                memoHitCount.sum()-other.memoHitCount.sum(),
+                negativeHitCount.sum()-other.negativeHitCount.sum(),
+                loadLatency.minus(other.loadLatency));
     }
     
     public long getRequestCount() {
-        return hitCount.get()+missCount.get();
+        return hitCount.sum()+missCount.sum();
     }
     
     public double getMissRate() {
-        return (double)missCount.get()/((double)missCount.get()+(double)hitCount.get());
+        return (double)missCount.sum()/((double)missCount.sum()+(double)hitCount.sum());
     }
     
     public String getMissRatePercent() {
@@ -73,7 +124,7 @@ public class CacheStats implements Serializable {
     }
     
     public double getHitRate() {
-        return (double)hitCount.get()/((double)missCount.get()+(double)hitCount.get());
+        return (double)hitCount.sum()/((double)missCount.sum()+(double)hitCount.sum());
     }
     
     public String getHitRatePercent() {
@@ -81,26 +132,217 @@ public class CacheStats implements Serializable {
     }
     
     public long getAverageLoadTimeNanos() {
-        return totalLoadTime.get() / loadCount.get();
+        return totalLoadTime.sum() / loadCount.sum();
     }
 
+    /**
+     * @deprecated returns a copy, so changing it has no effect, use
+     * {@link #getEvictionCounter()} to update the count and its sum() to read it
+     */
+    @Deprecated
     public AtomicLong getEvictionCount() {
+        return new AtomicLong(evictionCount.sum());
+    }
+
+    public StripedCounter getEvictionCounter() {
         return evictionCount;
     }
 
+    /**
+     * Number of misses which were served the result of a load already in
+     * progress on another thread, rather than loading it again.
+     * @return
+     * @deprecated returns a copy, so changing it has no effect, use
+     * {@link #getCoalescedCounter()} to update the count and its sum() to read it
+     */
+    @Deprecated
+    public AtomicLong getCoalescedCount() {
+        return new AtomicLong(coalescedCount.sum());
+    }
+
+    public StripedCounter getCoalescedCounter() {
+        return coalescedCount;
+    }
+
+    /**
+     * Number of misses which gave up waiting for another thread's load
+     * and loaded the value themselves.
+     * @return
+     * @deprecated returns a copy, so changing it has no effect, use
+     * {@link #getCoalescedTimeoutCounter()} to update the count and its sum() to read it
+     */
+    @Deprecated
+    public AtomicLong getCoalescedTimeoutCount() {
+        return new AtomicLong(coalescedTimeoutCount.sum());
+    }
+
+    public StripedCounter getCoalescedTimeoutCounter() {
+        return coalescedTimeoutCount;
+    }
+
+    /**
+     * Hits which were served from the off heap tier.
+     * @return
+     * @deprecated returns a copy, so changing it has no effect, use
+     * {@link #getOffHeapHitCounter()} to update the count and its sum() to read it
+     */
+    @Deprecated
+    public AtomicLong getOffHeapHitCount() {
+        return new AtomicLong(offHeapHitCount.sum());
+    }
+
+    public StripedCounter getOffHeapHitCounter() {
+        return offHeapHitCount;
+    }
+
+    /**
+     * Hits which were served from the disk tier.
+     * @return
+     * @deprecated returns a copy, so changing it has no effect, use
+     * {@link #getDiskHitCounter()} to update the count and its sum() to read it
+     */
+    @Deprecated
+    public AtomicLong getDiskHitCount() {
+        return new AtomicLong(diskHitCount.sum());
+    }
+
+    public StripedCounter getDiskHitCounter() {
+        return diskHitCount;
+    }
+
+    /**
+     * Hits which were served from the request memo, see
+     * {@link com.visural.common.cache.CacheMemo}. These are not included in
+     * the hit or request counts.
+     * @return
+     * @deprecated returns a copy, so changing it has no effect, use
+     * {@link #getMemoHitCounter()} to update the count and its sum() to read it
+     */
+    @Deprecated
+    public AtomicLong getMemoHitCount() {
+        return new AtomicLong(memoHitCount.sum());
+    }
+
+    public StripedCounter getMemoHitCounter() {
+        return memoHitCount;
+    }
+
+    /**
+     * Hits which returned a cached exception, or a null result with its own
+     * time to live. These are also included in the hit count.
+     * @return
+     * @deprecated returns a copy, so changing it has no effect, use
+     * {@link #getNegativeHitCounter()} to update the count and its sum() to read it
+     */
+    @Deprecated
+    public AtomicLong getNegativeHitCount() {
+        return new AtomicLong(negativeHitCount.sum());
+    }
+
+    public StripedCounter getNegativeHitCounter() {
+        return negativeHitCount;
+    }
+
+    /**
+     * Distribution of the time taken by loads, in nanoseconds.
+     * @return
+     */
+    public LatencyHistogram getLoadLatency() {
+        return loadLatency;
+    }
+
+    /**
+     * @deprecated returns a copy, so changing it has no effect, use
+     * {@link #getExpirationCounter()} to update the count and its sum() to read it
+     */
+    @Deprecated
+    public AtomicLong getExpirationCount() {
+        return new AtomicLong(expirationCount.sum());
+    }
+
+    public StripedCounter getExpirationCounter() {
+        return expirationCount;
+    }
+
+    /**
+     * @deprecated returns a copy, so changing it has no effect, use
+     * {@link #getRefreshCounter()} to update the count and its sum() to read it
+     */
+    @Deprecated
+    public AtomicLong getRefreshCount() {
+        return new AtomicLong(refreshCount.sum());
+    }
+
+    public StripedCounter getRefreshCounter() {
+        return refreshCount;
+    }
+
+    /**
+     * @deprecated returns a copy, so changing it has no effect, use
+     * {@link #getTotalRefreshTimeCounter()} to update the count and its sum() to read it
+     */
+    @Deprecated
+    public AtomicLong getTotalRefreshTime() {
+        return new AtomicLong(totalRefreshTime.sum());
+    }
+
+    public StripedCounter getTotalRefreshTimeCounter() {
+        return totalRefreshTime;
+    }
+
+    public long getAverageRefreshTimeNanos() {
+        return refreshCount.sum() == 0 ? 0 : totalRefreshTime.sum() / refreshCount.sum();
+    }
+
+    /**
+     * @deprecated returns a copy, so changing it has no effect, use
+     * {@link #getHitCounter()} to update the count and its sum() to read it
+     */
+    @Deprecated
     public AtomicLong getHitCount() {
+        return new AtomicLong(hitCount.sum());
+    }
+
+    public StripedCounter getHitCounter() {
         return hitCount;
     }
 
+    /**
+     * @deprecated returns a copy, so changing it has no effect, use
+     * {@link #getLoadCounter()} to update the count and its sum() to read it
+     */
+    @Deprecated
     public AtomicLong getLoadCount() {
+        return new AtomicLong(loadCount.sum());
+    }
+
+    public StripedCounter getLoadCounter() {
         return loadCount;
     }
 
+    /**
+     * @deprecated returns a copy, so changing it has no effect, use
+     * {@link #getMissCounter()} to update the count and its sum() to read it
+     */
+    @Deprecated
     public AtomicLong getMissCount() {
+        return new AtomicLong(missCount.sum());
+    }
+
+    public StripedCounter getMissCounter() {
         return missCount;
     }
 
+    /**
+     * @deprecated returns a copy, so changing it has no effect, use
+     * {@link #getTotalLoadTimeCounter()} to update the count and its sum() to read it
+     */
+    @Deprecated
     public AtomicLong getTotalLoadTime() {
+        return new AtomicLong(totalLoadTime.sum());
+    }
+
+    public StripedCounter getTotalLoadTimeCounter() {
         return totalLoadTime;
     }
 
@@ -109,11 +351,20 @@ public class CacheStats implements Serializable {
         StringBuilder sb = new StringBuilder();
         sb.append("hitCount = ").append(hitCount).append('\n');
         sb.append("missCount = ").append(missCount).append('\n');
-        sb.append("requestCount = ").append(hitCount.get()+missCount.get()).append('\n');
+        sb.append("requestCount = ").append(hitCount.sum()+missCount.sum()).append('\n');
         sb.append("loadCount = ").append(loadCount).append('\n');
         sb.append("totalLoadTime = ").append(totalLoadTime).append('\n');
         sb.append("averageLoadTime = ").append(getAverageLoadTimeNanos()).append('\n');
         sb.append("evictionCount = ").append(evictionCount).append('\n');
+        sb.append("coalescedCount = ").append(coalescedCount).append('\n');
+        sb.append("coalescedTimeoutCount = ").append(coalescedTimeoutCount).append('\n');
+        sb.append("refreshCount = ").append(refreshCount).append('\n');
+        sb.append("totalRefreshTime = ").append(totalRefreshTime).append('\n');
+        sb.append("expirationCount = ").append(expirationCount).append('\n');
+        sb.append("offHeapHitCount = ").append(offHeapHitCount).append('\n');
+        sb.append("diskHitCount = ").append(diskHitCount).append('\n');
+        sb.append("memoHitCount = ").append(memoHitCount).append('\n');
+        sb.append("negativeHitCount = ").append(negativeHitCount).append('\n');
         return sb.toString();
     }
         
@@ -26,7 +26,11 @@ public class CacheStatsAggregated {
     private CacheStatsSnapshot combinedStats;
 
     public CacheStatsAggregated(Cache settings, CacheStatsSnapshot stats) {
-        this.settings = new CacheSettings(settings);
+        this(new CacheSettings(settings), stats);
+    }
+
+    public CacheStatsAggregated(CacheSettings settings, CacheStatsSnapshot stats) {
+        this.settings = settings;
         this.combinedStats = stats;
     }
     
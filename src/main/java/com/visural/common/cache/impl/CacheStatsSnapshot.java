@@ -31,47 +31,157 @@ public class CacheStatsSnapshot implements Serializable {
     private final AtomicLong loadCount;
     private final AtomicLong totalLoadTime;
     private final AtomicLong evictionCount;
+    private final AtomicLong coalescedCount;
+    private final AtomicLong coalescedTimeoutCount;
+    private final AtomicLong refreshCount;
+    private final AtomicLong totalRefreshTime;
+    private final AtomicLong expirationCount;
+    private final AtomicLong offHeapHitCount;
+    private final AtomicLong diskHitCount;
+    private final AtomicLong memoHitCount;
+    private final AtomicLong negativeHitCount;
+    private final LatencyHistogram loadLatency;
     private final int entries;
-    private final int estimatedMemoryUsage;
+    private final long totalWeight;
+    private final long offHeapBytes;
+    private final long diskBytes;
+    private final long estimatedMemoryUsage;
+    private final long estimatedMemoryError;
+    private final HitRatioCurve hitRatioCurve;
        
     public CacheStatsSnapshot(CacheStats stats, int entries, int estimatedMemoryUsage) {
-        this(stats.getHitCount().get(), stats.getMissCount().get(), stats.getLoadCount().get(), stats.getTotalLoadTime().get(), stats.getEvictionCount().get(), entries, estimatedMemoryUsage);        
+        this(new Builder(stats).entries(entries).estimatedMemoryUsage(estimatedMemoryUsage));
     }
 
     public CacheStatsSnapshot(long hitCount, long missCount, long loadCount, long totalLoadTime, long evictionCount, int entries, int estimatedMemoryUsage) {
-        this.hitCount = new AtomicLong(hitCount);
-        this.missCount = new AtomicLong(missCount);
-        this.loadCount = new AtomicLong(loadCount);
-        this.totalLoadTime = new AtomicLong(totalLoadTime);
-        this.evictionCount = new AtomicLong(evictionCount);    
-        this.entries = entries;
-        this.estimatedMemoryUsage = estimatedMemoryUsage;
+        this(new Builder().hitCount(hitCount).missCount(missCount).loadCount(loadCount).totalLoadTime(totalLoadTime)
+                .evictionCount(evictionCount).entries(entries).estimatedMemoryUsage(estimatedMemoryUsage));
+    }
+
+    private CacheStatsSnapshot(Builder b) {
+        this.hitCount = new AtomicLong(b.hitCount);
+        this.missCount = new AtomicLong(b.missCount);
+        this.loadCount = new AtomicLong(b.loadCount);
+        this.totalLoadTime = new AtomicLong(b.totalLoadTime);
+        this.evictionCount = new AtomicLong(b.evictionCount);    
+        this.coalescedCount = new AtomicLong(b.coalescedCount);
+        this.coalescedTimeoutCount = new AtomicLong(b.coalescedTimeoutCount);
+        this.refreshCount = new AtomicLong(b.refreshCount);
+        this.totalRefreshTime = new AtomicLong(b.totalRefreshTime);
+        this.expirationCount = new AtomicLong(b.expirationCount);
+        this.offHeapHitCount = new AtomicLong(b.offHeapHitCount);
+        this.diskHitCount = new AtomicLong(b.diskHitCount);
+        this.memoHitCount = new AtomicLong(b.memoHitCount);
+        this.negativeHitCount = new AtomicLong(b.negativeHitCount);
+        this.loadLatency = b.loadLatency;
+        this.entries = b.entries;
+        this.totalWeight = b.totalWeight;
+        this.offHeapBytes = b.offHeapBytes;
+        this.diskBytes = b.diskBytes;
+        this.estimatedMemoryUsage = b.estimatedMemoryUsage;
+        this.estimatedMemoryError = b.estimatedMemoryError;
+        this.hitRatioCurve = b.hitRatioCurve;
     }
     
     public CacheStatsSnapshot plus(CacheStatsSnapshot other) {
-        return new CacheStatsSnapshot(hitCount.get()+other.hitCount.get(),
-                missCount.get()+other.missCount.get(),
-                loadCount.get()+other.loadCount.get(),
-                totalLoadTime.get()+other.totalLoadTime.get(),
-                evictionCount.get()+other.evictionCount.get(),
-                entries+other.entries,
-                estimatedMemoryUsage+other.estimatedMemoryUsage);
+        return new Builder()
+                .hitCount(hitCount.get()+other.hitCount.get())
+                .missCount(missCount.get()+other.missCount.get())
+                .loadCount(loadCount.get()+other.loadCount.get())
+                .totalLoadTime(totalLoadTime.get()+other.totalLoadTime.get())
+                .evictionCount(evictionCount.get()+other.evictionCount.get())
+                .coalescedCount(coalescedCount.get()+other.coalescedCount.get())
+                .coalescedTimeoutCount(coalescedTimeoutCount.get()+other.coalescedTimeoutCount.get())
+                .refreshCount(refreshCount.get()+other.refreshCount.get())
+                .totalRefreshTime(totalRefreshTime.get()+other.totalRefreshTime.get())
+                .expirationCount(expirationCount.get()+other.expirationCount.get())
+                .offHeapHitCount(offHeapHitCount.get()+other.offHeapHitCount.get())
+                .diskHitCount(diskHitCount.get()+other.diskHitCount.get())
+                .memoHitCount(memoHitCount.get()+other.memoHitCount.get())
+                .negativeHitCount(negativeHitCount.get()+other.negativeHitCount.get())
+                .loadLatency(loadLatency.plus(other.loadLatency))
+                .entries(entries+other.entries)
+                .totalWeight(totalWeight+other.totalWeight)
+                .offHeapBytes(offHeapBytes+other.offHeapBytes)
+                .diskBytes(diskBytes+other.diskBytes)
+                .estimatedMemoryUsage(estimatedMemoryUsage+other.estimatedMemoryUsage)
+                .estimatedMemoryError(combinedError(estimatedMemoryError, other.estimatedMemoryError))
+                .hitRatioCurve(hitRatioCurve.plus(other.hitRatioCurve))
+                .build();
     }
     
     public CacheStatsSnapshot minus(CacheStatsSnapshot other) {
-        return new CacheStatsSnapshot(hitCount.get()-other.hitCount.get(),
-                missCount.get()-other.missCount.get(),
-                loadCount.get()-other.loadCount.get(),
-                totalLoadTime.get()-other.totalLoadTime.get(),
-                evictionCount.get()-other.evictionCount.get(),
-                entries-other.entries,
-                estimatedMemoryUsage-other.estimatedMemoryUsage);
+        return new Builder()
+                .hitCount(hitCount.get()-other.hitCount.get())
+                .missCount(missCount.get()-other.missCount.get())
+                .loadCount(loadCount.get()-other.loadCount.get())
+                .totalLoadTime(totalLoadTime.get()-other.totalLoadTime.get())
+                .evictionCount(evictionCount.get()-other.evictionCount.get())
+                .coalescedCount(coalescedCount.get()-other.coalescedCount.get())
+                .coalescedTimeoutCount(coalescedTimeoutCount.get()-other.coalescedTimeoutCount.get())
+                .refreshCount(refreshCount.get()-other.refreshCount.get())
+                .totalRefreshTime(totalRefreshTime.get()-other.totalRefreshTime.get())
+                .expirationCount(expirationCount.get()-other.expirationCount.get())
+                .offHeapHitCount(offHeapHitCount.get()-other.offHeapHitCount.get())
+                .diskHitCount(diskHitCount.get()-other.diskHitCount.get())
+                .memoHitCount(memoHitCount.get()-other.memoHitCount.get())
+                .negativeHitCount(negativeHitCount.get()-other.negativeHitCount.get())
+                .loadLatency(loadLatency.minus(other.loadLatency))
+                .entries(entries-other.entries)
+                .totalWeight(totalWeight-other.totalWeight)
+                .offHeapBytes(offHeapBytes-other.offHeapBytes)
+                .diskBytes(diskBytes-other.diskBytes)
+                .estimatedMemoryUsage(estimatedMemoryUsage-other.estimatedMemoryUsage)
+                .estimatedMemoryError(combinedError(estimatedMemoryError, other.estimatedMemoryError))
+                .hitRatioCurve(hitRatioCurve.minus(other.hitRatioCurve))
+                .build();
+    }
+
+    /**
+     * The error of the sum or difference of two independent estimates, which
+     * is less than the sum of their errors, as they are unlikely to both be
+     * out by as much in the same direction.
+     */
+    private static long combinedError(long a, long b) {
+        return Math.round(Math.sqrt((double) a * a + (double) b * b));
     }
 
     public int getEntries() {
         return entries;
     }
     
+    /**
+     * Total weight of the cached results, for caches with a maxWeight.
+     * @return
+     */
+    public long getTotalWeight() {
+        return totalWeight;
+    }
+    
+    /**
+     * Bytes of serialized results held in the off heap tier.
+     * @return
+     */
+    public long getOffHeapBytes() {
+        return offHeapBytes;
+    }
+
+    public String getOffHeapMB() {
+        return StringUtil.formatDecimal((double)offHeapBytes/(1024d*1024d), 2)+" MB";
+    }
+    
+    /**
+     * Bytes of serialized results held in the disk tier.
+     * @return
+     */
+    public long getDiskBytes() {
+        return diskBytes;
+    }
+
+    public String getDiskMB() {
+        return StringUtil.formatDecimal((double)diskBytes/(1024d*1024d), 2)+" MB";
+    }
+    
     public long getRequestCount() {
         return hitCount.get()+missCount.get();
     }
@@ -96,10 +206,86 @@ public class CacheStatsSnapshot implements Serializable {
         return totalLoadTime.get() / loadCount.get();
     }
 
+    /**
+     * Distribution of the time taken by loads, in nanoseconds.
+     * @return
+     */
+    public LatencyHistogram getLoadLatency() {
+        return loadLatency;
+    }
+
+    /**
+     * @param percentile from 0 to 100, e.g. 99.9
+     * @return the load time in nanoseconds which the given percentage of loads
+     * took no longer than
+     */
+    public long getLoadTimePercentileNanos(double percentile) {
+        return loadLatency.getValueAtPercentile(percentile);
+    }
+
     public AtomicLong getEvictionCount() {
         return evictionCount;
     }
 
+    public AtomicLong getCoalescedCount() {
+        return coalescedCount;
+    }
+
+    public AtomicLong getCoalescedTimeoutCount() {
+        return coalescedTimeoutCount;
+    }
+
+    /**
+     * Hits which were served from the off heap tier.
+     * @return
+     */
+    public AtomicLong getOffHeapHitCount() {
+        return offHeapHitCount;
+    }
+
+    /**
+     * Hits which were served from the disk tier.
+     * @return
+     */
+    public AtomicLong getDiskHitCount() {
+        return diskHitCount;
+    }
+
+    /**
+     * Hits which were served from the request memo, see
+     * {@link com.visural.common.cache.CacheMemo}. These are not included in
+     * the hit or request counts.
+     * @return
+     */
+    public AtomicLong getMemoHitCount() {
+        return memoHitCount;
+    }
+
+    /**
+     * Hits which returned a cached exception, or a null result with its own
+     * time to live. These are also included in the hit count.
+     * @return
+     */
+    public AtomicLong getNegativeHitCount() {
+        return negativeHitCount;
+    }
+
+    public AtomicLong getExpirationCount() {
+        return expirationCount;
+    }
+
+    public AtomicLong getRefreshCount() {
+        return refreshCount;
+    }
+
+    public AtomicLong getTotalRefreshTime() {
+        return totalRefreshTime;
+    }
+
+    public long getAverageRefreshTimeNanos() {
+        return refreshCount.get() == 0 ? 0 : totalRefreshTime.get() / refreshCount.get();
+    }
+
     public AtomicLong getHitCount() {
         return hitCount;
     }
@@ -116,10 +302,32 @@ public class CacheStatsSnapshot implements Serializable {
         return totalLoadTime;
     }
 
-    public int getEstimatedMemoryUsageBytes() {
+    public long getEstimatedMemoryUsageBytes() {
         return estimatedMemoryUsage;
     }
 
+    /**
+     * The actual memory usage is within this many bytes of the estimate,
+     * with 95% confidence.
+     * @return
+     */
+    public long getEstimatedMemoryErrorBytes() {
+        return estimatedMemoryError;
+    }
+
+    public String getEstimatedMemoryErrorMB() {
+        return StringUtil.formatDecimal((double)estimatedMemoryError/(1024d*1024d), 2)+" MB";
+    }
+
+    /**
+     * Estimated hit ratio this cache would have at other sizes, from a sample
+     * of its keys.
+     * @return
+     */
+    public HitRatioCurve getHitRatioCurve() {
+        return hitRatioCurve;
+    }
+
     public String getEstimatedMemoryUsageMB() {
         return StringUtil.formatDecimal((double)estimatedMemoryUsage/(1024d*1024d), 2)+" MB";
     }
@@ -133,9 +341,192 @@ public class CacheStatsSnapshot implements Serializable {
         sb.append("loadCount = ").append(loadCount).append('\n');
         sb.append("totalLoadTime = ").append(totalLoadTime).append('\n');
         sb.append("averageLoadTime = ").append(getAverageLoadTimeNanos()).append('\n');
+        sb.append("loadTimeP50 = ").append(getLoadTimePercentileNanos(50)).append('\n');
+        sb.append("loadTimeP90 = ").append(getLoadTimePercentileNanos(90)).append('\n');
+        sb.append("loadTimeP99 = ").append(getLoadTimePercentileNanos(99)).append('\n');
+        sb.append("loadTimeP999 = ").append(getLoadTimePercentileNanos(99.9)).append('\n');
         sb.append("evictionCount = ").append(evictionCount).append('\n');
+        sb.append("coalescedCount = ").append(coalescedCount).append('\n');
+        sb.append("coalescedTimeoutCount = ").append(coalescedTimeoutCount).append('\n');
+        sb.append("refreshCount = ").append(refreshCount).append('\n');
+        sb.append("totalRefreshTime = ").append(totalRefreshTime).append('\n');
+        sb.append("expirationCount = ").append(expirationCount).append('\n');
+        sb.append("offHeapHitCount = ").append(offHeapHitCount).append('\n');
+        sb.append("diskHitCount = ").append(diskHitCount).append('\n');
+        sb.append("memoHitCount = ").append(memoHitCount).append('\n');
+        sb.append("negativeHitCount = ").append(negativeHitCount).append('\n');
+        sb.append("totalWeight = ").append(totalWeight).append('\n');
+        sb.append("offHeapBytes = ").append(offHeapBytes).append('\n');
+        sb.append("diskBytes = ").append(diskBytes).append('\n');
         sb.append("estimatedMemoryUsage = ").append(estimatedMemoryUsage).append("\n");
+        sb.append("estimatedMemoryError = ").append(estimatedMemoryError).append("\n");
         return sb.toString();
     }
-        
+
+    /**
+     * Builds a snapshot. Anything not set is zero, or empty.
+     */
+    public static class Builder {
+
+        private long hitCount;
+        private long missCount;
+        private long loadCount;
+        private long totalLoadTime;
+        private long evictionCount;
+        private long coalescedCount;
+        private long coalescedTimeoutCount;
+        private long refreshCount;
+        private long totalRefreshTime;
+        private long expirationCount;
+        private long offHeapHitCount;
+        private long diskHitCount;
+        private long memoHitCount;
+        private long negativeHitCount;
+        private LatencyHistogram loadLatency = new LatencyHistogram();
+        private int entries;
+        private long totalWeight;
+        private long offHeapBytes;
+        private long diskBytes;
+        private long estimatedMemoryUsage;
+        private long estimatedMemoryError;
+        private HitRatioCurve hitRatioCurve = new HitRatioCurve();
+
+        public Builder() {
+        }
+
+        /**
+         * @param stats the counters to start from, read as they are now
+         */
+        public Builder(CacheStats stats) {
+            hitCount = stats.getHitCounter().sum();
+            missCount = stats.getMissCounter().sum();
+            loadCount = stats.getLoadCounter().sum();
+            totalLoadTime = stats.getTotalLoadTimeCounter().sum();
+            evictionCount = stats.getEvictionCounter().sum();
+            coalescedCount = stats.getCoalescedCounter().sum();
+            coalescedTimeoutCount = stats.getCoalescedTimeoutCounter().sum();
+            refreshCount = stats.getRefreshCounter().sum();
+            totalRefreshTime = stats.getTotalRefreshTimeCounter().sum();
+            expirationCount = stats.getExpirationCounter().sum();
+            offHeapHitCount = stats.getOffHeapHitCounter().sum();
+            diskHitCount = stats.getDiskHitCounter().sum();
+            memoHitCount = stats.getMemoHitCounter().sum();
+            negativeHitCount = stats.getNegativeHitCounter().sum();
+            loadLatency = stats.getLoadLatency().copy();
+        }
+
+        public Builder hitCount(long hitCount) {
+            this.hitCount = hitCount;
+            return this;
+        }
+
+        public Builder missCount(long missCount) {
+            this.missCount = missCount;
+            return this;
+        }
+
+        public Builder loadCount(long loadCount) {
+            this.loadCount = loadCount;
+            return this;
+        }
+
+        public Builder totalLoadTime(long totalLoadTime) {
+            this.totalLoadTime = totalLoadTime;
+            return this;
+        }
+
+        public Builder evictionCount(long evictionCount) {
+            this.evictionCount = evictionCount;
+            return this;
+        }
+
+        public Builder coalescedCount(long coalescedCount) {
+            this.coalescedCount = coalescedCount;
+            return this;
+        }
+
+        public Builder coalescedTimeoutCount(long coalescedTimeoutCount) {
+            this.coalescedTimeoutCount = coalescedTimeoutCount;
+            return this;
+        }
+
+        public Builder refreshCount(long refreshCount) {
+            this.refreshCount = refreshCount;
+            return this;
+        }
+
+        public Builder totalRefreshTime(long totalRefreshTime) {
+            this.totalRefreshTime = totalRefreshTime;
+            return this;
+        }
+
+        public Builder expirationCount(long expirationCount) {
+            this.expirationCount = expirationCount;
+            return this;
+        }
+
+        public Builder offHeapHitCount(long offHeapHitCount) {
+            this.offHeapHitCount = offHeapHitCount;
+            return this;
+        }
+
+        public Builder diskHitCount(long diskHitCount) {
+            this.diskHitCount = diskHitCount;
+            return this;
+        }
+
+        public Builder memoHitCount(long memoHitCount) {
+            this.memoHitCount = memoHitCount;
+            return this;
+        }
+
+        public Builder negativeHitCount(long negativeHitCount) {
+            this.negativeHitCount = negativeHitCount;
+            return this;
+        }
+
+        public Builder loadLatency(LatencyHistogram loadLatency) {
+            this.loadLatency = loadLatency;
+            return this;
+        }
+
+        public Builder entries(int entries) {
+            this.entries = entries;
+            return this;
+        }
+
+        public Builder totalWeight(long totalWeight) {
+            this.totalWeight = totalWeight;
+            return this;
+        }
+
+        public Builder offHeapBytes(long offHeapBytes) {
+            this.offHeapBytes = offHeapBytes;
+            return this;
+        }
+
+        public Builder diskBytes(long diskBytes) {
+            this.diskBytes = diskBytes;
+            return this;
+        }
+
+        public Builder estimatedMemoryUsage(long estimatedMemoryUsage) {
+            this.estimatedMemoryUsage = estimatedMemoryUsage;
+            return this;
+        }
+
+        public Builder estimatedMemoryError(long estimatedMemoryError) {
+            this.estimatedMemoryError = estimatedMemoryError;
+            return this;
+        }
+
+        public Builder hitRatioCurve(HitRatioCurve hitRatioCurve) {
+            this.hitRatioCurve = hitRatioCurve;
+            return this;
+        }
+
+        public CacheStatsSnapshot build() {
+            return new CacheStatsSnapshot(this);
+        }
+    }
 }
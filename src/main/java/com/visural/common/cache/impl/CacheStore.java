@@ -0,0 +1,357 @@
+/*
+ *  Copyright 2026 the visural-common contributors.
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+package com.visural.common.cache.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded, concurrent storage for {@link CacheEntry} values.
+ *
+ * Reads go straight to a {@link ConcurrentHashMap} and never block. Hits are
+ * recorded in a {@link ReadBuffer} and replayed against the
+ * {@link EvictionPolicy} in batches by whichever thread next acquires the
+ * eviction lock. Writes update the map directly and then take the eviction
+ * lock to maintain the policy and evict down to the maximum size, and
+ * optionally down to a maximum total weight.
+ *
+ * If entries have a time to live, a {@link TimerWheel} tracks when they
+ * expire. Expired entries are removed on writes and by
+ * {@link #cleanUp()}, rather than waiting until they are requested again.
+ */
+public class CacheStore {
+
+    private final ConcurrentMap<Object, CacheEntry> map;
+    private final EvictionPolicy policy;
+    private final ReadBuffer<CacheEntry> readBuffer;
+    private final ReadBuffer.Handler<CacheEntry> replayAccess = new ReadBuffer.Handler<CacheEntry>() {
+        public void onRead(CacheEntry e) {
+            if (e.isLive()) {
+                policy.onAccess(e);
+            }
+        }
+    };
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final CacheStats stats;
+    private volatile int maxEntries;
+    private final long maxWeight;
+    private final TimerWheel wheel;
+    private volatile long totalWeight;
+    private EvictionListener evictionListener;
+
+    public CacheStore(int maxEntries, EvictionPolicy policy, CacheStats stats) {
+        this(maxEntries, 0, policy, stats, false);
+    }
+
+    /**
+     * @param maxEntries
+     * @param maxWeight maximum total weight of entries, or 0 for no limit
+     * @param policy
+     * @param stats
+     * @param expiring whether entries will have a time to live
+     */
+    public CacheStore(int maxEntries, long maxWeight, EvictionPolicy policy, CacheStats stats, boolean expiring) {
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+        this.wheel = expiring ? new TimerWheel(CacheTimer.currentTimeMillis()) : null;
+        this.policy = policy;
+        this.stats = stats;
+        this.map = new ConcurrentHashMap<Object, CacheEntry>(Math.min(maxEntries, 16));
+        this.readBuffer = policy.isAccessOrdered() ? new ReadBuffer<CacheEntry>() : null;
+    }
+
+    /**
+     * Set a listener for entries evicted due to capacity. Must be set before
+     * the store is used.
+     * @param evictionListener 
+     */
+    public void setEvictionListener(EvictionListener evictionListener) {
+        this.evictionListener = evictionListener;
+    }
+
+    public CacheEntry get(Object key) {
+        return map.get(key);
+    }
+
+    /**
+     * Tell the eviction policy that an entry returned by {@link #get(Object)}
+     * has been used. Does not block.
+     * @param e
+     */
+    public void recordAccess(CacheEntry e) {
+        if (readBuffer != null && readBuffer.record(e)) {
+            tryDrain();
+        }
+    }
+
+    public void put(Object key, CacheEntry e) {
+        inserted(map.put(key, e), e);
+    }
+
+    /**
+     * Put the entry, unless the key already has an entry which has not
+     * expired.
+     * @param key
+     * @param e
+     * @return the existing entry, or null if the given entry was put
+     */
+    public CacheEntry putIfAbsent(Object key, CacheEntry e) {
+        while (true) {
+            CacheEntry old = map.putIfAbsent(key, e);
+            if (old == null) {
+                inserted(null, e);
+                return null;
+            }
+            if (!old.isExpired()) {
+                return old;
+            }
+            if (map.replace(key, old, e)) {
+                inserted(old, e);
+                return null;
+            }
+        }
+    }
+
+    private void inserted(CacheEntry old, CacheEntry e) {
+        List<CacheEntry> evicted;
+        evictionLock.lock();
+        try {
+            drainReadBuffer();
+            if (old != null) {
+                old.retire();
+                policy.onRemove(old);
+                discard(old);
+            }
+            // a concurrent put for the same key may already have replaced us
+            if (e.isLive()) {
+                policy.onInsert(e);
+                e.weighed = true;
+                totalWeight += e.getWeight();
+                if (wheel != null && e.getTtl() > 0) {
+                    wheel.schedule(e);
+                }
+            }
+            expire();
+            evicted = evict();
+        } finally {
+            evictionLock.unlock();
+        }
+        if (evicted != null) {
+            for (CacheEntry victim : evicted) {
+                evictionListener.onEviction(victim);
+            }
+        }
+    }
+
+    /**
+     * Remove the entry for the given key.
+     * @param key
+     */
+    public void remove(Object key) {
+        CacheEntry old = map.remove(key);
+        if (old != null) {
+            removed(old);
+        }
+    }
+
+    /**
+     * Remove the entry for the given key, but only if it is currently mapped
+     * to the given entry.
+     * @param key
+     * @param e
+     * @return whether the entry was removed
+     */
+    public boolean remove(Object key, CacheEntry e) {
+        if (map.remove(key, e)) {
+            removed(e);
+            return true;
+        }
+        return false;
+    }
+
+    public void clear() {
+        evictionLock.lock();
+        try {
+            for (CacheEntry e : map.values()) {
+                if (map.remove(e.getKey(), e)) {
+                    e.retire();
+                    e.weighed = false;
+                }
+            }
+            policy.clear();
+            if (wheel != null) {
+                wheel.clear();
+            }
+            totalWeight = 0;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Remove any expired entries. Does not block if another thread is
+     * updating the store.
+     */
+    public void cleanUp() {
+        if (evictionLock.tryLock()) {
+            try {
+                drainReadBuffer();
+                expire();
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * Change the capacity of the store, evicting entries straight away if it
+     * has shrunk.
+     * @param maxEntries
+     */
+    public void setMaxEntries(int maxEntries) {
+        List<CacheEntry> evicted;
+        evictionLock.lock();
+        try {
+            this.maxEntries = maxEntries;
+            drainReadBuffer();
+            policy.resize(maxEntries);
+            evicted = evict();
+        } finally {
+            evictionLock.unlock();
+        }
+        if (evicted != null) {
+            for (CacheEntry victim : evicted) {
+                evictionListener.onEviction(victim);
+            }
+        }
+    }
+
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    /**
+     * Total weight of the entries in the store, always 0 unless a
+     * maximum weight is set.
+     * @return
+     */
+    public long getTotalWeight() {
+        return totalWeight;
+    }
+
+    /**
+     * Read only view of the entries, e.g. for memory estimation.
+     * @return
+     */
+    public Map<Object, CacheEntry> asMap() {
+        return Collections.unmodifiableMap(map);
+    }
+
+    private void removed(CacheEntry e) {
+        evictionLock.lock();
+        try {
+            e.retire();
+            policy.onRemove(e);
+            discard(e);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private void tryDrain() {
+        // never wait here, a later read or write will drain the buffer
+        if (evictionLock.tryLock()) {
+            try {
+                drainReadBuffer();
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    private void drainReadBuffer() {
+        if (readBuffer != null) {
+            readBuffer.drainTo(replayAccess);
+        }
+    }
+
+    /**
+     * Release anything held for an entry leaving the store. Safe to call more
+     * than once for the same entry.
+     */
+    private void discard(CacheEntry e) {
+        if (e.weighed) {
+            e.weighed = false;
+            totalWeight -= e.getWeight();
+        }
+        if (wheel != null) {
+            wheel.remove(e);
+        }
+    }
+
+    private void expire() {
+        if (wheel == null) {
+            return;
+        }
+        for (CacheEntry e : wheel.advance(CacheTimer.currentTimeMillis())) {
+            e.retire();
+            policy.onRemove(e);
+            discard(e);
+            if (map.remove(e.getKey(), e)) {
+                stats.getExpirationCounter().increment();
+            }
+        }
+    }
+
+    /**
+     * @return the evicted entries if there is a listener for them, else null
+     */
+    private List<CacheEntry> evict() {
+        List<CacheEntry> evicted = null;
+        while (map.size() > maxEntries || (maxWeight > 0 && totalWeight > maxWeight)) {
+            CacheEntry victim = policy.evict();
+            if (victim == null) {
+                break;
+            }
+            victim.retire();
+            discard(victim);
+            if (map.remove(victim.getKey(), victim)) {
+                stats.getEvictionCounter().increment();
+                if (evictionListener != null) {
+                    if (evicted == null) {
+                        evicted = new ArrayList<CacheEntry>();
+                    }
+                    evicted.add(victim);
+                }
+            }
+        }
+        return evicted;
+    }
+}
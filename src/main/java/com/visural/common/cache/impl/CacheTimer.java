@@ -0,0 +1,115 @@
+/*
+ *  Copyright 2026 the visural-common contributors.
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+package com.visural.common.cache.impl;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Background timekeeping shared by all caches.
+ *
+ * Provides a coarse clock, updated every 10ms, which is much cheaper to read
+ * on every cache hit than {@link System#currentTimeMillis()}. Also
+ * periodically expires entries from registered {@link CacheStore}s, so that
+ * caches with a time to live don't hold on to expired entries until they are
+ * requested again or evicted.
+ *
+ * The clock and expiry run on separate daemon threads, so a slow expiry
+ * never holds up the clock. They are started when the first store is
+ * registered, until then {@link #currentTimeMillis()} reads the system clock.
+ * Stores are only weakly referenced.
+ */
+public final class CacheTimer {
+
+    private static final Logger logger = Logger.getLogger(CacheTimer.class.getName());
+    private static final long CLOCK_RESOLUTION = 10;
+    private static final long EXPIRY_INTERVAL = 1000;
+
+    // 0 until started
+    private static volatile long now = 0;
+    private static final Queue<WeakReference<CacheStore>> stores = new ConcurrentLinkedQueue<WeakReference<CacheStore>>();
+    private static ScheduledExecutorService clock = null;
+    private static ScheduledExecutorService expiry = null;
+
+    private CacheTimer() {
+    }
+
+    /**
+     * The current time in milliseconds, accurate to about 10ms.
+     * @return
+     */
+    public static long currentTimeMillis() {
+        long time = now;
+        return time != 0 ? time : System.currentTimeMillis();
+    }
+
+    /**
+     * Periodically expire entries from the given store for as long as it is
+     * reachable.
+     * @param store
+     */
+    public static void register(CacheStore store) {
+        stores.add(new WeakReference<CacheStore>(store));
+        start();
+    }
+
+    private static synchronized void start() {
+        if (clock != null) {
+            return;
+        }
+        now = System.currentTimeMillis();
+        clock = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("cache-clock").build());
+        clock.scheduleAtFixedRate(new Runnable() {
+            public void run() {
+                now = System.currentTimeMillis();
+            }
+        }, CLOCK_RESOLUTION, CLOCK_RESOLUTION, TimeUnit.MILLISECONDS);
+        expiry = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("cache-expiry").build());
+        expiry.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                expireAll();
+            }
+        }, EXPIRY_INTERVAL, EXPIRY_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    private static void expireAll() {
+        Iterator<WeakReference<CacheStore>> i = stores.iterator();
+        while (i.hasNext()) {
+            CacheStore store = i.next().get();
+            if (store == null) {
+                i.remove();
+            } else {
+                try {
+                    store.cleanUp();
+                } catch (Throwable t) {
+                    // never let one cache stop expiry of the others
+                    logger.log(Level.WARNING, "Cache expiry failed", t);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,502 @@
+/*
+ *  Copyright 2026 the visural-common contributors.
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+package com.visural.common.cache.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Serialized cache values persisted in a directory of memory mapped segment
+ * files, which survive restarts of the JVM.
+ *
+ * Each segment is an append-only log of records:
+ * <pre>
+ * int length, int crc32, int keyLength, key (UTF-8), long created, int ttl,
+ * long timeCost, int dataLength (-1 for a removal), data
+ * </pre>
+ * where length and crc32 cover everything after them. The length is written
+ * last, so a record torn by a crash is simply ignored. An in memory index of
+ * the latest record for each key is rebuilt by reading the segments in order
+ * when the store is opened.
+ *
+ * When the current segment is full a new one is started, and once the
+ * capacity is reached the oldest segment is deleted, evicting whatever it
+ * still holds. Values are copied out of the mapped segment when read, so a
+ * segment can be unmapped as soon as it is deleted, rather than holding its
+ * disk space until the mapping is garbage collected.
+ *
+ * Only one store may be open for a directory at a time, which is enforced
+ * within the JVM by {@link #open(File, long)} and between processes with a
+ * file lock. Stores still open when the JVM exits are closed by a shutdown
+ * hook.
+ */
+public class DiskStore {
+
+    private static final Logger logger = Logger.getLogger(DiskStore.class.getName());
+    private static final int MAX_SEGMENT_SIZE = 64 * 1024 * 1024;
+    private static final int MIN_SEGMENTS = 2;
+    private static final int HEADER = 8;
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String LOCK_FILE = "lock";
+    private static final Map<File, DiskStore> stores = new HashMap<File, DiskStore>();
+    private static boolean shutdownHookAdded = false;
+
+    private final File directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final LinkedList<Segment> segments = new LinkedList<Segment>();
+    private final Map<String, Location> index = new HashMap<String, Location>();
+    private final RandomAccessFile lockFile;
+    private final FileLock lock;
+    private long usedBytes = 0;
+    private long evictionCount = 0;
+    private boolean closed = false;
+
+    /**
+     * Open the store in the given directory, creating it if needed. Stores
+     * are shared, so opening the same directory twice returns the same store.
+     * @param directory
+     * @param capacity maximum bytes of segment files
+     * @return
+     * @throws IOException if the directory can't be used, e.g. because
+     * another process has it open
+     */
+    public static DiskStore open(File directory, long capacity) throws IOException {
+        File dir = directory.getCanonicalFile();
+        synchronized (stores) {
+            DiskStore store = stores.get(dir);
+            if (store == null) {
+                store = new DiskStore(dir, capacity);
+                stores.put(dir, store);
+                addShutdownHook();
+            }
+            return store;
+        }
+    }
+
+    private static void addShutdownHook() {
+        if (shutdownHookAdded) {
+            return;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread("disk-store-close") {
+            @Override
+            public void run() {
+                List<DiskStore> open;
+                synchronized (stores) {
+                    open = new ArrayList<DiskStore>(stores.values());
+                }
+                for (DiskStore store : open) {
+                    try {
+                        store.close();
+                    } catch (IOException ex) {
+                        logger.log(Level.WARNING, "Unable to close cache directory " + store.directory, ex);
+                    }
+                }
+            }
+        });
+        shutdownHookAdded = true;
+    }
+
+    private DiskStore(File directory, long capacity) throws IOException {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be > 0");
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create " + directory);
+        }
+        this.directory = directory;
+        segmentSize = (int) Math.min(MAX_SEGMENT_SIZE, Math.max(1, capacity / MIN_SEGMENTS));
+        maxSegments = (int) Math.max(MIN_SEGMENTS, capacity / segmentSize);
+        lockFile = new RandomAccessFile(new File(directory, LOCK_FILE), "rw");
+        lock = lockFile.getChannel().tryLock();
+        if (lock == null) {
+            lockFile.close();
+            throw new IOException(directory + " is in use by another process");
+        }
+        recover();
+    }
+
+    /**
+     * Store a serialized value, replacing any stored for the same key.
+     * @param key
+     * @param created
+     * @param ttl
+     * @param timeCost
+     * @param data
+     * @return false if the value is too large to be stored
+     * @throws IOException
+     */
+    public synchronized boolean put(String key, long created, int ttl, long timeCost, byte[] data) throws IOException {
+        if (closed) {
+            return false;
+        }
+        Location l = append(key, created, ttl, timeCost, data);
+        if (l == null) {
+            remove(key);
+            return false;
+        }
+        Location old = index.put(key, l);
+        if (old != null) {
+            usedBytes -= old.length;
+        }
+        usedBytes += l.length;
+        return true;
+    }
+
+    /**
+     * The value for the key, copied from the mapped segment.
+     * @param key
+     * @return the value, or null if none is stored
+     */
+    public synchronized SerializedResult get(String key) {
+        Location l = index.get(key);
+        if (l == null) {
+            return null;
+        }
+        byte[] data = new byte[l.length];
+        ByteBuffer b = l.segment.buffer.duplicate();
+        b.position(l.offset);
+        b.get(data);
+        return new SerializedResult(l.created, l.ttl, l.timeCost, ByteBuffer.wrap(data));
+    }
+
+    /**
+     * Remove the value for the key, so that it isn't recovered on restart.
+     * @param key
+     * @throws IOException
+     */
+    public synchronized void remove(String key) throws IOException {
+        if (closed) {
+            return;
+        }
+        Location old = index.remove(key);
+        if (old != null) {
+            usedBytes -= old.length;
+            append(key, 0, 0, 0, null);
+        }
+    }
+
+    /**
+     * Remove all values, deleting all segments.
+     * @throws IOException
+     */
+    public synchronized void clear() throws IOException {
+        index.clear();
+        while (!segments.isEmpty()) {
+            delete(segments.removeFirst());
+        }
+        usedBytes = 0;
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    /**
+     * Bytes held by stored values.
+     * @return
+     */
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * Number of values dropped with the oldest segment to make room for
+     * others.
+     * @return
+     */
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Flush written data to disk and release the store's files. The store
+     * holds nothing afterwards, and ignores writes, but the directory can be
+     * opened again.
+     * @throws IOException
+     */
+    public void close() throws IOException {
+        synchronized (stores) {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                for (Segment s : segments) {
+                    s.buffer.force();
+                    unmap(s.buffer);
+                }
+                segments.clear();
+                index.clear();
+                usedBytes = 0;
+                lock.release();
+                lockFile.close();
+                stores.remove(directory);
+            }
+        }
+    }
+
+    private Location append(String key, long created, int ttl, long timeCost, byte[] data) throws IOException {
+        byte[] keyBytes = utf8(key);
+        int dataLength = data == null ? 0 : data.length;
+        int length = 4 + keyBytes.length + 8 + 4 + 8 + 4 + dataLength;
+        if (HEADER + length > segmentSize) {
+            return null;
+        }
+        Segment s = segments.isEmpty() ? null : segments.getLast();
+        if (s == null || s.position + HEADER + length > segmentSize) {
+            s = roll();
+        }
+        ByteBuffer body = ByteBuffer.allocate(length);
+        body.putInt(keyBytes.length);
+        body.put(keyBytes);
+        body.putLong(created);
+        body.putInt(ttl);
+        body.putLong(timeCost);
+        body.putInt(data == null ? -1 : data.length);
+        if (data != null) {
+            body.put(data);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(body.array());
+        ByteBuffer b = s.buffer.duplicate();
+        b.position(s.position + HEADER);
+        b.put(body.array());
+        b.putInt(s.position + 4, (int) crc.getValue());
+        b.putInt(s.position, length);
+        int offset = s.position + HEADER + length - dataLength;
+        s.position += HEADER + length;
+        return new Location(s, offset, dataLength, created, ttl, timeCost);
+    }
+
+    private Segment roll() throws IOException {
+        long sequence = segments.isEmpty() ? 1 : segments.getLast().sequence + 1;
+        Segment s = map(new File(directory, String.format("%016d%s", sequence, SEGMENT_SUFFIX)), sequence);
+        segments.add(s);
+        trim();
+        return s;
+    }
+
+    /**
+     * Delete the oldest segments until within capacity.
+     */
+    private void trim() {
+        while (segments.size() > maxSegments) {
+            Segment oldest = segments.removeFirst();
+            Iterator<Location> i = index.values().iterator();
+            while (i.hasNext()) {
+                Location l = i.next();
+                if (l.segment == oldest) {
+                    i.remove();
+                    usedBytes -= l.length;
+                    evictionCount++;
+                }
+            }
+            delete(oldest);
+        }
+    }
+
+    private Segment map(File file, long sequence) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            // the mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            return new Segment(file, sequence, buffer);
+        } finally {
+            raf.close();
+        }
+    }
+
+    private void delete(Segment s) {
+        if (s.buffer != null) {
+            unmap(s.buffer);
+        }
+        if (!s.file.delete()) {
+            logger.log(Level.WARNING, "Unable to delete cache segment {0}", s.file);
+        }
+    }
+
+    /**
+     * Rebuild the index from the segment files.
+     */
+    private void recover() throws IOException {
+        File[] files = directory.listFiles();
+        List<File> segmentFiles = new ArrayList<File>();
+        for (File f : files) {
+            if (f.getName().endsWith(SEGMENT_SUFFIX)) {
+                segmentFiles.add(f);
+            }
+        }
+        // names are zero padded sequence numbers
+        File[] sorted = segmentFiles.toArray(new File[segmentFiles.size()]);
+        Arrays.sort(sorted);
+        for (File f : sorted) {
+            long sequence;
+            try {
+                sequence = Long.parseLong(f.getName().substring(0, f.getName().length() - SEGMENT_SUFFIX.length()));
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            if (f.length() != segmentSize) {
+                // written with a different capacity, can't be appended to
+                delete(new Segment(f, sequence, null));
+                continue;
+            }
+            Segment s = map(f, sequence);
+            segments.add(s);
+            replay(s);
+        }
+        trim();
+    }
+
+    private void replay(Segment s) {
+        ByteBuffer b = s.buffer.duplicate();
+        int position = 0;
+        while (position + HEADER <= segmentSize) {
+            int length = b.getInt(position);
+            if (length <= 0 || position + HEADER + length > segmentSize) {
+                break;
+            }
+            byte[] body = new byte[length];
+            b.position(position + HEADER);
+            b.get(body);
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            if ((int) crc.getValue() != b.getInt(position + 4)) {
+                logger.log(Level.WARNING, "Ignoring corrupt cache data at {0}:{1}", new Object[]{s.file, position});
+                break;
+            }
+            ByteBuffer r = ByteBuffer.wrap(body);
+            byte[] keyBytes = new byte[r.getInt()];
+            r.get(keyBytes);
+            String key = string(keyBytes);
+            long created = r.getLong();
+            int ttl = r.getInt();
+            long timeCost = r.getLong();
+            int dataLength = r.getInt();
+            Location old;
+            if (dataLength < 0) {
+                old = index.remove(key);
+            } else {
+                Location l = new Location(s, position + HEADER + r.position(), dataLength, created, ttl, timeCost);
+                old = index.put(key, l);
+                usedBytes += l.length;
+            }
+            if (old != null) {
+                usedBytes -= old.length;
+            }
+            position += HEADER + length;
+        }
+        s.position = position;
+    }
+
+    /**
+     * Release a mapping now, rather than when it is garbage collected, which
+     * may be long after its file is deleted. The buffer must not be used
+     * afterwards. Needs JDK internals, so quietly leaves the mapping to the
+     * garbage collector where they aren't available.
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            // Java 9 and later
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            unsafeClass.getMethod("invokeCleaner", ByteBuffer.class).invoke(theUnsafe.get(null), buffer);
+            return;
+        } catch (Exception ex) {
+            // not available before Java 9
+        }
+        try {
+            Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(buffer);
+            if (cleaner != null) {
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        } catch (Exception ex) {
+            logger.log(Level.FINE, "Unable to unmap cache segment", ex);
+        }
+    }
+
+    private static byte[] utf8(String s) {
+        try {
+            return s.getBytes("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String string(byte[] utf8) {
+        try {
+            return new String(utf8, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class Segment {
+
+        private final File file;
+        private final long sequence;
+        private final MappedByteBuffer buffer;
+        private int position = 0;
+
+        private Segment(File file, long sequence, MappedByteBuffer buffer) {
+            this.file = file;
+            this.sequence = sequence;
+            this.buffer = buffer;
+        }
+    }
+
+    private static class Location {
+
+        private final Segment segment;
+        private final int offset;
+        private final int length;
+        private final long created;
+        private final int ttl;
+        private final long timeCost;
+
+        private Location(Segment segment, int offset, int length, long created, int ttl, long timeCost) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+            this.created = created;
+            this.ttl = ttl;
+            this.timeCost = timeCost;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+/*
+ *  Copyright 2026 the visural-common contributors.
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+package com.visural.common.cache.impl;
+
+/**
+ * Notified of entries evicted from a {@link CacheStore} to stay within its
+ * capacity, e.g. to move them to a slower tier. Not called for entries
+ * which expire or are invalidated.
+ *
+ * Called by the writing thread after the store's lock has been released.
+ */
+public interface EvictionListener {
+
+    void onEviction(CacheEntry e);
+}
@@ -0,0 +1,70 @@
+/*
+ *  Copyright 2026 the visural-common contributors.
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+package com.visural.common.cache.impl;
+
+/**
+ * Orders the entries of a {@link CacheStore} for eviction.
+ *
+ * Implementations are not thread safe. The owning {@link CacheStore} only
+ * calls a policy while holding its eviction lock.
+ */
+public interface EvictionPolicy {
+
+    /**
+     * Whether cache hits need to be reported via {@link #onAccess(CacheEntry)}.
+     * Policies which return false are never told about reads.
+     * @return
+     */
+    boolean isAccessOrdered();
+
+    /**
+     * A new entry has been added to the cache.
+     * @param e
+     */
+    void onInsert(CacheEntry e);
+
+    /**
+     * An existing entry has been read. May be called late, or not at all if
+     * reads are arriving faster than they can be recorded.
+     * @param e
+     */
+    void onAccess(CacheEntry e);
+
+    /**
+     * An entry has been removed from the cache by some means other than
+     * {@link #evict()}.
+     * @param e
+     */
+    void onRemove(CacheEntry e);
+
+    /**
+     * Select the next victim and stop tracking it.
+     * @return the entry to be evicted, or null if no entries are tracked
+     */
+    CacheEntry evict();
+
+    /**
+     * Stop tracking all entries.
+     */
+    void clear();
+
+    /**
+     * The capacity of the owning store has changed.
+     * @param maxEntries
+     */
+    void resize(int maxEntries);
+}
@@ -0,0 +1,110 @@
+/*
+ *  Copyright 2026 the visural-common contributors.
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+package com.visural.common.cache.impl;
+
+import java.io.Serializable;
+
+/**
+ * Estimated hit ratio of a method's cache at different sizes, from a
+ * {@link HitRatioSampler}. Reuse distances are kept to within about 6%, and
+ * ratios are interpolated in between.
+ *
+ * Curves of several instances' caches add up to their combined ratio, for a
+ * cache of the given size per instance.
+ */
+public class HitRatioCurve implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    static final int BUCKETS = LatencyHistogram.BUCKETS;
+
+    // estimated accesses by reuse distance, in the buckets of a LatencyHistogram
+    private final double[] counts;
+    private final double accesses;
+    private final long sampled;
+    private final long keys;
+
+    public HitRatioCurve() {
+        this(new double[BUCKETS], 0, 0, 0);
+    }
+
+    HitRatioCurve(double[] counts, double accesses, long sampled, long keys) {
+        this.counts = counts;
+        this.accesses = accesses;
+        this.sampled = sampled;
+        this.keys = keys;
+    }
+
+    static int bucket(long distance) {
+        return LatencyHistogram.indexOf(distance);
+    }
+
+    /**
+     * @param cacheSize
+     * @return estimated hit ratio from 0 to 1, or 0 if nothing has been sampled
+     */
+    public double getHitRatio(long cacheSize) {
+        if (sampled == 0 || cacheSize < 1) {
+            return 0;
+        }
+        // hits are accesses with fewer than cacheSize other keys since the last
+        long limit = cacheSize - 1;
+        int last = bucket(limit);
+        double hits = 0;
+        for (int n = 0; n < last; n++) {
+            hits += counts[n];
+        }
+        long lowest = LatencyHistogram.lowestValueAt(last);
+        double width = LatencyHistogram.highestValueAt(last) - lowest + 1;
+        hits += counts[last] * (limit - lowest + 1) / width;
+        return hits / accesses;
+    }
+
+    /**
+     * Number of accesses simulated.
+     * @return
+     */
+    public long getSampledAccesses() {
+        return sampled;
+    }
+
+    /**
+     * Number of keys whose accesses are simulated. A curve from only a few
+     * keys says little about the method's other keys, however many accesses
+     * were sampled.
+     * @return
+     */
+    public long getSampledKeys() {
+        return keys;
+    }
+
+    public HitRatioCurve plus(HitRatioCurve other) {
+        double[] c = counts.clone();
+        for (int n = 0; n < BUCKETS; n++) {
+            c[n] += other.counts[n];
+        }
+        return new HitRatioCurve(c, accesses + other.accesses, sampled + other.sampled, keys + other.keys);
+    }
+
+    public HitRatioCurve minus(HitRatioCurve other) {
+        double[] c = counts.clone();
+        for (int n = 0; n < BUCKETS; n++) {
+            c[n] -= other.counts[n];
+        }
+        return new HitRatioCurve(c, accesses - other.accesses, sampled - other.sampled, keys - other.keys);
+    }
+}
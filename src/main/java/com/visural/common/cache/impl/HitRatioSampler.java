@@ -0,0 +1,314 @@
+/*
+ *  Copyright 2026 the visural-common contributors.
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+package com.visural.common.cache.impl;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Simulates the hit ratio an LRU cache of the same method would get at other
+ * sizes, using spatially hashed sampling (SHARDS).
+ *
+ * Keys are hashed, and only accesses to keys whose hash is under a threshold
+ * are simulated, 1 in {@value #SAMPLE_RATE} keys to start with. For each
+ * sampled access the number of other sampled keys used since the key's last
+ * access, its reuse distance, is scaled up by the sampling rate. An access
+ * would hit in an LRU cache of any size larger than its reuse distance.
+ *
+ * At most {@link #MAX_TRACKED} keys are tracked. Beyond that the keys with
+ * the largest hashes are dropped and the threshold lowered, so the sampling
+ * rate falls as the number of keys grows. Each sampled access is weighted by
+ * the rate at the time. Tracking takes up to about 120KB per cache, and keys
+ * are tracked by hash, so no keys are kept alive.
+ *
+ * Whether an access is sampled is decided from the hash alone. Sampled
+ * hashes go into a {@link ReadBuffer} and are simulated in batches by
+ * whichever thread gets the lock, so recording never waits for another
+ * thread.
+ *
+ * Ratios for sizes much smaller than the number of sampled keys times the
+ * rate are the least accurate, as they depend on whether a few hot keys
+ * happen to be sampled.
+ */
+public class HitRatioSampler {
+
+    public static final int SAMPLE_RATE = 64;
+    public static final int MAX_TRACKED = 4096;
+
+    private static final int HASH_BITS = 24;
+    private static final int MAX_TIME = MAX_TRACKED * 2;
+    private static final int MIN_TIME = 64;
+    private static final int MIN_TABLE = 16;
+    private static final int EMPTY = -1;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ReadBuffer<Integer> buffer = new ReadBuffer<Integer>();
+    private final ReadBuffer.Handler<Integer> replayAccess = new ReadBuffer.Handler<Integer>() {
+        public void onRead(Integer h) {
+            access(h);
+        }
+    };
+    private volatile int threshold = (1 << HASH_BITS) / SAMPLE_RATE;
+    // open addressing table of tracked hashes, and each key's last access time
+    private int[] keys = emptyTable(MIN_TABLE);
+    private int[] lastAccess = new int[MIN_TABLE];
+    private int tracked;
+    // tracked hashes as a max heap, to find the largest to drop
+    private int[] heap = new int[MIN_TABLE];
+    // Fenwick tree counting the tracked keys last accessed at each time
+    private int[] times;
+    private int time;
+    private final double[] counts = new double[HitRatioCurve.BUCKETS];
+    private double accesses;
+    private long sampled;
+    private int seed = 0x9e3779b9;
+
+    public void record(Object key) {
+        int h = hash(key);
+        if (h >= threshold || !buffer.record(h) || !lock.tryLock()) {
+            return;
+        }
+        try {
+            buffer.drainTo(replayAccess);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public HitRatioCurve getCurve() {
+        return getCurve(-1);
+    }
+
+    /**
+     * The curve, corrected for the sampled keys being used more or less
+     * than average. The accesses the sample doesn't account for are counted
+     * as hits at the smallest size, as the keys most likely to be over or
+     * under represented are the few most used ones.
+     * @param recorded every access recorded, sampled or not, or -1 if not
+     * known
+     * @return
+     */
+    public HitRatioCurve getCurve(long recorded) {
+        lock.lock();
+        try {
+            buffer.drainTo(replayAccess);
+            double[] c = counts.clone();
+            double total = accesses;
+            if (recorded >= 0 && sampled > 0) {
+                c[0] = Math.max(0, c[0] + recorded - accesses);
+                total = recorded;
+            }
+            return new HitRatioCurve(c, total, sampled, tracked);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void access(int h) {
+        if (h >= threshold) {
+            // buffered before the threshold was lowered
+            return;
+        }
+        if (times == null) {
+            times = new int[MIN_TIME + 1];
+        }
+        if (time == times.length - 1) {
+            renumber();
+        }
+        int now = ++time;
+        // each sampled access stands for 1 / rate accesses
+        double weight = (double) (1 << HASH_BITS) / threshold;
+        accesses += weight;
+        sampled++;
+        int slot = find(h);
+        if (keys[slot] == h) {
+            int last = lastAccess[slot];
+            long distance = tracked - countUpTo(last);
+            // keys between sampled ones are unseen, so place the distance at
+            // random within the gap rather than always at its start
+            long scaled = (long) ((distance + nextRandom()) * weight);
+            counts[HitRatioCurve.bucket(scaled)] += weight;
+            add(last, -1);
+            lastAccess[slot] = now;
+            add(now, 1);
+        } else {
+            if ((tracked + 1) * 4 > keys.length * 3) {
+                growTable();
+                slot = find(h);
+            }
+            keys[slot] = h;
+            lastAccess[slot] = now;
+            push(h);
+            tracked++;
+            add(now, 1);
+            while (tracked > MAX_TRACKED) {
+                int largest = pop();
+                add(remove(largest), -1);
+                threshold = largest;
+            }
+        }
+    }
+
+    /**
+     * Number the tracked keys' access times from 1 again, in the same order,
+     * growing the tree if the keys fill more than half of it.
+     */
+    private void renumber() {
+        // access time in the high bits and slot in the low, to sort by time
+        long[] order = new long[tracked];
+        int count = 0;
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != EMPTY) {
+                order[count++] = ((long) lastAccess[slot] << 32) | slot;
+            }
+        }
+        Arrays.sort(order);
+        int size = times.length - 1;
+        if (tracked * 2 > size && size < MAX_TIME) {
+            size *= 2;
+        }
+        times = new int[size + 1];
+        time = 0;
+        for (long o : order) {
+            lastAccess[(int) o] = ++time;
+            add(time, 1);
+        }
+    }
+
+    /**
+     * @return the slot holding the hash, or the empty slot it would go in
+     */
+    private int find(int h) {
+        int mask = keys.length - 1;
+        int slot = h & mask;
+        while (keys[slot] != EMPTY && keys[slot] != h) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * @return the removed key's last access time
+     */
+    private int remove(int h) {
+        int mask = keys.length - 1;
+        int gap = find(h);
+        int removed = lastAccess[gap];
+        // move later keys of the same run back into the gap, so no lookup
+        // stops short of its key
+        for (int slot = (gap + 1) & mask; keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+            int home = keys[slot] & mask;
+            boolean reachable = gap <= slot ? gap < home && home <= slot : gap < home || home <= slot;
+            if (!reachable) {
+                keys[gap] = keys[slot];
+                lastAccess[gap] = lastAccess[slot];
+                gap = slot;
+            }
+        }
+        keys[gap] = EMPTY;
+        tracked--;
+        return removed;
+    }
+
+    private void growTable() {
+        int[] oldKeys = keys;
+        int[] oldLastAccess = lastAccess;
+        keys = emptyTable(oldKeys.length * 2);
+        lastAccess = new int[keys.length];
+        for (int n = 0; n < oldKeys.length; n++) {
+            if (oldKeys[n] != EMPTY) {
+                int slot = find(oldKeys[n]);
+                keys[slot] = oldKeys[n];
+                lastAccess[slot] = oldLastAccess[n];
+            }
+        }
+        heap = Arrays.copyOf(heap, keys.length);
+    }
+
+    private static int[] emptyTable(int size) {
+        int[] table = new int[size];
+        Arrays.fill(table, EMPTY);
+        return table;
+    }
+
+    private void push(int h) {
+        int n = tracked;
+        while (n > 0 && heap[(n - 1) / 2] < h) {
+            heap[n] = heap[(n - 1) / 2];
+            n = (n - 1) / 2;
+        }
+        heap[n] = h;
+    }
+
+    /**
+     * Remove the largest hash from the heap, before the key is removed from
+     * the table.
+     */
+    private int pop() {
+        int largest = heap[0];
+        int last = heap[tracked - 1];
+        int n = 0;
+        while (true) {
+            int child = n * 2 + 1;
+            if (child >= tracked - 1) {
+                break;
+            }
+            if (child + 1 < tracked - 1 && heap[child + 1] > heap[child]) {
+                child++;
+            }
+            if (heap[child] <= last) {
+                break;
+            }
+            heap[n] = heap[child];
+            n = child;
+        }
+        heap[n] = last;
+        return largest;
+    }
+
+    private void add(int t, int delta) {
+        for (int i = t; i < times.length; i += i & -i) {
+            times[i] += delta;
+        }
+    }
+
+    private int countUpTo(int t) {
+        int sum = 0;
+        for (int i = t; i > 0; i -= i & -i) {
+            sum += times[i];
+        }
+        return sum;
+    }
+
+    private double nextRandom() {
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        return (seed >>> 8) / (double) (1 << 24);
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        // murmur3 finalizer, so similar hash codes are sampled independently
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h >>> (32 - HASH_BITS);
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ *  Copyright 2026 the visural-common contributors.
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+package com.visural.common.cache.impl;
+
+import java.lang.reflect.Modifier;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A value being loaded by one thread, which other threads missing on the
+ * same key can wait for instead of loading it again.
+ */
+public class InFlightLoad {
+
+    private final Thread loader;
+    private final CountDownLatch done = new CountDownLatch(1);
+    private volatile Object result;
+    private volatile Throwable failure;
+
+    /**
+     * A load performed by the calling thread.
+     */
+    public InFlightLoad() {
+        this(Thread.currentThread());
+    }
+
+    /**
+     * @param loader the thread performing the load, or null if it will be
+     * performed asynchronously
+     */
+    public InFlightLoad(Thread loader) {
+        this.loader = loader;
+    }
+
+    /**
+     * Whether the calling thread is the one performing this load, in which
+     * case it must never wait for it.
+     * @return
+     */
+    public boolean isLoadingThread() {
+        return loader == Thread.currentThread();
+    }
+
+    public void complete(Object result) {
+        this.result = result;
+        done.countDown();
+    }
+
+    public void fail(Throwable failure) {
+        this.failure = failure;
+        done.countDown();
+    }
+
+    /**
+     * Wait for the load to finish.
+     * @param timeoutMillis maximum time to wait, or 0 to wait indefinitely
+     * @return true if the load finished, false if the wait timed out
+     * @throws InterruptedException
+     */
+    public boolean await(long timeoutMillis) throws InterruptedException {
+        if (timeoutMillis <= 0) {
+            done.await();
+            return true;
+        }
+        return done.await(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public boolean isFailed() {
+        return failure != null;
+    }
+
+    /**
+     * The loaded value. Only valid once {@link #await(long)} has returned
+     * true, and if the load didn't fail.
+     * @return
+     */
+    public Object getResult() {
+        return result;
+    }
+
+    /**
+     * A new copy of the exception the load failed with, caused by it, so
+     * that each waiting thread throws its own instance with its own stack
+     * trace rather than all of them sharing the loader's.
+     * @return the copy, or null if the exception has no public
+     * (String, Throwable) or (String) constructor to copy it with
+     */
+    public Throwable copyFailure() {
+        Class<? extends Throwable> type = failure.getClass();
+        if (!Modifier.isPublic(type.getModifiers())) {
+            return null;
+        }
+        try {
+            try {
+                return type.getConstructor(String.class, Throwable.class).newInstance(failure.getMessage(), failure);
+            } catch (NoSuchMethodException e) {
+            }
+            Throwable copy = type.getConstructor(String.class).newInstance(failure.getMessage());
+            if (copy.getCause() == null) {
+                copy.initCause(failure);
+            }
+            return copy;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
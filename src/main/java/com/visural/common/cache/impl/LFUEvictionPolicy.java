@@ -0,0 +1,227 @@
+/*
+ *  Copyright 2026 the visural-common contributors.
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+package com.visural.common.cache.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Least frequently used eviction order, optionally weighted by the time
+ * taken to load each entry (see {@link com.visural.common.cache.EvictionStrategy#LFU_TIMECOST}).
+ *
+ * Entries are kept in a list of frequency buckets, each holding the entries
+ * with that use count in the order they arrived in the bucket. A hit moves an
+ * entry to the next bucket up and eviction takes the head of the lowest
+ * bucket, so both are constant time.
+ *
+ * To weight by time cost, entries are split into classes by the power of two
+ * of their (timecost+1), each with its own set of buckets. The victim is the
+ * cheapest of the lowest bucket heads across the classes, which is within a
+ * factor of two of the exact least valuable entry.
+ */
+public class LFUEvictionPolicy implements EvictionPolicy {
+
+    private static final int COST_CLASSES = 64;
+
+    private final boolean weightByTimecost;
+    private final Map<CacheEntry, Node> nodes = new HashMap<CacheEntry, Node>();
+    private final FrequencyList[] classes;
+
+    public LFUEvictionPolicy(boolean weightByTimecost) {
+        this.weightByTimecost = weightByTimecost;
+        this.classes = new FrequencyList[weightByTimecost ? COST_CLASSES : 1];
+        for (int n = 0; n < classes.length; n++) {
+            classes[n] = new FrequencyList();
+        }
+    }
+
+    public boolean isAccessOrdered() {
+        return true;
+    }
+
+    public void onInsert(CacheEntry e) {
+        Node n = new Node(e);
+        nodes.put(e, n);
+        classes[costClass(e)].add(n, e.getUses());
+    }
+
+    public void onAccess(CacheEntry e) {
+        Node n = nodes.get(e);
+        if (n != null) {
+            // hits may have been dropped or batched, so catch up to the entry's own count
+            classes[costClass(e)].promote(n, e.getUses());
+        }
+    }
+
+    public void onRemove(CacheEntry e) {
+        Node n = nodes.remove(e);
+        if (n != null) {
+            n.bucket.unlink(n);
+        }
+    }
+
+    public CacheEntry evict() {
+        Node victim = null;
+        long victimValue = Long.MAX_VALUE;
+        for (FrequencyList l : classes) {
+            Node candidate = l.first();
+            if (candidate != null) {
+                long value = weightByTimecost ? candidate.entry.getUsesByTimecost() : candidate.bucket.frequency;
+                if (victim == null || value < victimValue) {
+                    victim = candidate;
+                    victimValue = value;
+                }
+            }
+        }
+        if (victim == null) {
+            return null;
+        }
+        nodes.remove(victim.entry);
+        victim.bucket.unlink(victim);
+        return victim.entry;
+    }
+
+    public void clear() {
+        nodes.clear();
+        for (FrequencyList l : classes) {
+            l.clear();
+        }
+    }
+
+    public void resize(int maxEntries) {
+    }
+
+    private int costClass(CacheEntry e) {
+        if (!weightByTimecost) {
+            return 0;
+        }
+        return 63 - Long.numberOfLeadingZeros(Math.max(e.getTimeCost(), 0) + 1);
+    }
+
+    /**
+     * Ascending, doubly linked list of non-empty frequency buckets.
+     */
+    private static class FrequencyList {
+
+        private final Bucket head = new Bucket(0);
+
+        public FrequencyList() {
+            head.prev = head;
+            head.next = head;
+        }
+
+        public Node first() {
+            return head.next == head ? null : head.next.first;
+        }
+
+        public void add(Node n, long frequency) {
+            insertAfter(head, n, frequency);
+        }
+
+        public void promote(Node n, long frequency) {
+            Bucket from = n.bucket;
+            if (frequency <= from.frequency) {
+                return;
+            }
+            // the search starts at the current bucket, normally just one step away
+            Bucket start = from.first == n && from.last == n ? from.prev : from;
+            from.unlink(n);
+            insertAfter(start, n, frequency);
+        }
+
+        public void clear() {
+            head.prev = head;
+            head.next = head;
+        }
+
+        /**
+         * Add the node to the bucket for the frequency, searching forward from
+         * the given bucket and creating the bucket if needed.
+         */
+        private void insertAfter(Bucket b, Node n, long frequency) {
+            while (b.next != head && b.next.frequency <= frequency) {
+                b = b.next;
+            }
+            if (b == head || b.frequency != frequency) {
+                Bucket created = new Bucket(frequency);
+                created.prev = b;
+                created.next = b.next;
+                b.next.prev = created;
+                b.next = created;
+                b = created;
+            }
+            b.append(n);
+        }
+    }
+
+    private static class Bucket {
+
+        private final long frequency;
+        private Bucket prev;
+        private Bucket next;
+        private Node first;
+        private Node last;
+
+        public Bucket(long frequency) {
+            this.frequency = frequency;
+        }
+
+        public void append(Node n) {
+            n.bucket = this;
+            n.prev = last;
+            n.next = null;
+            if (last == null) {
+                first = n;
+            } else {
+                last.next = n;
+            }
+            last = n;
+        }
+
+        public void unlink(Node n) {
+            if (n.prev == null) {
+                first = n.next;
+            } else {
+                n.prev.next = n.next;
+            }
+            if (n.next == null) {
+                last = n.prev;
+            } else {
+                n.next.prev = n.prev;
+            }
+            n.prev = null;
+            n.next = null;
+            if (first == null) {
+                // drop empty buckets so the lowest bucket is always the list head
+                prev.next = next;
+                next.prev = prev;
+            }
+        }
+    }
+
+    private static class Node {
+
+        private final CacheEntry entry;
+        private Bucket bucket;
+        private Node prev;
+        private Node next;
+
+        public Node(CacheEntry entry) {
+            this.entry = entry;
+        }
+    }
+}
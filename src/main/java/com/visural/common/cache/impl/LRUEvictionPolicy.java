@@ -0,0 +1,72 @@
+/*
+ *  Copyright 2026 the visural-common contributors.
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+package com.visural.common.cache.impl;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Least recently used eviction order, also used for first in first out
+ * by disabling access ordering.
+ */
+public class LRUEvictionPolicy implements EvictionPolicy {
+
+    private final boolean accessOrder;
+    private final LinkedHashMap<CacheEntry, Boolean> order;
+
+    /**
+     * @param accessOrder true for LRU, false for FIFO
+     */
+    public LRUEvictionPolicy(boolean accessOrder) {
+        this.accessOrder = accessOrder;
+        this.order = new LinkedHashMap<CacheEntry, Boolean>(16, 0.75f, accessOrder);
+    }
+
+    public boolean isAccessOrdered() {
+        return accessOrder;
+    }
+
+    public void onInsert(CacheEntry e) {
+        order.put(e, Boolean.TRUE);
+    }
+
+    public void onAccess(CacheEntry e) {
+        // LinkedHashMap moves the entry to the tail on get() when access ordered
+        order.get(e);
+    }
+
+    public void onRemove(CacheEntry e) {
+        order.remove(e);
+    }
+
+    public CacheEntry evict() {
+        Iterator<CacheEntry> i = order.keySet().iterator();
+        if (!i.hasNext()) {
+            return null;
+        }
+        CacheEntry victim = i.next();
+        i.remove();
+        return victim;
+    }
+
+    public void clear() {
+        order.clear();
+    }
+
+    public void resize(int maxEntries) {
+    }
+}
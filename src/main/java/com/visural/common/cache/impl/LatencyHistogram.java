@@ -0,0 +1,141 @@
+/*
+ *  Copyright 2026 the visural-common contributors.
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+package com.visural.common.cache.impl;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of latencies in nanoseconds, for reporting percentiles.
+ *
+ * Buckets are laid out in the same way as an HdrHistogram - each power of two
+ * is split into 16 linear sub buckets, so a recorded value is reported to
+ * within 1/16th (about 6%) of its actual value. Values from 0 to about 73
+ * minutes are covered, larger values are counted in the last bucket.
+ *
+ * Recording is a single atomic increment, and histograms with the same layout
+ * can be added together or subtracted without losing precision.
+ */
+public class LatencyHistogram implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 42;
+    private static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+    static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts;
+
+    public LatencyHistogram() {
+        counts = new AtomicLongArray(BUCKETS);
+    }
+
+    private LatencyHistogram(long[] counts) {
+        this.counts = new AtomicLongArray(counts);
+    }
+
+    public void record(long nanos) {
+        counts.incrementAndGet(indexOf(nanos));
+    }
+
+    public long getCount() {
+        long total = 0;
+        for (int n = 0; n < BUCKETS; n++) {
+            total += counts.get(n);
+        }
+        return total;
+    }
+
+    /**
+     * The value which the given percentage of recorded values are less than or
+     * equal to, or 0 if nothing has been recorded.
+     * @param percentile from 0 to 100, e.g. 99.9
+     * @return
+     */
+    public long getValueAtPercentile(double percentile) {
+        long[] c = toArray();
+        long total = 0;
+        for (long count : c) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(total * Math.min(percentile, 100d) / 100d));
+        long seen = 0;
+        for (int n = 0; n < BUCKETS; n++) {
+            seen += c[n];
+            if (seen >= target) {
+                return highestValueAt(n);
+            }
+        }
+        return MAX_VALUE;
+    }
+
+    public LatencyHistogram copy() {
+        return new LatencyHistogram(toArray());
+    }
+
+    public LatencyHistogram plus(LatencyHistogram other) {
+        long[] c = toArray();
+        for (int n = 0; n < BUCKETS; n++) {
+            c[n] += other.counts.get(n);
+        }
+        return new LatencyHistogram(c);
+    }
+
+    public LatencyHistogram minus(LatencyHistogram other) {
+        long[] c = toArray();
+        for (int n = 0; n < BUCKETS; n++) {
+            c[n] -= other.counts.get(n);
+        }
+        return new LatencyHistogram(c);
+    }
+
+    private long[] toArray() {
+        long[] c = new long[BUCKETS];
+        for (int n = 0; n < BUCKETS; n++) {
+            c[n] = counts.get(n);
+        }
+        return c;
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return value < 0 ? 0 : (int) value;
+        }
+        long v = Math.min(value, MAX_VALUE);
+        int exponent = 63 - Long.numberOfLeadingZeros(v);
+        int sub = (int) (v >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    static long lowestValueAt(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long sub = index % SUB_BUCKETS;
+        return (SUB_BUCKETS + sub) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    static long highestValueAt(int index) {
+        return index == BUCKETS - 1 ? MAX_VALUE : lowestValueAt(index + 1) - 1;
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ *  Copyright 2026 the visural-common contributors.
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+package com.visural.common.cache.impl;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Results of cached method calls made by one thread while a
+ * {@link com.visural.common.cache.CacheMemo} scope is open. Repeated calls
+ * are answered from here, by their key, without touching the shared cache.
+ * Memo hits are counted locally and added to each cache's
+ * {@link CacheStats} when the scope is cleared or closed.
+ *
+ * Each result is memoized with its cache's generation, and is discarded
+ * once the cache has been invalidated since, from any thread. Other changes
+ * to the cache, e.g. a newer result being loaded, are not seen until the
+ * scope is closed.
+ *
+ * Futures are only memoized once they have completed successfully, as one
+ * still in flight may yet fail, and a failed one should be retried.
+ *
+ * Not thread safe, each thread has its own.
+ */
+public class MemoScope {
+
+    private static final int MAX_ENTRIES = 10000;
+    private static final ThreadLocal<MemoScope> current = new ThreadLocal<MemoScope>();
+
+    // by cache, as instances with their own caches may return different results
+    private final Map<MethodCache, Map<Object, Memo>> memos = new IdentityHashMap<MethodCache, Map<Object, Memo>>();
+    private int size = 0;
+    private int depth = 1;
+
+    private MemoScope() {
+    }
+
+    /**
+     * @return the current thread's scope, or null if none is open
+     */
+    public static MemoScope current() {
+        return current.get();
+    }
+
+    /**
+     * Open a scope on the current thread, or nest within the open one.
+     */
+    public static void begin() {
+        MemoScope scope = current.get();
+        if (scope == null) {
+            current.set(new MemoScope());
+        } else {
+            scope.depth++;
+        }
+    }
+
+    /**
+     * Close the scope opened by the matching {@link #begin()}.
+     */
+    public static void end() {
+        MemoScope scope = current.get();
+        if (scope != null && --scope.depth == 0) {
+            current.remove();
+            scope.clear();
+        }
+    }
+
+    /**
+     * Forget results memoized by the current thread, if it has an open scope.
+     */
+    public static void clearCurrent() {
+        MemoScope scope = current.get();
+        if (scope != null) {
+            scope.clear();
+        }
+    }
+
+    /**
+     * @param cache
+     * @param key the call's key, see {@link MethodCache#getKey}
+     * @return the memoized result, or null if the call hasn't been made in
+     * this scope since the cache was last invalidated
+     */
+    public Memo get(MethodCache cache, Object key) {
+        Map<Object, Memo> results = memos.get(cache);
+        if (results == null) {
+            return null;
+        }
+        Memo memo = results.get(key);
+        if (memo != null && memo.generation != cache.getGeneration()) {
+            results.remove(key);
+            size--;
+            addHits(cache, memo);
+            return null;
+        }
+        return memo;
+    }
+
+    /**
+     * @param cache
+     * @param key
+     * @param generation the cache's generation from before the call
+     * @param result
+     */
+    public void put(MethodCache cache, Object key, int generation, Object result) {
+        if (size >= MAX_ENTRIES || (result instanceof Future && !isSucceeded((Future<?>) result))) {
+            return;
+        }
+        Map<Object, Memo> results = memos.get(cache);
+        if (results == null) {
+            results = new HashMap<Object, Memo>();
+            memos.put(cache, results);
+        }
+        Memo old = results.put(key, new Memo(generation, result));
+        if (old == null) {
+            size++;
+        } else {
+            addHits(cache, old);
+        }
+    }
+
+    private static boolean isSucceeded(Future<?> future) {
+        if (!future.isDone() || future.isCancelled()) {
+            return false;
+        }
+        try {
+            // done, so doesn't block
+            future.get();
+            return true;
+        } catch (ExecutionException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void clear() {
+        for (Entry<MethodCache, Map<Object, Memo>> e : memos.entrySet()) {
+            for (Memo memo : e.getValue().values()) {
+                addHits(e.getKey(), memo);
+            }
+        }
+        memos.clear();
+        size = 0;
+    }
+
+    private static void addHits(MethodCache cache, Memo memo) {
+        if (memo.hits > 0) {
+            cache.getStats().getMemoHitCounter().add(memo.hits);
+        }
+    }
+
+    public static class Memo {
+
+        private final int generation;
+        private final Object result;
+        private int hits = 0;
+
+        private Memo(int generation, Object result) {
+            this.generation = generation;
+            this.result = result;
+        }
+
+        /**
+         * Count a hit and return the result.
+         * @return
+         */
+        public Object hit() {
+            hits++;
+            return result;
+        }
+    }
+}
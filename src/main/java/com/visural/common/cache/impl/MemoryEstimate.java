@@ -0,0 +1,64 @@
+/*
+ *  Copyright 2026 the visural-common contributors.
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+package com.visural.common.cache.impl;
+
+/**
+ * Result of a {@link MemoryEstimator}.
+ */
+public class MemoryEstimate {
+
+    private final long bytes;
+    private final long errorBytes;
+    private final int sampled;
+    private final int entries;
+
+    public MemoryEstimate(long bytes, long errorBytes, int sampled, int entries) {
+        this.bytes = bytes;
+        this.errorBytes = errorBytes;
+        this.sampled = sampled;
+        this.entries = entries;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * The actual size is within this many bytes of the estimate, with 95%
+     * confidence. 0 if every entry was measured.
+     * @return
+     */
+    public long getErrorBytes() {
+        return errorBytes;
+    }
+
+    /**
+     * Number of entries measured.
+     * @return
+     */
+    public int getSampled() {
+        return sampled;
+    }
+
+    /**
+     * Number of entries in the cache at the time.
+     * @return
+     */
+    public int getEntries() {
+        return entries;
+    }
+}
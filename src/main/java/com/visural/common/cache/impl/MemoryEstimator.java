@@ -0,0 +1,148 @@
+/*
+ *  Copyright 2026 the visural-common contributors.
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+package com.visural.common.cache.impl;
+
+import com.visural.common.ObjectSize;
+import java.util.Random;
+
+/**
+ * Estimates the memory used by a cache's entries from a random sample of
+ * them, rather than by walking every entry.
+ *
+ * Up to {@link #SAMPLE_SIZE} entries are picked by reservoir sampling and
+ * measured one at a time with {@link ObjectSize}, stopping early once
+ * {@link #TIME_BUDGET_NANOS} has been spent. The mean size is scaled up to
+ * the number of entries, with a 95% confidence bound from the sample's
+ * variance. Objects shared between entries are counted once per entry.
+ *
+ * An estimate is reused for the number of milliseconds given by the system
+ * property {@value #PERIOD_PROPERTY}, one minute by default.
+ */
+public class MemoryEstimator {
+
+    public static final String PERIOD_PROPERTY = "com.visural.common.cache.memoryEstimatePeriod";
+    public static final int SAMPLE_SIZE = 200;
+    public static final long TIME_BUDGET_NANOS = 50000000L;
+
+    private static final long DEFAULT_PERIOD = 60000;
+    // entries measured even if the time budget has run out
+    private static final int MIN_SAMPLE_SIZE = 10;
+    // CacheEntry and its ConcurrentHashMap node
+    private static final int ENTRY_OVERHEAD = 96;
+    private static final double Z_95 = 1.96;
+
+    private final long period;
+    private final Random random = new Random();
+    private MemoryEstimate last;
+    private long lastTime;
+
+    public MemoryEstimator() {
+        this(Long.getLong(PERIOD_PROPERTY, DEFAULT_PERIOD));
+    }
+
+    /**
+     * @param period milliseconds to reuse an estimate for
+     */
+    public MemoryEstimator(long period) {
+        this.period = period;
+    }
+
+    /**
+     * Return the last estimate, or make a new one if it is too old.
+     * @param segments
+     * @return
+     */
+    public synchronized MemoryEstimate estimate(CacheStore[] segments) {
+        long now = CacheTimer.currentTimeMillis();
+        if (last == null || now - lastTime >= period) {
+            last = sample(segments);
+            lastTime = now;
+        }
+        return last;
+    }
+
+    private MemoryEstimate sample(CacheStore[] segments) {
+        int size = 0;
+        for (CacheStore segment : segments) {
+            size += segment.size();
+        }
+        CacheEntry[] sample = new CacheEntry[Math.min(SAMPLE_SIZE, size)];
+        int entries = 0;
+        for (CacheStore segment : segments) {
+            for (CacheEntry e : segment.asMap().values()) {
+                if (entries < sample.length) {
+                    sample[entries] = e;
+                } else {
+                    int n = random.nextInt(entries + 1);
+                    if (n < sample.length) {
+                        sample[n] = e;
+                    }
+                }
+                entries++;
+            }
+        }
+        long start = System.nanoTime();
+        double sum = 0;
+        double sumOfSquares = 0;
+        int measured = 0;
+        int count = Math.min(entries, sample.length);
+        for (int n = 0; n < count; n++) {
+            if (measured >= MIN_SAMPLE_SIZE && System.nanoTime() - start > TIME_BUDGET_NANOS) {
+                break;
+            }
+            // measure in random order, so stopping early doesn't bias the sample
+            int swap = n + random.nextInt(count - n);
+            CacheEntry e = sample[swap];
+            sample[swap] = sample[n];
+            sample[n] = e;
+            double bytes = measure(sample[n]);
+            sum += bytes;
+            sumOfSquares += bytes * bytes;
+            measured++;
+        }
+        if (measured == 0) {
+            return new MemoryEstimate(0, 0, 0, entries);
+        }
+        double mean = sum / measured;
+        double error = 0;
+        if (measured > 1 && measured < entries) {
+            double variance = Math.max(0, (sumOfSquares - measured * mean * mean) / (measured - 1));
+            // finite population correction, as entries are sampled without replacement
+            double correction = (double) (entries - measured) / (entries - 1);
+            error = Z_95 * entries * Math.sqrt(variance / measured * correction);
+        }
+        return new MemoryEstimate(Math.round(mean * entries), Math.round(error), measured, entries);
+    }
+
+    private static long measure(CacheEntry e) {
+        long bytes = ENTRY_OVERHEAD;
+        if (e.getKey() != null) {
+            bytes += ObjectSize.estimate(e.getKey());
+        }
+        Object result;
+        try {
+            result = e.getResult();
+        } catch (IllegalStateException ex) {
+            // soft reference cleared
+            result = null;
+        }
+        if (result != null) {
+            bytes += ObjectSize.estimate(result);
+        }
+        return bytes;
+    }
+}
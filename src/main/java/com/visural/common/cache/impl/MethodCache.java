@@ -16,19 +16,37 @@
  */
 package com.visural.common.cache.impl;
 
-import com.visural.common.ObjectSize;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.JdkFutureAdapters;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.visural.common.IOUtil;
 import com.visural.common.cache.Cache;
-import com.visural.common.cache.EvictionStrategy;
+import com.visural.common.cache.CacheSettings;
+import com.visural.common.cache.CacheScope;
 import com.visural.common.cache.KeyProvider;
 import com.visural.common.cache.MethodCall;
-import com.visural.common.collection.LRUCache;
+import com.visural.common.cache.Weigher;
+import com.visural.common.io.ByteBufferInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
 import java.lang.ref.SoftReference;
 import java.lang.reflect.Method;
-import java.util.Comparator;
-import java.util.HashMap;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -38,68 +56,169 @@ public class MethodCache {
 
     private final String cacheName;
     private final Cache settings;
-    private Map<String, CacheEntry> cache;
-    private PriorityQueue<CacheEntry> sortedEntries = null;
+    private final CacheStore[] segments;
+    private final int segmentMask;
     private final KeyProvider kp;
+    private final Weigher weigher;
+    private final OffHeapStore offHeap;
+    private final DiskStore disk;
+    private final ClassLoader classLoader;
+    private final boolean async;
+    private final int bulkIndex;
+    private final Method method;
     private final CacheStats stats = new CacheStats();
+    private volatile int maxEntries;
+    // created when first needed, see getStatsSnapshot() and setSampleHitRatios()
+    private volatile MemoryEstimator memoryEstimator = null;
+    private volatile HitRatioSampler hitRatioSampler = null;
+    private final ConcurrentMap<Object, InFlightLoad> loads = new ConcurrentHashMap<Object, InFlightLoad>();
+    // changed by each invalidation, see MemoScope
+    private final AtomicInteger generation = new AtomicInteger();
 
     public MethodCache(Cache settings, Method m, KeyProvider kp) {
+        this(settings, m, m.getDeclaringClass(), kp);
+    }
+
+    /**
+     * @param settings
+     * @param m
+     * @param scopeClass the class the cache is for, which differs from the
+     * method's declaring class for a class scoped cache of a subclass
+     * @param kp
+     */
+    public MethodCache(Cache settings, Method m, Class<?> scopeClass, KeyProvider kp) {
         this.cacheName = m.toString();
         this.settings = settings;        
+        this.maxEntries = settings.maxEntries();
         if (settings.maxEntries() <= 0) {
             throw new IllegalArgumentException(String.format("Method '%s' has @Cache with maxEntries <= 0", m));            
         }
+        if (settings.refreshAfter() < 0) {
+            throw new IllegalArgumentException(String.format("Method '%s' has @Cache with refreshAfter < 0", m));
+        }
+        if (settings.timeToLive() > 0 && settings.refreshAfter() >= settings.timeToLive()) {
+            throw new IllegalArgumentException(String.format("Method '%s' has @Cache with refreshAfter >= timeToLive", m));
+        }
+        if (settings.concurrencyLevel() <= 0 || settings.concurrencyLevel() > settings.maxEntries()) {
+            throw new IllegalArgumentException(String.format("Method '%s' has @Cache with concurrencyLevel <= 0 or > maxEntries", m));
+        }
+        if (settings.maxWeight() < 0) {
+            throw new IllegalArgumentException(String.format("Method '%s' has @Cache with maxWeight < 0", m));
+        }
+        this.bulkIndex = settings.bulk() ? bulkIndex(settings, m) : -1;
+        if (settings.nullTimeToLive() < 0) {
+            throw new IllegalArgumentException(String.format("Method '%s' has @Cache with nullTimeToLive < 0", m));
+        }
+        if (settings.cacheExceptions().length > 0 && settings.exceptionTimeToLive() <= 0) {
+            throw new IllegalArgumentException(String.format("Method '%s' has @Cache with cacheExceptions and exceptionTimeToLive <= 0", m));
+        }
+        if (settings.maxWeight() > 0) {
+            try {
+                weigher = settings.weigher().newInstance();
+            } catch (Exception e) {
+                throw new IllegalArgumentException(String.format("Method '%s' has @Cache with weigher which can not be created", m), e);
+            }
+        } else {
+            weigher = null;
+        }
+        // a power of two number of segments, so a segment is picked by masking
+        int count = Integer.highestOneBit(settings.concurrencyLevel());
+        if (count < settings.concurrencyLevel() && count * 2 <= settings.maxEntries()) {
+            count *= 2;
+        }
+        this.segments = new CacheStore[count];
+        this.segmentMask = count - 1;
+        // round up, so small caches still hold at least maxEntries in total
+        int segmentEntries = (int) (((long) settings.maxEntries() + count - 1) / count);
+        long segmentWeight = (settings.maxWeight() + count - 1) / count;
+        boolean expiring = settings.timeToLive() > 0 || settings.nullTimeToLive() > 0
+                || settings.cacheExceptions().length > 0;
+        for (int n = 0; n < count; n++) {
+            segments[n] = new CacheStore(segmentEntries, segmentWeight, newPolicy(settings, segmentEntries),
+                    stats, expiring);
+            if (expiring) {
+                CacheTimer.register(segments[n]);
+            }
+        }
+        if (settings.offHeapBytes() < 0) {
+            throw new IllegalArgumentException(String.format("Method '%s' has @Cache with offHeapBytes < 0", m));
+        }
+        offHeap = settings.offHeapBytes() > 0 ? new OffHeapStore(settings.offHeapBytes(), count) : null;
+        if (settings.diskBytes() < 0) {
+            throw new IllegalArgumentException(String.format("Method '%s' has @Cache with diskBytes < 0", m));
+        }
+        if (settings.diskBytes() > 0 && settings.scope() == CacheScope.INSTANCE) {
+            // an instance's results couldn't be told apart from another's on disk
+            throw new IllegalArgumentException(String.format("Method '%s' has @Cache with diskBytes and INSTANCE scope", m));
+        }
+        this.disk = settings.diskBytes() > 0 ? openDiskStore(m, scopeClass, settings.diskBytes()) : null;
+        if (offHeap != null || (disk != null && !settings.diskWriteThrough())) {
+            EvictionListener demoter = new EvictionListener() {
+                public void onEviction(CacheEntry e) {
+                    demote(e);
+                }
+            };
+            for (CacheStore segment : segments) {
+                segment.setEvictionListener(demoter);
+            }
+        }
+        this.classLoader = m.getDeclaringClass().getClassLoader();
+        // only where a ListenableFuture can be returned in place of the method's own
+        this.async = Future.class.isAssignableFrom(m.getReturnType())
+                && m.getReturnType().isAssignableFrom(ListenableFuture.class);
+        this.kp = kp;
+        this.method = m;
+    }
+
+    /**
+     * @return the index of the first Collection parameter of a bulk method
+     */
+    private static int bulkIndex(Cache settings, Method m) {
+        if (!m.getReturnType().isAssignableFrom(LinkedHashMap.class) || !Map.class.isAssignableFrom(m.getReturnType())) {
+            throw new IllegalArgumentException(String.format("Method '%s' has @Cache with bulk, but does not return Map", m));
+        }
+        if (settings.refreshAfter() > 0) {
+            throw new IllegalArgumentException(String.format("Method '%s' has @Cache with bulk and refreshAfter", m));
+        }
+        Class<?>[] types = m.getParameterTypes();
+        for (int n = 0; n < types.length; n++) {
+            if (Collection.class.isAssignableFrom(types[n])) {
+                if (types[n].isAssignableFrom(ArrayList.class) || types[n].isAssignableFrom(LinkedHashSet.class)) {
+                    return n;
+                }
+                break;
+            }
+        }
+        throw new IllegalArgumentException(String.format("Method '%s' has @Cache with bulk, but no Collection, List or Set parameter", m));
+    }
+
+    private static EvictionPolicy newPolicy(Cache settings, int maxEntries) {
         switch (settings.evictionStrategy()) {
             case FIFO:
-                sortedEntries = new PriorityQueue<CacheEntry>(11, new Comparator<CacheEntry>() {
-                    public int compare(CacheEntry o1, CacheEntry o2) {
-                        return Long.valueOf(o1.getCreated()).compareTo(o2.getCreated());
-                    }
-                }); 
-                cache = new HashMap();
-                break;
+                return new LRUEvictionPolicy(false);
             case LFU:
-                sortedEntries = new PriorityQueue<CacheEntry>(11, new Comparator<CacheEntry>() {
-                    public int compare(CacheEntry o1, CacheEntry o2) {
-                        int result = Long.valueOf(o1.getUses()).compareTo(o2.getUses());
-                        if (result == 0) {
-                            // fallback to FIFO for same match
-                            result = Long.valueOf(o1.getCreated()).compareTo(o2.getCreated());
-                        } 
-                        return result;
-                    }
-                }); 
-                cache = new HashMap();
-                break;
+                return new LFUEvictionPolicy(false);
             case LFU_TIMECOST:
-                sortedEntries = new PriorityQueue<CacheEntry>(11, new Comparator<CacheEntry>() {
-                    public int compare(CacheEntry o1, CacheEntry o2) {
-                        int result = Long.valueOf(o1.getUsesByTimecost()).compareTo(o2.getUsesByTimecost());
-                        if (result == 0) {
-                            // fallback to FIFO for same match
-                            result = Long.valueOf(o1.getCreated()).compareTo(o2.getCreated());
-                        } 
-                        return result;
-                    }
-                }); 
-                cache = new HashMap();
-                break;
+                return new LFUEvictionPolicy(true);
             case LRU:
-                cache = new LRUCache<String, CacheEntry>(settings.maxEntries()) {
-                    @Override
-                    protected boolean removeEldestEntry(Entry eldest) {
-                        boolean remove = super.removeEldestEntry(eldest);
-                        if (remove) {
-                            stats.getEvictionCount().incrementAndGet();
-                        }
-                        return remove;
-                    }                    
-                };
-                break;
+                return new LRUEvictionPolicy(true);
+            case TINY_LFU:
+                return new TinyLFUEvictionPolicy(maxEntries);
             default:
                 throw new IllegalStateException("Should not happen.");
         }
-        this.kp = kp;
+    }
+
+    private CacheStore segmentFor(Object key) {
+        if (segmentMask == 0) {
+            return segments[0];
+        }
+        // spread the hash, as ConcurrentHashMap does, so that keys with poor
+        // low bits still use every segment
+        int h = key.hashCode();
+        h ^= (h >>> 20) ^ (h >>> 12);
+        h ^= (h >>> 7) ^ (h >>> 4);
+        return segments[h & segmentMask];
     }
 
     public CacheStats getStats() {
@@ -107,73 +226,574 @@ public class MethodCache {
     }
     
     public CacheStatsSnapshot getStatsSnapshot(boolean estimateMemory) {
-        int mem = 0;
+        MemoryEstimate mem = null;
+        int entries = 0;
+        long totalWeight = 0;
+        for (CacheStore segment : segments) {
+            entries += segment.size();
+            totalWeight += segment.getTotalWeight();
+        }
         if (estimateMemory) {
             try {
-                mem = ObjectSize.estimate(cache);
+                mem = getMemoryEstimator().estimate(segments);
             } catch (Throwable t) {
                 logger.log(Level.WARNING, "Unable to determine cache size for MethodCache -> "+cacheName, t);
             }
         }
-        return new CacheStatsSnapshot(stats, cache.size(), mem);
+        HitRatioSampler sampler = hitRatioSampler;
+        return new CacheStatsSnapshot.Builder(stats)
+                .entries(entries)
+                .totalWeight(totalWeight)
+                .offHeapBytes(offHeap == null ? 0 : offHeap.getUsedBytes())
+                .diskBytes(disk == null ? 0 : disk.getUsedBytes())
+                .estimatedMemoryUsage(mem == null ? 0 : mem.getBytes())
+                .estimatedMemoryError(mem == null ? 0 : mem.getErrorBytes())
+                .hitRatioCurve(sampler == null ? new HitRatioCurve()
+                        : sampler.getCurve(stats.getHitCounter().sum() + stats.getMissCounter().sum()))
+                .build();
+    }
+
+    private MemoryEstimator getMemoryEstimator() {
+        MemoryEstimator estimator = memoryEstimator;
+        if (estimator == null) {
+            synchronized (this) {
+                if (memoryEstimator == null) {
+                    memoryEstimator = new MemoryEstimator();
+                }
+                estimator = memoryEstimator;
+            }
+        }
+        return estimator;
+    }
+
+    /**
+     * Whether to sample the hit ratio the cache would get at other sizes,
+     * for {@link CacheStatsSnapshot#getHitRatioCurve()}. Off by default, as
+     * it takes time on every get. Turning it off discards the samples.
+     * @param sampleHitRatios
+     */
+    public synchronized void setSampleHitRatios(boolean sampleHitRatios) {
+        if (sampleHitRatios && hitRatioSampler == null) {
+            hitRatioSampler = new HitRatioSampler();
+        } else if (!sampleHitRatios) {
+            hitRatioSampler = null;
+        }
     }
 
     public Cache getSettings() {
         return settings;
     }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    /**
+     * The settings of the cache, as changed at runtime.
+     * @return
+     */
+    public CacheSettings getCacheSettings() {
+        CacheSettings result = new CacheSettings(settings);
+        result.setMaxEntries(maxEntries);
+        return result;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * Change the maximum number of entries, in place of the @Cache setting.
+     * Entries are evicted straight away if the cache has shrunk.
+     * @param maxEntries
+     */
+    public void setMaxEntries(int maxEntries) {
+        if (maxEntries <= 0 || maxEntries < segments.length) {
+            throw new IllegalArgumentException(String.format("Method '%s' can not be resized to %d entries", cacheName, maxEntries));
+        }
+        this.maxEntries = maxEntries;
+        int segmentEntries = (int) (((long) maxEntries + segments.length - 1) / segments.length);
+        for (CacheStore segment : segments) {
+            segment.setMaxEntries(segmentEntries);
+        }
+    }
     
-    public CacheEntry get(MethodCall mc) {
-        String key = kp.getKey(mc);
+    /**
+     * The key for a call to this method, to pass to the other methods.
+     * @param mc
+     * @return
+     */
+    public Object getKey(MethodCall mc) {
+        return kp.getKey(mc);
+    }
+
+    public CacheEntry get(Object key) {
+        HitRatioSampler sampler = hitRatioSampler;
+        if (sampler != null) {
+            sampler.record(key);
+        }
+        CacheStore cache = segmentFor(key);
         CacheEntry c = cache.get(key);
         if (c != null) {
             if (c.isExpired()) {
-                invalidateCache(key);
+                if (cache.remove(key, c)) {
+                    stats.getExpirationCounter().increment();
+                }
                 c = null;                
             } else {
-                c.incrementUses();                
-                if (sortedEntries != null && !settings.evictionStrategy().equals(EvictionStrategy.FIFO)) {
-                    synchronized(this) {
-                        sortedEntries.remove(c);
-                        sortedEntries.add(c);
-                    }
-                }                
+                c.incrementUses();
+                cache.recordAccess(c);
+            }
+        }
+        if (c == null && offHeap != null) {
+            c = promote(key);
+            if (c != null) {
+                stats.getOffHeapHitCounter().increment();
+            }
+        }
+        if (c == null && disk != null) {
+            c = read(key);
+            if (c != null) {
+                stats.getDiskHitCounter().increment();
             }
         }
         if (c == null) {
-            stats.getMissCount().incrementAndGet();
+            stats.getMissCounter().increment();
         } else {
-            stats.getHitCount().incrementAndGet();
+            stats.getHitCounter().increment();
+            if (c.isNegative()) {
+                stats.getNegativeHitCounter().increment();
+            }
         }
         return c;
     }
     
-    public synchronized void put(long created, long timeCost, MethodCall methodCall, Object result) {
-        String key = kp.getKey(methodCall);
-        CacheEntry e = settings.softValues() ? 
-                new CacheEntry(key, created, settings.timeToLive(), timeCost, new SoftReference(result)) :
-                new CacheEntry(key, created, settings.timeToLive(), timeCost, result);
-        cache.put(key, e);
-        stats.getLoadCount().incrementAndGet();
-        stats.getTotalLoadTime().addAndGet(e.getTimeCost());
-        if (sortedEntries != null) {
-            if (sortedEntries.size() >= settings.maxEntries()) {
-                CacheEntry r = sortedEntries.poll();
-                cache.remove(r.getKey());
-                stats.getEvictionCount().incrementAndGet();
+    /**
+     * Return the cached entry for the call, if any, without recording a
+     * hit or miss.
+     * @param key
+     * @return
+     */
+    public CacheEntry peek(Object key) {
+        CacheEntry c = segmentFor(key).get(key);
+        return c == null || c.isExpired() ? null : c;
+    }
+
+    /**
+     * Register a load of the given key, unless one is already in progress.
+     * @param key
+     * @param load the caller's load
+     * @return the given load if it was registered, or the load already in progress
+     */
+    public InFlightLoad startLoad(Object key, InFlightLoad load) {
+        InFlightLoad existing = loads.putIfAbsent(key, load);
+        return existing != null ? existing : load;
+    }
+
+    /**
+     * Deregister a load started with {@link #startLoad(Object, InFlightLoad)}.
+     * Should be called after the result has been put in the cache.
+     * @param key
+     * @param load
+     */
+    public void endLoad(Object key, InFlightLoad load) {
+        loads.remove(key, load);
+    }
+
+    public void put(long created, long timeCost, Object key, Object result) {
+        CacheEntry e = newEntry(key, created, timeCost, result);
+        if (offHeap != null) {
+            offHeap.remove(key);
+        }
+        segmentFor(key).put(key, e);
+        if (disk != null) {
+            if (settings.diskWriteThrough()) {
+                write(key, e, serialize(result));
+            } else {
+                // the new result is spilled when evicted, until then the old
+                // one mustn't be read back
+                removeFromDisk(key);
             }
-            sortedEntries.add(e);
         }
+        stats.getLoadCounter().increment();
+        stats.getTotalLoadTimeCounter().add(e.getTimeCost());
+        stats.getLoadLatency().record(e.getTimeCost());
     }
     
+    /**
+     * Whether this is a bulk method, see {@link Cache#bulk()}.
+     * @return
+     */
+    public boolean isBulk() {
+        return bulkIndex >= 0;
+    }
+
+    /**
+     * The index of the Collection parameter of a bulk method.
+     * @return
+     */
+    public int getBulkIndex() {
+        return bulkIndex;
+    }
+
+    /**
+     * Create a collection of the given elements, which can be passed as the
+     * Collection parameter of a bulk method.
+     * @param elements
+     * @return
+     */
+    public Collection<?> newBulkArgument(Collection<?> elements) {
+        Class<?> type = method.getParameterTypes()[bulkIndex];
+        return type.isAssignableFrom(ArrayList.class) ? new ArrayList<Object>(elements) : new LinkedHashSet<Object>(elements);
+    }
+
+    /**
+     * Whether the method returns a Future, in which case the cache holds its
+     * value once it completes, rather than the Future itself.
+     * @return
+     */
+    public boolean isAsync() {
+        return async;
+    }
+
+    /**
+     * Cache the Future returned by the method. Until it completes, the cache
+     * holds it as a {@link PendingFuture}, so that callers share it. If it
+     * succeeds its value replaces it, with the time taken to complete as the
+     * time cost. If it fails it is removed, unless the exception is to be
+     * cached.
+     * @param key
+     * @param startNanos when the call was made
+     * @param future
+     * @param replace whether the pending future replaces any current entry,
+     *        rather than only the value replacing it once complete
+     * @return the future to return to the caller
+     */
+    public ListenableFuture<?> putFuture(final Object key, final long startNanos, Future<?> future, boolean replace) {
+        final ListenableFuture<?> listenable = future instanceof ListenableFuture
+                ? (ListenableFuture<?>) future : JdkFutureAdapters.listenInPoolThread(future);
+        final CacheEntry pending = replace 
+                ? new CacheEntry(key, CacheTimer.currentTimeMillis(), settings.timeToLive(), 0, new PendingFuture(listenable))
+                : null;
+        if (pending != null) {
+            if (offHeap != null) {
+                offHeap.remove(key);
+            }
+            segmentFor(key).put(key, pending);
+        }
+        Futures.addCallback(listenable, new FutureCallback<Object>() {
+            public void onSuccess(Object result) {
+                // unless invalidated or replaced in the meantime
+                if (pending == null || segmentFor(key).get(key) == pending) {
+                    put(CacheTimer.currentTimeMillis(), System.nanoTime() - startNanos, key, result);
+                }
+            }
+            public void onFailure(Throwable t) {
+                if (pending == null) {
+                    return;
+                }
+                if (isCachedException(t) && segmentFor(key).get(key) == pending) {
+                    putException(CacheTimer.currentTimeMillis(), System.nanoTime() - startNanos, key, t);
+                } else {
+                    segmentFor(key).remove(key, pending);
+                }
+            }
+        }, MoreExecutors.sameThreadExecutor());
+        return listenable;
+    }
+
+    /**
+     * Whether the given exception, thrown by the method, should be cached.
+     * @param t
+     * @return
+     */
+    public boolean isCachedException(Throwable t) {
+        for (Class<? extends Throwable> c : settings.cacheExceptions()) {
+            if (c.isInstance(t)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Cache an exception thrown by the method, see {@link #isCachedException(Throwable)}.
+     * It only replaces the entry in memory, so is never written to the off
+     * heap or disk tiers.
+     * @param created
+     * @param timeCost
+     * @param key
+     * @param t
+     */
+    public void putException(long created, long timeCost, Object key, Throwable t) {
+        CacheEntry e = new CacheEntry(key, created, settings.exceptionTimeToLive(), timeCost, new CachedException(t));
+        e.setNegative(true);
+        if (offHeap != null) {
+            offHeap.remove(key);
+        }
+        segmentFor(key).put(key, e);
+        stats.getLoadCounter().increment();
+        stats.getTotalLoadTimeCounter().add(e.getTimeCost());
+        stats.getLoadLatency().record(e.getTimeCost());
+    }
+
+    private CacheEntry newEntry(Object key, long created, long timeCost, Object result) {
+        boolean negative = result == null && settings.nullTimeToLive() > 0;
+        int ttl = negative ? settings.nullTimeToLive() : settings.timeToLive();
+        CacheEntry e = settings.softValues() ? 
+                new CacheEntry(key, created, ttl, timeCost, new SoftReference(result)) :
+                new CacheEntry(key, created, ttl, timeCost, result);
+        e.setNegative(negative);
+        if (weigher != null) {
+            e.setWeight(weigh(result));
+        }
+        return e;
+    }
+
+    /**
+     * Move an entry evicted from the heap to the off heap tier, and spill it
+     * to the disk tier unless it was written there when loaded, if its result
+     * can be serialized. Called on the writing thread, but outside of the heap
+     * cache's lock.
+     */
+    private void demote(CacheEntry e) {
+        Object result;
+        try {
+            result = e.getResult();
+        } catch (IllegalStateException ex) {
+            // soft reference already cleared
+            return;
+        }
+        if (result instanceof CachedException || result instanceof PendingFuture) {
+            return;
+        }
+        byte[] data = e.isExpired() ? null : serialize(result);
+        if (data == null) {
+            return;
+        }
+        if (offHeap != null) {
+            offHeap.put(e.getKey(), e.getCreated(), e.getTtl(), e.getTimeCost(), data);
+        }
+        if (disk != null && !settings.diskWriteThrough()) {
+            write(e.getKey(), e, data);
+        }
+    }
+
+    /**
+     * Move an entry from the off heap tier back to the heap.
+     * @return the entry, or null if there was none, or it has expired
+     */
+    private CacheEntry promote(Object key) {
+        SerializedResult r = offHeap.take(key);
+        return r == null ? null : restore(key, r);
+    }
+
+    /**
+     * @param resultData the serialized result, or null to remove any record
+     * if the result can't be serialized
+     */
+    private void write(Object key, CacheEntry e, byte[] resultData) {
+        byte[] keyData = serialize(key);
+        if (keyData == null) {
+            return;
+        }
+        try {
+            if (resultData != null) {
+                disk.put(diskKey(keyData), e.getCreated(), e.getTtl(), e.getTimeCost(), diskRecord(keyData, resultData));
+            } else {
+                disk.remove(diskKey(keyData));
+            }
+        } catch (IOException ex) {
+            logger.log(Level.WARNING, "Unable to write to disk cache -> "+cacheName, ex);
+        }
+    }
+
+    private void removeFromDisk(Object key) {
+        byte[] keyData = serialize(key);
+        if (keyData == null) {
+            return;
+        }
+        try {
+            disk.remove(diskKey(keyData));
+        } catch (IOException ex) {
+            logger.log(Level.WARNING, "Unable to write to disk cache -> "+cacheName, ex);
+        }
+    }
+
+    /**
+     * Copy an entry from the disk tier to the heap.
+     * @return the entry, or null if there was none, or it has expired
+     */
+    private CacheEntry read(Object key) {
+        byte[] keyData = serialize(key);
+        if (keyData == null) {
+            return null;
+        }
+        SerializedResult r = disk.get(diskKey(keyData));
+        if (r == null) {
+            return null;
+        }
+        ByteBuffer data = r.getData();
+        if (!isRecordFor(data, keyData)) {
+            // a different key with the same digest
+            return null;
+        }
+        data.position(data.position() + 4 + keyData.length);
+        CacheEntry e = restore(key, new SerializedResult(r.getCreated(), r.getTtl(), r.getTimeCost(), data.slice()));
+        if (e == null) {
+            removeFromDisk(key);
+        }
+        return e;
+    }
+
+    /**
+     * Disk records are stored by a digest of the serialized key, which works
+     * across restarts where hash codes may not, and keys which merely print
+     * the same don't share a record.
+     */
+    private static String diskKey(byte[] keyData) {
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256").digest(keyData);
+        } catch (NoSuchAlgorithmException ex) {
+            // every Java platform must support SHA-256
+            throw new IllegalStateException(ex);
+        }
+        StringBuilder sb = new StringBuilder(digest.length * 2);
+        for (byte b : digest) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Disk records hold the serialized key ahead of the result, so that a
+     * different key with the same digest is never served its result.
+     */
+    private static byte[] diskRecord(byte[] keyData, byte[] resultData) {
+        ByteBuffer record = ByteBuffer.allocate(4 + keyData.length + resultData.length);
+        record.putInt(keyData.length);
+        record.put(keyData);
+        record.put(resultData);
+        return record.array();
+    }
+
+    private static boolean isRecordFor(ByteBuffer record, byte[] keyData) {
+        int start = record.position();
+        if (record.remaining() < 4 + keyData.length || record.getInt(start) != keyData.length) {
+            return false;
+        }
+        for (int n = 0; n < keyData.length; n++) {
+            if (record.get(start + 4 + n) != keyData[n]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the serialized result, or null if it can't be serialized
+     */
+    private byte[] serialize(Object result) {
+        if (result != null && !(result instanceof Serializable)) {
+            return null;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            IOUtil.writeObject(bytes, (Serializable) result);
+        } catch (IllegalStateException ex) {
+            logger.log(Level.FINE, "Unable to serialize result for MethodCache -> "+cacheName, ex);
+            return null;
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Put a serialized result back in the heap cache, unless a load has put
+     * a newer result there in the meantime.
+     * @return the entry now in the heap cache, or null if the result has
+     * expired or can't be deserialized
+     */
+    private CacheEntry restore(Object key, SerializedResult r) {
+        Object result;
+        try {
+            result = IOUtil.readObject(Serializable.class, classLoader, new ByteBufferInputStream(r.getData()));
+        } catch (IllegalStateException ex) {
+            logger.log(Level.WARNING, "Unable to deserialize result for MethodCache -> "+cacheName, ex);
+            return null;
+        }
+        CacheEntry e = newEntry(key, r.getCreated(), r.getTimeCost(), result);
+        if (e.isExpired()) {
+            stats.getExpirationCounter().increment();
+            return null;
+        }
+        CacheStore cache = segmentFor(key);
+        CacheEntry existing = cache.putIfAbsent(key, e);
+        if (existing != null) {
+            existing.incrementUses();
+            cache.recordAccess(existing);
+            return existing;
+        }
+        return e;
+    }
+
+    private static DiskStore openDiskStore(Method m, Class<?> scopeClass, long capacity) {
+        String base = System.getProperty(Cache.DISK_DIRECTORY_PROPERTY,
+                new File(System.getProperty("java.io.tmpdir"), "visural-cache").getPath());
+        // one directory per class and method, readable but short enough for any file system
+        String name = scopeClass.getName() + "." + m.getName();
+        name = name.replaceAll("[^A-Za-z0-9_.-]", "_") + "-" + Integer.toHexString(m.toString().hashCode());
+        try {
+            return DiskStore.open(new File(base, name), capacity);
+        } catch (IOException ex) {
+            logger.log(Level.WARNING, String.format("Disk cache disabled for '%s'", m), ex);
+            return null;
+        }
+    }
+
+    private int weigh(Object result) {
+        int weight = weigher.weigh(result);
+        if (weight < 0) {
+            throw new IllegalStateException(String.format("Weigher %s returned negative weight for %s", weigher.getClass().getName(), cacheName));
+        }
+        return weight;
+    }
+
+    /**
+     * Changed by each invalidation, after the results have been removed, so
+     * results memoized before it can be recognized and discarded.
+     * @return
+     */
+    public int getGeneration() {
+        return generation.get();
+    }
+
     public void invalidateCache(MethodCall methodCall) {
-        invalidateCache(kp.getKey(methodCall));
+        Object key = kp.getKey(methodCall);
+        segmentFor(key).remove(key);
+        if (offHeap != null) {
+            offHeap.remove(key);
+        }
+        if (disk != null) {
+            removeFromDisk(key);
+        }
+        generation.incrementAndGet();
     }    
     
-    private synchronized void invalidateCache(String key) {
-        cache.remove(key);
-    }
-    
     public void invalidateCache() {
-        cache.clear();
+        for (CacheStore segment : segments) {
+            segment.clear();
+        }
+        if (offHeap != null) {
+            offHeap.clear();
+        }
+        if (disk != null) {
+            try {
+                disk.clear();
+            } catch (IOException ex) {
+                logger.log(Level.WARNING, "Unable to clear disk cache -> "+cacheName, ex);
+            }
+        }
+        generation.incrementAndGet();
     }    
 }
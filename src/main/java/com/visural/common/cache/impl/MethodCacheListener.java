@@ -0,0 +1,31 @@
+/*
+ *  Copyright 2026 the visural-common contributors.
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+package com.visural.common.cache.impl;
+
+/**
+ * Told when a {@link MethodCache} is first used by a {@link com.visural.common.cache.Cacheable}
+ * instance, e.g. to start monitoring it.
+ */
+public interface MethodCacheListener {
+
+    /**
+     * @param className the class the cache's statistics are reported under,
+     * see {@link CacheInterceptor#getStatistics(boolean)}
+     * @param method the method's toString()
+     */
+    void onCreate(String className, String method);
+}
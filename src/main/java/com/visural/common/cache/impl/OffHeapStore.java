@@ -0,0 +1,311 @@
+/*
+ *  Copyright 2026 the visural-common contributors.
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+package com.visural.common.cache.impl;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Serialized cache values held outside the Java heap, in direct
+ * {@link ByteBuffer} slabs.
+ *
+ * Values are appended to the current slab. When it is full the next slab in
+ * the ring becomes current, and anything still stored in it is evicted, so
+ * space is reclaimed a whole slab at a time in first in, first out order.
+ * Slabs are allocated as they are first needed.
+ *
+ * The store can be split by key hash into segments, each with its own ring
+ * of slabs and its own lock, so that threads using different keys don't
+ * contend. Each segment evicts independently.
+ *
+ * Values are only copied in and out of the slabs here; serialization is done
+ * by the caller, outside of this store's locks.
+ */
+public class OffHeapStore {
+
+    private static final int MAX_SLAB_SIZE = 4 * 1024 * 1024;
+
+    private final Segment[] segments;
+    private final int segmentMask;
+
+    /**
+     * A store with a single segment.
+     * @param capacity maximum number of bytes to allocate, rounded up to a
+     * whole number of slabs
+     */
+    public OffHeapStore(long capacity) {
+        this(capacity, 1);
+    }
+
+    /**
+     * @param capacity maximum number of bytes to allocate, rounded up to a
+     * whole number of slabs
+     * @param concurrencyLevel number of segments to split the store into,
+     * rounded down to a power of two and to no more than the number of slabs
+     */
+    public OffHeapStore(long capacity, int concurrencyLevel) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be > 0");
+        }
+        if (concurrencyLevel <= 0) {
+            throw new IllegalArgumentException("Concurrency level must be > 0");
+        }
+        int slabSize = (int) Math.min(MAX_SLAB_SIZE, capacity);
+        long slabCount = (capacity + slabSize - 1) / slabSize;
+        if (slabCount > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Capacity is too large");
+        }
+        int count = Integer.highestOneBit((int) Math.min(concurrencyLevel, slabCount));
+        segments = new Segment[count];
+        segmentMask = count - 1;
+        for (int n = 0; n < count; n++) {
+            // share out the slabs, so the segments hold no more than the capacity
+            int slabs = (int) (slabCount / count + (n < slabCount % count ? 1 : 0));
+            segments[n] = new Segment(slabSize, slabs);
+        }
+    }
+
+    /**
+     * Store a serialized value, replacing any stored for the same key.
+     * @param key
+     * @param created
+     * @param ttl
+     * @param timeCost
+     * @param data
+     * @return false if the value is too large to be stored
+     */
+    public boolean put(Object key, long created, int ttl, long timeCost, byte[] data) {
+        return segmentFor(key).put(key, created, ttl, timeCost, data);
+    }
+
+    /**
+     * Remove and return the value for the key, e.g. to move it back on heap.
+     * @param key
+     * @return the value, or null if none is stored
+     */
+    public SerializedResult take(Object key) {
+        return segmentFor(key).take(key);
+    }
+
+    public void remove(Object key) {
+        segmentFor(key).remove(key);
+    }
+
+    /**
+     * Remove all values. Allocated slabs are kept for reuse.
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * Bytes held by stored values.
+     * @return
+     */
+    public long getUsedBytes() {
+        long used = 0;
+        for (Segment segment : segments) {
+            used += segment.getUsedBytes();
+        }
+        return used;
+    }
+
+    /**
+     * Bytes of direct memory allocated for slabs.
+     * @return
+     */
+    public long getAllocatedBytes() {
+        long allocated = 0;
+        for (Segment segment : segments) {
+            allocated += segment.getAllocatedBytes();
+        }
+        return allocated;
+    }
+
+    /**
+     * Number of values dropped to make room for others.
+     * @return
+     */
+    public long getEvictionCount() {
+        long evictions = 0;
+        for (Segment segment : segments) {
+            evictions += segment.getEvictionCount();
+        }
+        return evictions;
+    }
+
+    /**
+     * Number of segments the store is split into.
+     * @return
+     */
+    public int getSegmentCount() {
+        return segments.length;
+    }
+
+    private Segment segmentFor(Object key) {
+        if (segmentMask == 0) {
+            return segments[0];
+        }
+        // spread the hash, as MethodCache does for its segments
+        int h = key.hashCode();
+        h ^= (h >>> 20) ^ (h >>> 12);
+        h ^= (h >>> 7) ^ (h >>> 4);
+        return segments[h & segmentMask];
+    }
+
+    private static class Segment {
+
+        private final int slabSize;
+        private final ByteBuffer[] slabs;
+        private final List<List<Object>> slabKeys;
+        private final Map<Object, Slot> index = new HashMap<Object, Slot>();
+        private int current = 0;
+        private int position = 0;
+        private long usedBytes = 0;
+        private long evictionCount = 0;
+
+        private Segment(int slabSize, int count) {
+            this.slabSize = slabSize;
+            slabs = new ByteBuffer[count];
+            slabKeys = new ArrayList<List<Object>>(count);
+            for (int n = 0; n < count; n++) {
+                slabKeys.add(new ArrayList<Object>());
+            }
+        }
+
+        synchronized boolean put(Object key, long created, int ttl, long timeCost, byte[] data) {
+            remove(key);
+            if (data.length > slabSize) {
+                return false;
+            }
+            if (position + data.length > slabSize) {
+                current = (current + 1) % slabs.length;
+                position = 0;
+                recycle(current);
+            }
+            if (slabs[current] == null) {
+                slabs[current] = ByteBuffer.allocateDirect(slabSize);
+            }
+            ByteBuffer b = slabs[current].duplicate();
+            b.position(position);
+            b.put(data);
+            index.put(key, new Slot(current, position, data.length, created, ttl, timeCost));
+            slabKeys.get(current).add(key);
+            position += data.length;
+            usedBytes += data.length;
+            return true;
+        }
+
+        synchronized SerializedResult take(Object key) {
+            Slot s = index.remove(key);
+            if (s == null) {
+                return null;
+            }
+            usedBytes -= s.length;
+            byte[] data = new byte[s.length];
+            ByteBuffer b = slabs[s.slab].duplicate();
+            b.position(s.offset);
+            b.get(data);
+            return new SerializedResult(s.created, s.ttl, s.timeCost, ByteBuffer.wrap(data));
+        }
+
+        synchronized void remove(Object key) {
+            Slot s = index.remove(key);
+            if (s != null) {
+                usedBytes -= s.length;
+            }
+        }
+
+        synchronized void clear() {
+            index.clear();
+            for (List<Object> keys : slabKeys) {
+                keys.clear();
+            }
+            current = 0;
+            position = 0;
+            usedBytes = 0;
+        }
+
+        synchronized int size() {
+            return index.size();
+        }
+
+        synchronized long getUsedBytes() {
+            return usedBytes;
+        }
+
+        synchronized long getAllocatedBytes() {
+            long allocated = 0;
+            for (ByteBuffer slab : slabs) {
+                if (slab != null) {
+                    allocated += slab.capacity();
+                }
+            }
+            return allocated;
+        }
+
+        synchronized long getEvictionCount() {
+            return evictionCount;
+        }
+
+        private void recycle(int slab) {
+            List<Object> keys = slabKeys.get(slab);
+            for (Object key : keys) {
+                Slot s = index.get(key);
+                // the key may since have been removed or stored again elsewhere
+                if (s != null && s.slab == slab) {
+                    index.remove(key);
+                    usedBytes -= s.length;
+                    evictionCount++;
+                }
+            }
+            keys.clear();
+        }
+    }
+
+    private static class Slot {
+
+        private final int slab;
+        private final int offset;
+        private final int length;
+        private final long created;
+        private final int ttl;
+        private final long timeCost;
+
+        private Slot(int slab, int offset, int length, long created, int ttl, long timeCost) {
+            this.slab = slab;
+            this.offset = offset;
+            this.length = length;
+            this.created = created;
+            this.ttl = ttl;
+            this.timeCost = timeCost;
+        }
+    }
+}
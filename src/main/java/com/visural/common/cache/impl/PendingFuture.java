@@ -0,0 +1,36 @@
+/*
+ *  Copyright 2026 the visural-common contributors.
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+package com.visural.common.cache.impl;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+/**
+ * Cached result of a call to a method returning a Future, which hasn't
+ * completed yet. Replaced by the future's value once it completes.
+ */
+public class PendingFuture {
+
+    private final ListenableFuture<?> future;
+
+    public PendingFuture(ListenableFuture<?> future) {
+        this.future = future;
+    }
+
+    public ListenableFuture<?> getFuture() {
+        return future;
+    }
+}
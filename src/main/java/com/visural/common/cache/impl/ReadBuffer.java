@@ -0,0 +1,114 @@
+/*
+ *  Copyright 2026 the visural-common contributors.
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+package com.visural.common.cache.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lossy, striped buffer of reads waiting to be replayed, e.g. cache hits
+ * against an {@link EvictionPolicy}.
+ *
+ * Reading threads record without locking, each into a stripe chosen by
+ * thread id. A single thread holding the owner's lock drains the buffer. If
+ * a stripe is full the read is simply dropped, which only makes the replay
+ * slightly less precise.
+ */
+class ReadBuffer<E> {
+
+    static final int STRIPE_SIZE = 16;
+    static final int DRAIN_THRESHOLD = STRIPE_SIZE / 2;
+    private static final int STRIPE_MASK = STRIPE_SIZE - 1;
+    private static final int MAX_STRIPES = 16;
+
+    private final AtomicReferenceArray<Stripe<E>> stripes;
+    private final int stripeMask;
+
+    ReadBuffer() {
+        int count = 1;
+        while (count < Runtime.getRuntime().availableProcessors() && count < MAX_STRIPES) {
+            count <<= 1;
+        }
+        stripes = new AtomicReferenceArray<Stripe<E>>(count);
+        stripeMask = count - 1;
+    }
+
+    /**
+     * Record a read.
+     * @param e
+     * @return true if the buffer should be drained soon
+     */
+    boolean record(E e) {
+        int index = (int) Thread.currentThread().getId() & stripeMask;
+        Stripe<E> s = stripes.get(index);
+        if (s == null) {
+            // stripes are created lazily as many caches are small and single threaded
+            stripes.compareAndSet(index, null, new Stripe<E>());
+            s = stripes.get(index);
+        }
+        long w = s.writes.get();
+        long pending = w - s.reads;
+        if (pending >= STRIPE_SIZE) {
+            return true;
+        }
+        if (s.writes.compareAndSet(w, w + 1)) {
+            s.slots.lazySet((int) w & STRIPE_MASK, e);
+        }
+        return pending + 1 >= DRAIN_THRESHOLD;
+    }
+
+    /**
+     * Replay buffered reads. Must be called with the owner's lock held.
+     * @param handler
+     */
+    void drainTo(Handler<? super E> handler) {
+        for (int n = 0; n < stripes.length(); n++) {
+            Stripe<E> s = stripes.get(n);
+            if (s == null) {
+                continue;
+            }
+            long r = s.reads;
+            long w = s.writes.get();
+            for (; r < w; r++) {
+                int index = (int) r & STRIPE_MASK;
+                E e = s.slots.get(index);
+                if (e == null) {
+                    // slot claimed but not yet written, pick it up next time
+                    break;
+                }
+                s.slots.lazySet(index, null);
+                handler.onRead(e);
+            }
+            s.reads = r;
+        }
+    }
+
+    /**
+     * Replays the reads drained from a buffer.
+     */
+    interface Handler<E> {
+
+        void onRead(E e);
+    }
+
+    private static class Stripe<E> {
+
+        private final AtomicLong writes = new AtomicLong();
+        private volatile long reads;
+        private final AtomicReferenceArray<E> slots = new AtomicReferenceArray<E>(STRIPE_SIZE);
+    }
+}
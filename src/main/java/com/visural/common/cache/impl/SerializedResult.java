@@ -0,0 +1,58 @@
+/*
+ *  Copyright 2026 the visural-common contributors.
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+package com.visural.common.cache.impl;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A cached result read back from a serialized tier, along with the
+ * {@link CacheEntry} data needed to restore it.
+ */
+public class SerializedResult {
+
+    private final long created;
+    private final int ttl;
+    private final long timeCost;
+    private final ByteBuffer data;
+
+    public SerializedResult(long created, int ttl, long timeCost, ByteBuffer data) {
+        this.created = created;
+        this.ttl = ttl;
+        this.timeCost = timeCost;
+        this.data = data;
+    }
+
+    public long getCreated() {
+        return created;
+    }
+
+    public int getTtl() {
+        return ttl;
+    }
+
+    public long getTimeCost() {
+        return timeCost;
+    }
+
+    /**
+     * The serialized result, from the buffer's position to its limit.
+     * @return
+     */
+    public ByteBuffer getData() {
+        return data;
+    }
+}
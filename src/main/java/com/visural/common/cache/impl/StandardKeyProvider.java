@@ -16,43 +16,183 @@
  */
 package com.visural.common.cache.impl;
 
+import com.google.common.collect.MapMaker;
+import com.visural.common.cache.CacheKey;
 import com.visural.common.cache.KeyIgnore;
 import com.visural.common.cache.KeyProvider;
 import com.visural.common.cache.MethodCall;
 import com.visural.common.cache.WithCacheId;
 import java.lang.annotation.Annotation;
+import java.lang.reflect.Array;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
- * Key provider that uses argument.toString() and detected {@link WithCacheId}
+ * Key provider that uses the arguments themselves, or detected
+ * {@link WithCacheId}, as a {@link CacheKey}.
+ *
+ * Arguments which have their own equals() are used as they are, and must not
+ * be changed after the call. Arrays, Lists, Sets, Maps and Dates are copied,
+ * so changing one afterwards doesn't change the key. Other arguments are
+ * compared by toString(), as all arguments were before keys held the
+ * arguments, rather than by identity.
+ *
+ * The parameters of each method are inspected once, so building a key needs
+ * no reflection.
  * @author Richard Nichols
  */
 public class StandardKeyProvider implements KeyProvider {
+
+    // whether a class has its own equals(), weak so classes can be unloaded
+    private static final ConcurrentMap<Class<?>, Boolean> ownEquals = new MapMaker().weakKeys().makeMap();
+
+    private final ConcurrentMap<Method, KeyPlan> plans = new ConcurrentHashMap<Method, KeyPlan>();
     
-    public String getKey(MethodCall methodCall) {
-        StringBuilder key = new StringBuilder(/*methodCall.getMethod().getName()*/);
-        int n = 0;
-        for (Object o : methodCall.getArguments()) {
-            if (!hasIgnoreAnnotation(methodCall.getMethod(), n++)) {
-                key.append("~~");
-                if (o != null && WithCacheId.class.isAssignableFrom(o.getClass())) {
-                    WithCacheId wci = WithCacheId.class.cast(o);
-                    key.append(wci.__cacheId());
-                } else if (o != null) {
-                    key.append(o.toString());
-                }
+    public CacheKey getKey(MethodCall methodCall) {
+        KeyPlan plan = plans.get(methodCall.getMethod());
+        if (plan == null) {
+            plan = new KeyPlan(methodCall.getMethod());
+            plans.putIfAbsent(methodCall.getMethod(), plan);
+        }
+        return plan.getKey(methodCall.getArguments());
+    }
+
+    /**
+     * @return the argument as it is used in a key
+     */
+    private static Object keyPart(Object o) {
+        if (o == null) {
+            return null;
+        }
+        Class<?> c = o.getClass();
+        if (c.isArray()) {
+            int length = Array.getLength(o);
+            if (c.getComponentType().isPrimitive()) {
+                Object copy = Array.newInstance(c.getComponentType(), length);
+                System.arraycopy(o, 0, copy, 0, length);
+                return copy;
+            }
+            Object[] copy = new Object[length];
+            for (int n = 0; n < length; n++) {
+                copy[n] = keyPart(((Object[]) o)[n]);
+            }
+            return copy;
+        }
+        // common mutable types with their own equals(), which the caller may
+        // well change or reuse after the call
+        if (o instanceof List) {
+            List<Object> copy = new ArrayList<Object>(((List<?>) o).size());
+            for (Object e : (List<?>) o) {
+                copy.add(keyPart(e));
+            }
+            return copy;
+        }
+        if (o instanceof Set) {
+            Set<Object> copy = new HashSet<Object>();
+            for (Object e : (Set<?>) o) {
+                copy.add(keyPart(e));
+            }
+            return copy;
+        }
+        if (o instanceof Map) {
+            Map<Object, Object> copy = new HashMap<Object, Object>();
+            for (Map.Entry<?, ?> e : ((Map<?, ?>) o).entrySet()) {
+                copy.put(keyPart(e.getKey()), keyPart(e.getValue()));
             }
+            return copy;
         }
-        return key.toString();
+        if (o instanceof Date) {
+            return ((Date) o).clone();
+        }
+        return hasOwnEquals(c) ? o : o.toString();
     }
 
-    private boolean hasIgnoreAnnotation(Method method, int i) {
-        Annotation[] as = method.getParameterAnnotations()[i];
-        for (Annotation a : as) {
-            if (KeyIgnore.class.isAssignableFrom(a.annotationType())) {
-                return true;
+    private static boolean hasOwnEquals(Class<?> c) {
+        Boolean result = ownEquals.get(c);
+        if (result == null) {
+            try {
+                result = c.getMethod("equals", Object.class).getDeclaringClass() != Object.class;
+            } catch (NoSuchMethodException ex) {
+                throw new IllegalStateException("Should not happen.", ex);
+            }
+            ownEquals.put(c, result);
+        }
+        return result;
+    }
+
+    /**
+     * Which arguments of a method make up its key, and which of those may
+     * need to be replaced by their {@link WithCacheId#__cacheId()}.
+     */
+    private static class KeyPlan {
+
+        private static final byte PLAIN = 0;
+        private static final byte CACHE_ID = 1;
+        // may be WithCacheId, an array, or without its own equals()
+        private static final byte CHECKED = 2;
+
+        private final int[] positions;
+        private final byte[] kinds;
+
+        KeyPlan(Method method) {
+            Class<?>[] types = method.getParameterTypes();
+            Annotation[][] annotations = method.getParameterAnnotations();
+            int[] p = new int[types.length];
+            byte[] k = new byte[types.length];
+            int count = 0;
+            for (int n = 0; n < types.length; n++) {
+                if (!hasIgnoreAnnotation(annotations[n])) {
+                    p[count] = n;
+                    k[count++] = kind(types[n]);
+                }
+            }
+            positions = Arrays.copyOf(p, count);
+            kinds = Arrays.copyOf(k, count);
+        }
+
+        private static byte kind(Class<?> type) {
+            if (WithCacheId.class.isAssignableFrom(type)) {
+                return CACHE_ID;
+            }
+            // a subclass, or an implementation of an interface type, may be WithCacheId
+            if (type.isPrimitive() || (Modifier.isFinal(type.getModifiers()) && !type.isArray() && hasOwnEquals(type))) {
+                return PLAIN;
+            }
+            return CHECKED;
+        }
+
+        CacheKey getKey(Object[] args) {
+            Object[] parts = new Object[positions.length];
+            for (int n = 0; n < positions.length; n++) {
+                Object o = args[positions[n]];
+                if (kinds[n] != PLAIN && o != null) {
+                    if (kinds[n] == CACHE_ID || o instanceof WithCacheId) {
+                        o = ((WithCacheId) o).__cacheId();
+                    }
+                    o = keyPart(o);
+                }
+                parts[n] = o;
+            }
+            return new CacheKey(parts);
+        }
+
+        private static boolean hasIgnoreAnnotation(Annotation[] as) {
+            for (Annotation a : as) {
+                if (KeyIgnore.class.isAssignableFrom(a.annotationType())) {
+                    return true;
+                }
             }
+            return false;
         }
-        return false;
     }
 }
@@ -0,0 +1,125 @@
+/*
+ *  Copyright 2026 the visural-common contributors.
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+package com.visural.common.cache.impl;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counter which stays cheap to update when many threads update it at once,
+ * along the lines of Java 8's LongAdder.
+ *
+ * Updates go to a single base value until two threads collide on it. From
+ * then on each thread adds to one of a set of cells, each on its own cache
+ * line, and moves to another cell whenever it collides again. Reading the
+ * value sums the base and all cells, so is slower than updating, and is not
+ * an atomic snapshot while updates are in progress.
+ *
+ * With a single processor threads never update at the same time, and only
+ * collide when one is preempted mid update, so the base is always used.
+ */
+public class StripedCounter implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    // longs per 64 byte cache line
+    private static final int PAD = 8;
+    private static final int MAX_CELLS = 64;
+    private static final int CELLS;
+    private static final boolean STRIPED = Runtime.getRuntime().availableProcessors() > 1;
+    static {
+        int cells = 2;
+        while (cells < Runtime.getRuntime().availableProcessors() && cells < MAX_CELLS) {
+            cells <<= 1;
+        }
+        CELLS = cells;
+    }
+
+    private static final ThreadLocal<int[]> probe = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            int h = (int) (Thread.currentThread().getId() * 0x9e3779b97f4a7c15L >>> 32);
+            return new int[]{h == 0 ? 1 : h};
+        }
+    };
+
+    private final AtomicLong base;
+    private volatile AtomicLongArray cells;
+
+    public StripedCounter() {
+        this(0);
+    }
+
+    public StripedCounter(long initialValue) {
+        base = new AtomicLong(initialValue);
+    }
+
+    public void increment() {
+        add(1);
+    }
+
+    public void add(long x) {
+        if (!STRIPED) {
+            base.addAndGet(x);
+            return;
+        }
+        AtomicLongArray cs = cells;
+        if (cs == null) {
+            long b = base.get();
+            if (base.compareAndSet(b, b + x)) {
+                return;
+            }
+            cs = createCells();
+        }
+        int[] h = probe.get();
+        int i = (h[0] & (CELLS - 1)) * PAD;
+        long v = cs.get(i);
+        if (!cs.compareAndSet(i, v, v + x)) {
+            // another thread shares this cell, so use a different one next time
+            int r = h[0];
+            r ^= r << 13;
+            r ^= r >>> 17;
+            r ^= r << 5;
+            h[0] = r;
+            cs.addAndGet(i, x);
+        }
+    }
+
+    private synchronized AtomicLongArray createCells() {
+        if (cells == null) {
+            cells = new AtomicLongArray(CELLS * PAD);
+        }
+        return cells;
+    }
+
+    public long sum() {
+        long sum = base.get();
+        AtomicLongArray cs = cells;
+        if (cs != null) {
+            for (int n = 0; n < CELLS; n++) {
+                sum += cs.get(n * PAD);
+            }
+        }
+        return sum;
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(sum());
+    }
+}
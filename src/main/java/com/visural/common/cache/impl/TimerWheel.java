@@ -0,0 +1,162 @@
+/*
+ *  Copyright 2026 the visural-common contributors.
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+package com.visural.common.cache.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Hierarchical timer wheel of {@link CacheEntry} expiry times.
+ *
+ * Each level has 64 buckets, covering roughly 16ms, 1s, 1m, 1h and 3 days
+ * each. An entry is linked into the bucket of the lowest level that can hold
+ * its expiry time, so scheduling and removal are O(1). As time advances the
+ * buckets passed over are emptied; entries which have expired are returned
+ * and the rest are moved down to a finer level. Entries may be reported up to
+ * one bucket (~16ms) after they expire.
+ *
+ * Not thread safe.
+ */
+public class TimerWheel {
+
+    private static final int BUCKETS = 64;
+    private static final int[] SHIFTS = {4, 10, 16, 22, 28};
+
+    private final CacheEntry[] buckets = new CacheEntry[SHIFTS.length * BUCKETS];
+    private long time;
+    private int size;
+
+    /**
+     * @param now the current time in milliseconds
+     */
+    public TimerWheel(long now) {
+        this.time = now;
+    }
+
+    /**
+     * Schedule expiry of an entry with a time to live.
+     * @param e
+     */
+    public void schedule(CacheEntry e) {
+        long expiresAt = Math.max(e.getExpiresAt(), time);
+        long delta = expiresAt - time;
+        int level = 0;
+        while (level < SHIFTS.length - 1 && delta >= (1L << SHIFTS[level + 1])) {
+            level++;
+        }
+        int bucket = level * BUCKETS + (int) ((expiresAt >>> SHIFTS[level]) & (BUCKETS - 1));
+        CacheEntry head = buckets[bucket];
+        e.wheelBucket = bucket;
+        e.wheelPrev = null;
+        e.wheelNext = head;
+        if (head != null) {
+            head.wheelPrev = e;
+        }
+        buckets[bucket] = e;
+        size++;
+    }
+
+    /**
+     * Cancel expiry of an entry. Does nothing if it isn't scheduled.
+     * @param e
+     */
+    public void remove(CacheEntry e) {
+        if (e.wheelBucket < 0) {
+            return;
+        }
+        if (e.wheelPrev != null) {
+            e.wheelPrev.wheelNext = e.wheelNext;
+        } else {
+            buckets[e.wheelBucket] = e.wheelNext;
+        }
+        if (e.wheelNext != null) {
+            e.wheelNext.wheelPrev = e.wheelPrev;
+        }
+        unlinked(e);
+    }
+
+    /**
+     * Advance the wheel to the given time.
+     * @param now the current time in milliseconds
+     * @return entries which have expired, which are no longer scheduled
+     */
+    public List<CacheEntry> advance(long now) {
+        long previous = time;
+        if (now <= previous) {
+            return Collections.emptyList();
+        }
+        time = now;
+        List<CacheEntry> expired = null;
+        for (int level = 0; level < SHIFTS.length; level++) {
+            long start = previous >>> SHIFTS[level];
+            long end = now >>> SHIFTS[level];
+            if (start == end) {
+                // coarser levels can't have moved either
+                break;
+            }
+            if (end - start >= BUCKETS) {
+                start = end - BUCKETS + 1;
+            }
+            for (long tick = start; tick <= end; tick++) {
+                int bucket = level * BUCKETS + (int) (tick & (BUCKETS - 1));
+                CacheEntry e = buckets[bucket];
+                buckets[bucket] = null;
+                while (e != null) {
+                    CacheEntry next = e.wheelNext;
+                    unlinked(e);
+                    if (e.getExpiresAt() <= now) {
+                        if (expired == null) {
+                            expired = new ArrayList<CacheEntry>();
+                        }
+                        expired.add(e);
+                    } else {
+                        schedule(e);
+                    }
+                    e = next;
+                }
+            }
+        }
+        return expired == null ? Collections.<CacheEntry>emptyList() : expired;
+    }
+
+    public void clear() {
+        for (int n = 0; n < buckets.length; n++) {
+            CacheEntry e = buckets[n];
+            buckets[n] = null;
+            while (e != null) {
+                CacheEntry next = e.wheelNext;
+                unlinked(e);
+                e = next;
+            }
+        }
+    }
+
+    /**
+     * @return the number of scheduled entries
+     */
+    public int size() {
+        return size;
+    }
+
+    private void unlinked(CacheEntry e) {
+        e.wheelBucket = -1;
+        e.wheelPrev = null;
+        e.wheelNext = null;
+        size--;
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ *  Copyright 2026 the visural-common contributors.
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+package com.visural.common.cache.impl;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Window TinyLFU eviction order (see {@link com.visural.common.cache.EvictionStrategy#TINY_LFU}).
+ *
+ * New entries go into a small LRU window. Entries leaving the window compete
+ * with the least recently used entry of the main region, and only the one
+ * which a {@link FrequencySketch} says has been requested more often
+ * recently is kept. The main region is a segmented LRU: entries hit while on
+ * probation are promoted to a protected segment, which holds 80% of it.
+ */
+public class TinyLFUEvictionPolicy implements EvictionPolicy {
+
+    private static final double WINDOW_RATIO = 0.01;
+    private static final double PROTECTED_RATIO = 0.8;
+
+    private final FrequencySketch sketch;
+    private final LinkedHashMap<CacheEntry, Boolean> window = new LinkedHashMap<CacheEntry, Boolean>();
+    private final LinkedHashMap<CacheEntry, Boolean> probation = new LinkedHashMap<CacheEntry, Boolean>();
+    private final LinkedHashMap<CacheEntry, Boolean> protectedSegment = new LinkedHashMap<CacheEntry, Boolean>();
+    private int windowMax;
+    private int mainMax;
+    private int protectedMax;
+
+    public TinyLFUEvictionPolicy(int maxEntries) {
+        sketch = new FrequencySketch(maxEntries);
+        resize(maxEntries);
+    }
+
+    /**
+     * Resizes the window and main regions. The frequency sketch keeps its
+     * original size, so is less accurate if the cache has grown a lot.
+     * @param maxEntries
+     */
+    public void resize(int maxEntries) {
+        windowMax = Math.max(1, (int) (maxEntries * WINDOW_RATIO));
+        mainMax = Math.max(1, maxEntries - windowMax);
+        protectedMax = (int) (mainMax * PROTECTED_RATIO);
+        while (protectedSegment.size() > protectedMax) {
+            probation.put(removeFirst(protectedSegment), Boolean.TRUE);
+        }
+    }
+
+    public boolean isAccessOrdered() {
+        return true;
+    }
+
+    public void onInsert(CacheEntry e) {
+        sketch.increment(e.getKey());
+        window.put(e, Boolean.TRUE);
+    }
+
+    public void onAccess(CacheEntry e) {
+        sketch.increment(e.getKey());
+        if (window.remove(e) != null) {
+            window.put(e, Boolean.TRUE);
+        } else if (probation.remove(e) != null) {
+            protectedSegment.put(e, Boolean.TRUE);
+            if (protectedSegment.size() > protectedMax) {
+                probation.put(removeFirst(protectedSegment), Boolean.TRUE);
+            }
+        } else if (protectedSegment.remove(e) != null) {
+            protectedSegment.put(e, Boolean.TRUE);
+        }
+    }
+
+    public void onRemove(CacheEntry e) {
+        if (window.remove(e) == null && probation.remove(e) == null) {
+            protectedSegment.remove(e);
+        }
+    }
+
+    public CacheEntry evict() {
+        // let the window overflow into the main region while it has room
+        while (window.size() > windowMax && probation.size() + protectedSegment.size() < mainMax) {
+            probation.put(removeFirst(window), Boolean.TRUE);
+        }
+        if (window.size() > windowMax) {
+            CacheEntry candidate = first(window);
+            LinkedHashMap<CacheEntry, Boolean> mainVictims = probation.isEmpty() ? protectedSegment : probation;
+            CacheEntry victim = first(mainVictims);
+            if (victim != null && sketch.frequency(candidate.getKey()) > sketch.frequency(victim.getKey())) {
+                mainVictims.remove(victim);
+                window.remove(candidate);
+                probation.put(candidate, Boolean.TRUE);
+                return victim;
+            }
+            window.remove(candidate);
+            return candidate;
+        }
+        if (!probation.isEmpty()) {
+            return removeFirst(probation);
+        }
+        if (!protectedSegment.isEmpty()) {
+            return removeFirst(protectedSegment);
+        }
+        return removeFirst(window);
+    }
+
+    public void clear() {
+        window.clear();
+        probation.clear();
+        protectedSegment.clear();
+    }
+
+    private static CacheEntry first(LinkedHashMap<CacheEntry, Boolean> segment) {
+        Iterator<CacheEntry> i = segment.keySet().iterator();
+        return i.hasNext() ? i.next() : null;
+    }
+
+    private static CacheEntry removeFirst(LinkedHashMap<CacheEntry, Boolean> segment) {
+        Iterator<CacheEntry> i = segment.keySet().iterator();
+        if (!i.hasNext()) {
+            return null;
+        }
+        CacheEntry e = i.next();
+        i.remove();
+        return e;
+    }
+}
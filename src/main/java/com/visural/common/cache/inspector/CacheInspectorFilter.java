@@ -21,6 +21,8 @@ import com.visural.common.IOUtil;
 import com.visural.common.StringUtil;
 import com.visural.common.cache.CacheModule;
 import com.visural.common.cache.impl.CacheStatsAggregated;
+import com.visural.common.cache.impl.CacheStatsSnapshot;
+import com.visural.common.cache.impl.HitRatioCurve;
 import java.io.IOException;
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
@@ -76,6 +78,7 @@ public class CacheInspectorFilter implements Filter {
     public static void setCacheModule(CacheModule module) {
         CacheInspectorFilter.module = new WeakReference<CacheModule>(module);
         module.getInterceptor().setTrackReferences(true);
+        module.getInterceptor().setSampleHitRatios(true);
     }
     
     public void init(FilterConfig fc) throws ServletException {
@@ -147,6 +150,13 @@ public class CacheInspectorFilter implements Filter {
     }
     
     public static class StatEntry {
+        private static final double[] CURVE_FACTORS = {0.5, 1, 2, 4, 8};
+        private static final int CURVE_MAX_EXPONENT = 20;
+        // points plotted per doubling of size
+        private static final int CURVE_STEPS = 4;
+        private static final int CURVE_WIDTH = 160;
+        private static final int CURVE_HEIGHT = 40;
+
         private final String method;
         private final String methodName;
         private final CacheStatsAggregated stats;
@@ -179,6 +189,71 @@ public class CacheInspectorFilter implements Filter {
             return StringUtil.formatDecimal((double)stats.getCombinedStats().getAverageLoadTimeNanos()/1000000.0, 2);
         }
 
+        /**
+         * p50 / p90 / p99 / p99.9 load times
+         * @return
+         */
+        public String getLoadTimePercentilesMillis() {
+            CacheStatsSnapshot s = stats.getCombinedStats();
+            StringBuilder sb = new StringBuilder();
+            for (double p : new double[]{50, 90, 99, 99.9}) {
+                if (sb.length() > 0) {
+                    sb.append(" / ");
+                }
+                sb.append(StringUtil.formatDecimal((double)s.getLoadTimePercentileNanos(p)/1000000.0, 2));
+            }
+            return sb.toString();
+        }
+
+        /**
+         * Estimated hit rate at half, one, two, four and eight times maxEntries.
+         * @return
+         */
+        public String getHitRatioBySize() {
+            HitRatioCurve curve = stats.getCombinedStats().getHitRatioCurve();
+            StringBuilder sb = new StringBuilder();
+            for (double f : CURVE_FACTORS) {
+                long size = Math.max(1, (long)(stats.getSettings().getMaxEntries() * f));
+                sb.append(size).append(": ").append(StringUtil.formatDecimal(curve.getHitRatio(size)*100, 1)).append("% ");
+            }
+            return sb.toString().trim();
+        }
+
+        /**
+         * Inline SVG plot of the estimated hit rate against cache size, with
+         * sizes on a log scale and the current maxEntries marked.
+         * @return
+         */
+        public String getHitRatioCurveSvg() {
+            HitRatioCurve curve = stats.getCombinedStats().getHitRatioCurve();
+            StringBuilder sb = new StringBuilder();
+            sb.append("<svg width=\"").append(CURVE_WIDTH).append("\" height=\"").append(CURVE_HEIGHT).append("\">");
+            sb.append("<rect width=\"").append(CURVE_WIDTH).append("\" height=\"").append(CURVE_HEIGHT).append("\" fill=\"#fff\" stroke=\"#aaa\"/>");
+            if (curve.getSampledAccesses() > 0) {
+                sb.append("<polyline fill=\"none\" stroke=\"#06c\" points=\"");
+                for (int n = 0; n <= CURVE_MAX_EXPONENT * CURVE_STEPS; n++) {
+                    double exponent = (double) n / CURVE_STEPS;
+                    long size = Math.round(Math.pow(2, exponent));
+                    sb.append(curveX(exponent)).append(',')
+                            .append(Math.round(CURVE_HEIGHT - curve.getHitRatio(size) * CURVE_HEIGHT)).append(' ');
+                }
+                sb.append("\"/>");
+                double current = Math.log(stats.getSettings().getMaxEntries()) / Math.log(2);
+                long x = curveX(Math.min(current, CURVE_MAX_EXPONENT));
+                sb.append("<line x1=\"").append(x).append("\" y1=\"0\" x2=\"").append(x).append("\" y2=\"").append(CURVE_HEIGHT).append("\" stroke=\"#c00\"/>");
+            }
+            sb.append("</svg>");
+            return sb.toString();
+        }
+
+        private static long curveX(double exponent) {
+            return Math.round(exponent * CURVE_WIDTH / CURVE_MAX_EXPONENT);
+        }
+
+        public String getAverageRefreshTimeMillis() {
+            return StringUtil.formatDecimal((double)stats.getCombinedStats().getAverageRefreshTimeNanos()/1000000.0, 2);
+        }
+
         public String getRowClass() {
             return rowClass;
         }
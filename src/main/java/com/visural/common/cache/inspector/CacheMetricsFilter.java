@@ -0,0 +1,259 @@
+/*
+ *  Copyright 2026 the visural-common contributors.
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+package com.visural.common.cache.inspector;
+
+import com.visural.common.StringUtil;
+import com.visural.common.cache.CacheModule;
+import com.visural.common.cache.impl.CacheStatsAggregated;
+import com.visural.common.cache.impl.CacheStatsSnapshot;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Serves cache statistics in the Prometheus text exposition format, labelled
+ * by class and method, for scraping by monitoring.
+ *
+ * Unlike {@link CacheInspectorFilter} memory usage is not estimated, so only
+ * counters already kept by the caches are read.
+ */
+public class CacheMetricsFilter implements Filter {
+
+    public static final String FILTER_PATH_PARAM = "path";
+    public static final String DEFAULT_PATH = "/_cache_metrics";
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private String filterPath = DEFAULT_PATH;
+    private static WeakReference<CacheModule> module = null;
+
+    /**
+     * You must call this with the {@link CacheModule} on which you want to serve
+     * statistics. Note that currently only one CacheModule is supported. (static)
+     * @param module
+     */
+    public static void setCacheModule(CacheModule module) {
+        CacheMetricsFilter.module = new WeakReference<CacheModule>(module);
+        module.getInterceptor().setTrackReferences(true);
+    }
+
+    public void init(FilterConfig fc) throws ServletException {
+        if (StringUtil.isNotBlank(fc.getInitParameter(FILTER_PATH_PARAM))) {
+            filterPath = fc.getInitParameter(FILTER_PATH_PARAM);
+        }
+    }
+
+    public void doFilter(ServletRequest sr, ServletResponse sr1, FilterChain fc) throws IOException, ServletException {
+        HttpServletRequest req = (HttpServletRequest) sr;
+        HttpServletResponse res = (HttpServletResponse) sr1;
+        if (req.getServletPath().startsWith(filterPath)) {
+            CacheModule m = module == null ? null : module.get();
+            if (m == null) {
+                res.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "No CacheModule has been registered with CacheMetricsFilter.class");
+                return;
+            }
+            res.setContentType(CONTENT_TYPE);
+            Writer out = new OutputStreamWriter(res.getOutputStream(), "UTF-8");
+            write(m.getStatistics(false), out);
+            out.close();
+        } else {
+            fc.doFilter(sr, sr1);
+        }
+    }
+
+    public void destroy() {
+    }
+
+    /**
+     * Write statistics, as returned by {@link CacheModule#getStatistics(boolean)},
+     * in the Prometheus text format.
+     * @param stats
+     * @param out
+     * @throws IOException
+     */
+    public static void write(Map<String, Map<String, CacheStatsAggregated>> stats, Writer out) throws IOException {
+        List<Row> rows = new ArrayList<Row>();
+        for (Entry<String, Map<String, CacheStatsAggregated>> c : new TreeMap<String, Map<String, CacheStatsAggregated>>(stats).entrySet()) {
+            for (Entry<String, CacheStatsAggregated> m : new TreeMap<String, CacheStatsAggregated>(c.getValue()).entrySet()) {
+                rows.add(new Row(c.getKey(), m.getKey().replace(c.getKey() + ".", ""), m.getValue()));
+            }
+        }
+        for (Metric metric : METRICS) {
+            out.write("# HELP " + metric.name + " " + metric.help + "\n");
+            out.write("# TYPE " + metric.name + " " + metric.type + "\n");
+            for (Row row : rows) {
+                sample(out, metric.name, row, null, metric.value(row.stats.getCombinedStats(), row.stats));
+            }
+        }
+        String name = "visural_cache_load_seconds";
+        out.write("# HELP " + name + " Time taken to load results.\n");
+        out.write("# TYPE " + name + " summary\n");
+        for (Row row : rows) {
+            CacheStatsSnapshot s = row.stats.getCombinedStats();
+            for (double q : QUANTILES) {
+                sample(out, name, row, "quantile=\"" + q + "\"", s.getLoadTimePercentileNanos(q * 100) / 1e9);
+            }
+            sample(out, name + "_sum", row, null, s.getTotalLoadTime().get() / 1e9);
+            sample(out, name + "_count", row, null, s.getLoadCount().get());
+        }
+        out.flush();
+    }
+
+    private static void sample(Writer out, String name, Row row, String extraLabel, Number value) throws IOException {
+        out.write(name);
+        out.write("{class=\"");
+        out.write(escape(row.className));
+        out.write("\",method=\"");
+        out.write(escape(row.method));
+        out.write('"');
+        if (extraLabel != null) {
+            out.write(',');
+            out.write(extraLabel);
+        }
+        out.write("} ");
+        out.write(value.toString());
+        out.write('\n');
+    }
+
+    private static String escape(String labelValue) {
+        return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static class Row {
+        private final String className;
+        private final String method;
+        private final CacheStatsAggregated stats;
+
+        public Row(String className, String method, CacheStatsAggregated stats) {
+            this.className = className;
+            this.method = method;
+            this.stats = stats;
+        }
+    }
+
+    private static abstract class Metric {
+        private final String name;
+        private final String type;
+        private final String help;
+
+        public Metric(String name, String type, String help) {
+            this.name = name;
+            this.type = type;
+            this.help = help;
+        }
+
+        abstract Number value(CacheStatsSnapshot s, CacheStatsAggregated a);
+    }
+
+    private static final Metric[] METRICS = {
+        new Metric("visural_cache_hits_total", "counter", "Calls answered from the cache.") {
+            Number value(CacheStatsSnapshot s, CacheStatsAggregated a) {
+                return s.getHitCount().get();
+            }
+        },
+        new Metric("visural_cache_misses_total", "counter", "Calls not answered from the cache.") {
+            Number value(CacheStatsSnapshot s, CacheStatsAggregated a) {
+                return s.getMissCount().get();
+            }
+        },
+        new Metric("visural_cache_memo_hits_total", "counter", "Calls answered from the request memo.") {
+            Number value(CacheStatsSnapshot s, CacheStatsAggregated a) {
+                return s.getMemoHitCount().get();
+            }
+        },
+        new Metric("visural_cache_negative_hits_total", "counter", "Hits returning a cached exception or null result.") {
+            Number value(CacheStatsSnapshot s, CacheStatsAggregated a) {
+                return s.getNegativeHitCount().get();
+            }
+        },
+        new Metric("visural_cache_off_heap_hits_total", "counter", "Hits served from the off heap tier.") {
+            Number value(CacheStatsSnapshot s, CacheStatsAggregated a) {
+                return s.getOffHeapHitCount().get();
+            }
+        },
+        new Metric("visural_cache_disk_hits_total", "counter", "Hits served from the disk tier.") {
+            Number value(CacheStatsSnapshot s, CacheStatsAggregated a) {
+                return s.getDiskHitCount().get();
+            }
+        },
+        new Metric("visural_cache_evictions_total", "counter", "Entries evicted due to capacity.") {
+            Number value(CacheStatsSnapshot s, CacheStatsAggregated a) {
+                return s.getEvictionCount().get();
+            }
+        },
+        new Metric("visural_cache_expirations_total", "counter", "Entries removed after their time to live.") {
+            Number value(CacheStatsSnapshot s, CacheStatsAggregated a) {
+                return s.getExpirationCount().get();
+            }
+        },
+        new Metric("visural_cache_coalesced_loads_total", "counter", "Misses served by another thread's load.") {
+            Number value(CacheStatsSnapshot s, CacheStatsAggregated a) {
+                return s.getCoalescedCount().get();
+            }
+        },
+        new Metric("visural_cache_refreshes_total", "counter", "Background refreshes.") {
+            Number value(CacheStatsSnapshot s, CacheStatsAggregated a) {
+                return s.getRefreshCount().get();
+            }
+        },
+        new Metric("visural_cache_entries", "gauge", "Entries held in memory.") {
+            Number value(CacheStatsSnapshot s, CacheStatsAggregated a) {
+                return s.getEntries();
+            }
+        },
+        new Metric("visural_cache_max_entries", "gauge", "Maximum entries per cache.") {
+            Number value(CacheStatsSnapshot s, CacheStatsAggregated a) {
+                return a.getSettings().getMaxEntries();
+            }
+        },
+        new Metric("visural_cache_weight", "gauge", "Total weight of entries, for caches with a maxWeight.") {
+            Number value(CacheStatsSnapshot s, CacheStatsAggregated a) {
+                return s.getTotalWeight();
+            }
+        },
+        new Metric("visural_cache_off_heap_bytes", "gauge", "Bytes held in the off heap tier.") {
+            Number value(CacheStatsSnapshot s, CacheStatsAggregated a) {
+                return s.getOffHeapBytes();
+            }
+        },
+        new Metric("visural_cache_disk_bytes", "gauge", "Bytes held in the disk tier.") {
+            Number value(CacheStatsSnapshot s, CacheStatsAggregated a) {
+                return s.getDiskBytes();
+            }
+        },
+        new Metric("visural_cache_instances", "gauge", "Instances whose caches are included.") {
+            Number value(CacheStatsSnapshot s, CacheStatsAggregated a) {
+                return a.getInstanceCount();
+            }
+        }
+    };
+}
@@ -0,0 +1,182 @@
+/*
+ *  Copyright 2026 the visural-common contributors.
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+package com.visural.common.cache.jmx;
+
+import com.visural.common.cache.CacheModule;
+import com.visural.common.cache.impl.CacheInterceptor;
+import com.visural.common.cache.impl.CacheStatsAggregated;
+import com.visural.common.cache.impl.MethodCacheListener;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+/**
+ * Registers a JMX MBean for each cached method of a {@link CacheModule},
+ * giving the statistics shown by the cache inspector, and operations to
+ * invalidate and resize the method's caches. See {@link CacheMethodStatsMBean}.
+ *
+ * MBeans are named by class and method, e.g.
+ * <code>com.visural.common.cache:type=Cache,class=com.example.Service,method="public int com.example.Service.find(java.lang.String)"</code>
+ *
+ * Like {@link com.visural.common.cache.inspector.CacheInspectorFilter} this
+ * turns on reference tracking of {@link com.visural.common.cache.Cacheable}
+ * instances, which statistics for per instance caches depend on. Register
+ * before the module's caches are used, as per instance caches already in use
+ * are not found.
+ *
+ * Statistics are gathered across all caches at once, so are shared by all
+ * the MBeans and reused for a second, rather than gathered again for each
+ * attribute of each MBean.
+ */
+public class CacheJmx implements MethodCacheListener {
+
+    public static final String DEFAULT_DOMAIN = "com.visural.common.cache";
+
+    private static final Logger logger = Logger.getLogger(CacheJmx.class.getName());
+    private static final long STATS_MAX_AGE = 1000;
+
+    private final CacheInterceptor interceptor;
+    private final MBeanServer server;
+    private final String domain;
+    private final ConcurrentMap<List<String>, ObjectName> registered = new ConcurrentHashMap<List<String>, ObjectName>();
+    private volatile Map<String, Map<String, CacheStatsAggregated>> stats;
+    private volatile long statsTime;
+
+    private CacheJmx(CacheInterceptor interceptor, MBeanServer server, String domain) {
+        this.interceptor = interceptor;
+        this.server = server;
+        this.domain = domain;
+    }
+
+    /**
+     * Register MBeans for the module with the platform MBean server.
+     * @param module
+     * @return
+     */
+    public static CacheJmx register(CacheModule module) {
+        return register(module, ManagementFactory.getPlatformMBeanServer(), DEFAULT_DOMAIN);
+    }
+
+    /**
+     * Register MBeans for the module, for its cached methods which have been
+     * used and as others are used from now on.
+     * @param module
+     * @param server
+     * @param domain the domain of the MBeans' names
+     * @return
+     */
+    public static CacheJmx register(CacheModule module, MBeanServer server, String domain) {
+        CacheInterceptor interceptor = module.getInterceptor();
+        CacheJmx jmx = new CacheJmx(interceptor, server, domain);
+        interceptor.setTrackReferences(true);
+        interceptor.setMethodCacheListener(jmx);
+        for (Entry<String, Map<String, CacheStatsAggregated>> e : interceptor.getStatistics(false).entrySet()) {
+            for (String method : e.getValue().keySet()) {
+                jmx.onCreate(e.getKey(), method);
+            }
+        }
+        return jmx;
+    }
+
+    public void onCreate(String className, String method) {
+        List<String> key = Arrays.asList(className, method);
+        if (registered.containsKey(key)) {
+            return;
+        }
+        ObjectName name = getObjectName(className, method);
+        if (registered.putIfAbsent(key, name) == null) {
+            try {
+                server.registerMBean(new CacheMethodStats(this, className, method), name);
+            } catch (JMException ex) {
+                // e.g. already registered by another module, which still owns it
+                registered.remove(key);
+                logger.log(Level.WARNING, "Unable to register cache MBean " + name, ex);
+            }
+        }
+    }
+
+    /**
+     * Remove the MBeans registered for the module.
+     */
+    public void unregister() {
+        interceptor.setMethodCacheListener(null);
+        for (ObjectName name : registered.values()) {
+            try {
+                if (server.isRegistered(name)) {
+                    server.unregisterMBean(name);
+                }
+            } catch (JMException ex) {
+                logger.log(Level.WARNING, "Unable to unregister cache MBean " + name, ex);
+            }
+        }
+        registered.clear();
+    }
+
+    /**
+     * @param className
+     * @param method
+     * @return the method's statistics, or null if it has no caches
+     */
+    CacheStatsAggregated getStatistics(String className, String method) {
+        Map<String, CacheStatsAggregated> methods = getStatistics().get(className);
+        return methods == null ? null : methods.get(method);
+    }
+
+    private Map<String, Map<String, CacheStatsAggregated>> getStatistics() {
+        if (System.currentTimeMillis() - statsTime > STATS_MAX_AGE) {
+            synchronized (this) {
+                // unless another MBean gathered them while this one waited
+                long now = System.currentTimeMillis();
+                if (now - statsTime > STATS_MAX_AGE) {
+                    stats = interceptor.getStatistics(false);
+                    statsTime = now;
+                }
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Gather statistics afresh when next asked, e.g. after an operation
+     * changed them.
+     */
+    void clearStatistics() {
+        statsTime = 0;
+    }
+
+    CacheInterceptor getInterceptor() {
+        return interceptor;
+    }
+
+    public ObjectName getObjectName(String className, String method) {
+        try {
+            return new ObjectName(domain + ":type=Cache,class=" + className + ",method=" + ObjectName.quote(method));
+        } catch (MalformedObjectNameException ex) {
+            throw new IllegalArgumentException(ex);
+        }
+    }
+}
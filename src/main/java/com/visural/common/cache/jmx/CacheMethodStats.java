@@ -0,0 +1,147 @@
+/*
+ *  Copyright 2026 the visural-common contributors.
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+package com.visural.common.cache.jmx;
+
+import com.visural.common.cache.impl.CacheInterceptor;
+import com.visural.common.cache.impl.CacheStatsAggregated;
+import com.visural.common.cache.impl.CacheStatsSnapshot;
+
+/**
+ * MBean for the caches of one method, backed by
+ * {@link CacheInterceptor#getStatistics(boolean)} through the statistics
+ * shared by its {@link CacheJmx}.
+ */
+public class CacheMethodStats implements CacheMethodStatsMBean {
+
+    private static final CacheStatsSnapshot EMPTY = new CacheStatsSnapshot.Builder().build();
+
+    private final CacheJmx jmx;
+    private final String className;
+    private final String method;
+
+    public CacheMethodStats(CacheJmx jmx, String className, String method) {
+        this.jmx = jmx;
+        this.className = className;
+        this.method = method;
+    }
+
+    /**
+     * @return the method's statistics, or null if it has no caches
+     */
+    private CacheStatsAggregated getStats() {
+        return jmx.getStatistics(className, method);
+    }
+
+    private CacheStatsSnapshot getSnapshot() {
+        CacheStatsAggregated s = getStats();
+        return s == null ? EMPTY : s.getCombinedStats();
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public int getInstanceCount() {
+        CacheStatsAggregated s = getStats();
+        return s == null ? 0 : s.getInstanceCount();
+    }
+
+    public long getRequestCount() {
+        return getSnapshot().getRequestCount();
+    }
+
+    public long getHitCount() {
+        return getSnapshot().getHitCount().get();
+    }
+
+    public long getMissCount() {
+        return getSnapshot().getMissCount().get();
+    }
+
+    public double getHitRate() {
+        CacheStatsSnapshot s = getSnapshot();
+        return s.getRequestCount() == 0 ? 0 : s.getHitRate();
+    }
+
+    public long getLoadCount() {
+        return getSnapshot().getLoadCount().get();
+    }
+
+    public long getTotalLoadTimeNanos() {
+        return getSnapshot().getTotalLoadTime().get();
+    }
+
+    public long getAverageLoadTimeNanos() {
+        CacheStatsSnapshot s = getSnapshot();
+        return s.getLoadCount().get() == 0 ? 0 : s.getAverageLoadTimeNanos();
+    }
+
+    public long getLoadTimeP99Nanos() {
+        return getSnapshot().getLoadTimePercentileNanos(99);
+    }
+
+    public long getEvictionCount() {
+        return getSnapshot().getEvictionCount().get();
+    }
+
+    public long getExpirationCount() {
+        return getSnapshot().getExpirationCount().get();
+    }
+
+    public long getCoalescedCount() {
+        return getSnapshot().getCoalescedCount().get();
+    }
+
+    public long getRefreshCount() {
+        return getSnapshot().getRefreshCount().get();
+    }
+
+    public int getEntries() {
+        return getSnapshot().getEntries();
+    }
+
+    public long getTotalWeight() {
+        return getSnapshot().getTotalWeight();
+    }
+
+    public long getOffHeapBytes() {
+        return getSnapshot().getOffHeapBytes();
+    }
+
+    public long getDiskBytes() {
+        return getSnapshot().getDiskBytes();
+    }
+
+    public int getMaxEntries() {
+        CacheStatsAggregated s = getStats();
+        return s == null ? 0 : s.getSettings().getMaxEntries();
+    }
+
+    public void invalidate() {
+        jmx.getInterceptor().invalidateCache(className, method);
+        jmx.clearStatistics();
+    }
+
+    public void resize(int maxEntries) {
+        jmx.getInterceptor().setMaxEntries(className, method, maxEntries);
+        jmx.clearStatistics();
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ *  Copyright 2026 the visural-common contributors.
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+package com.visural.common.cache.jmx;
+
+/**
+ * Management interface for the caches of one method, see {@link CacheJmx}.
+ */
+public interface CacheMethodStatsMBean {
+
+    String getClassName();
+
+    String getMethod();
+
+    int getInstanceCount();
+
+    long getRequestCount();
+
+    long getHitCount();
+
+    long getMissCount();
+
+    double getHitRate();
+
+    long getLoadCount();
+
+    long getTotalLoadTimeNanos();
+
+    long getAverageLoadTimeNanos();
+
+    long getLoadTimeP99Nanos();
+
+    long getEvictionCount();
+
+    long getExpirationCount();
+
+    long getCoalescedCount();
+
+    long getRefreshCount();
+
+    int getEntries();
+
+    long getTotalWeight();
+
+    long getOffHeapBytes();
+
+    long getDiskBytes();
+
+    int getMaxEntries();
+
+    /**
+     * Remove all entries from the method's caches.
+     */
+    void invalidate();
+
+    /**
+     * Change the maximum number of entries of the method's caches, until the
+     * application is restarted.
+     * @param maxEntries
+     */
+    void resize(int maxEntries);
+}
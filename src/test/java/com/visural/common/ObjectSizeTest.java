@@ -18,19 +18,81 @@ public class ObjectSizeTest extends TestCase {
         long nb = System.nanoTime();
         int n = ObjectSize.estimate(obj);
         long ne = System.nanoTime();
-//        
-//        ObjectSizeOld.estimate(obj);
-//        ObjectSizeOld.estimate(obj);
-//        ObjectSizeOld.estimate(obj);
-//        ObjectSizeOld.estimate(obj);
-//
-//        long ob = System.nanoTime();
-//        int o = ObjectSizeOld.estimate(obj);
-//        long oe = System.nanoTime();
-//        
-//        System.out.println("Old = "+o+", dur = "+(oe-ob));
         System.out.println("New = "+n+", dur = "+(ne-nb));
     }
-    
-    
+
+    public void testArrays() {
+        assertEquals(align(ObjectSize.JvmSizes.ARRAY_HEADER + 100), ObjectSize.estimate(new byte[100]));
+        assertEquals(align(ObjectSize.JvmSizes.ARRAY_HEADER + 10 * 8), ObjectSize.estimate(new long[10]));
+        Object shared = new long[10];
+        // the same object is only counted once
+        assertEquals(align(ObjectSize.JvmSizes.ARRAY_HEADER + 2 * ObjectSize.JvmSizes.REF) + ObjectSize.estimate(shared),
+                ObjectSize.estimate(new Object[]{shared, shared}));
+    }
+
+    public void testCycle() {
+        Node a = new Node(null);
+        Node b = new Node(a);
+        a.next = b;
+        assertEquals(2 * nodeSize(), ObjectSize.estimate(a));
+    }
+
+    public void testLongChain() {
+        // would overflow the stack if walked recursively
+        Node head = chain(1000000);
+        assertEquals(1000000L * nodeSize(), ObjectSize.estimate(head));
+    }
+
+    public void testBenchMillionNodes() {
+        Node list = chain(1000000);
+        Node tree = tree(20);
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            ObjectSize.estimate(list);
+            long listTime = System.nanoTime() - start;
+            start = System.nanoTime();
+            ObjectSize.estimate(tree);
+            long treeTime = System.nanoTime() - start;
+            if (round == 2) {
+                System.out.println("BENCH ObjectSize 1M node list ms = " + listTime / 1000000
+                        + ", 1M node tree ms = " + treeTime / 1000000);
+            }
+        }
+    }
+
+    private static int nodeSize() {
+        return align(ObjectSize.JvmSizes.OBJECT_HEADER + ObjectSize.JvmSizes.REF * 2 + 4);
+    }
+
+    private static int align(int size) {
+        return (size + 7) & ~7;
+    }
+
+    private static Node chain(int length) {
+        Node head = null;
+        for (int n = 0; n < length; n++) {
+            head = new Node(head);
+        }
+        return head;
+    }
+
+    private static Node tree(int depth) {
+        if (depth == 0) {
+            return null;
+        }
+        Node node = new Node(tree(depth - 1));
+        node.other = tree(depth - 1);
+        return node;
+    }
+
+    private static class Node {
+        private Node next;
+        private Node other;
+        private final int value;
+
+        public Node(Node next) {
+            this.next = next;
+            this.value = next == null ? 0 : next.value + 1;
+        }
+    }
 }
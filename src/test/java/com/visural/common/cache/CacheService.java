@@ -16,7 +16,19 @@
  */
 package com.visural.common.cache;
 
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
 import com.google.inject.Inject;
+import com.visural.common.StringUtil;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @version $Id: CacheService.java 31 2010-05-21 07:15:23Z tibes80@gmail.com $
@@ -35,13 +47,37 @@ public class CacheService implements Cacheable {
         return data;
     }
     
+    private static final AtomicInteger sharedCounter = new AtomicInteger();
     private int callCounter = 0;
+    private final Map<String, SettableFuture<String>> futures = new ConcurrentHashMap<String, SettableFuture<String>>();
+    private final List<List<String>> bulkCalls = new ArrayList<List<String>>();
+    private final AtomicInteger slowCounter = new AtomicInteger();
     
     @Cache(maxEntries=0)
     public void invalidMaxEntries() {
         
     }
     
+    @Cache(timeToLive = 100, refreshAfter = 100)
+    public void invalidRefreshAfter() {
+        
+    }
+    
+    @Cache(refreshAfter = -1)
+    public void negativeRefreshAfter() {
+        
+    }
+    
+    @Cache(diskBytes = 1024 * 1024)
+    public void instanceDiskService() {
+        
+    }
+    
+    @Cache(maxEntries = 4, concurrencyLevel = 8)
+    public void invalidConcurrencyLevel() {
+        
+    }
+    
     @Cache(maxEntries = 100, evictionStrategy= EvictionStrategy.LRU)
     public void simpleMethod(String foo) {
         
@@ -65,6 +101,119 @@ public class CacheService implements Cacheable {
         return callCounter++;
     }
     
+    @Cache(maxEntries = 1000, timeToLive = 100)
+    public String expiringService(String argument) {
+        return argument;
+    }
+
+    @Cache(cacheExceptions = IllegalStateException.class, exceptionTimeToLive = 200)
+    public int failingService(String argument) {
+        callCounter++;
+        if (argument.equals("state")) {
+            throw new IllegalStateException(argument);
+        }
+        throw new IllegalArgumentException(argument);
+    }
+
+    @Cache(nullTimeToLive = 200)
+    public String notFoundService(String argument) {
+        callCounter++;
+        return argument.equals("missing") ? null : argument;
+    }
+
+    @Cache
+    public ListenableFuture<String> asyncService(String argument) {
+        callCounter++;
+        SettableFuture<String> future = SettableFuture.create();
+        futures.put(argument, future);
+        return future;
+    }
+
+    @Cache
+    public Future<String> plainFutureService(final String argument) {
+        callCounter++;
+        FutureTask<String> task = new FutureTask<String>(new Callable<String>() {
+            public String call() {
+                return argument.toUpperCase();
+            }
+        });
+        task.run();
+        return task;
+    }
+
+    @Cache(bulk = true)
+    public Map<String, String> bulkService(List<String> ids) {
+        bulkCalls.add(ids);
+        Map<String, String> result = new HashMap<String, String>();
+        for (String id : ids) {
+            if (!id.startsWith("missing")) {
+                result.put(id, id.toUpperCase());
+            }
+        }
+        return result;
+    }
+
+    @Cache(bulk = true)
+    public Map<String, String> slowBulkService(List<String> ids) {
+        synchronized (bulkCalls) {
+            bulkCalls.add(new ArrayList<String>(ids));
+        }
+        try {
+            Thread.sleep(200);
+        } catch (InterruptedException ex) {
+        }
+        Map<String, String> result = new HashMap<String, String>();
+        for (String id : ids) {
+            result.put(id, id.toUpperCase());
+        }
+        return result;
+    }
+
+    @Cache(bulk = true)
+    public String invalidBulk(List<String> ids) {
+        return null;
+    }
+
+    public List<List<String>> getBulkCalls() {
+        return bulkCalls;
+    }
+
+    public SettableFuture<String> getFuture(String argument) {
+        return futures.get(argument);
+    }
+
+    @Cache
+    public int memoService(String argument) {
+        return callCounter++;
+    }
+
+    @Cache(scope = CacheScope.CLASS)
+    public int classScopedService(String argument) {
+        return sharedCounter.incrementAndGet();
+    }
+
+    @Cache(scope = CacheScope.INJECTOR)
+    public int injectorScopedService(String argument) {
+        return sharedCounter.incrementAndGet();
+    }
+
+    @Cache(maxEntries = 100, concurrencyLevel = 4)
+    public String segmentedService(String argument) {
+        return argument + (callCounter++);
+    }
+
+    @Cache(maxEntries = 100, maxWeight = 1000, weigher = LengthWeigher.class)
+    public String weighedService(String argument) {
+        return StringUtil.rpad(argument, 300, 'x');
+    }
+
+    public static class LengthWeigher implements Weigher {
+
+        public int weigh(Object result) {
+            return ((String) result).length();
+        }
+    }
+
     @Cache(maxEntries = 5)
     public int randomServiceToCache() {
         return (int)(Math.random()*1000000d);
@@ -73,6 +222,40 @@ public class CacheService implements Cacheable {
     public int getCounter() {
         return callCounter;
     }
+
+    @Cache(maxEntries = 5)
+    public int slowServiceToCache(String argument) {
+        int result = slowCounter.incrementAndGet();
+        try {
+            Thread.sleep(200);
+        } catch (InterruptedException ex) {
+        }
+        return result;
+    }
+
+    @Cache(maxEntries = 5, timeToLive = 5000, refreshAfter = 100)
+    public int refreshingService(String argument) {
+        int result = slowCounter.incrementAndGet();
+        try {
+            Thread.sleep(50);
+        } catch (InterruptedException ex) {
+        }
+        return result;
+    }
+
+    @Cache(maxEntries = 5)
+    public int slowFailingService(String argument) {
+        slowCounter.incrementAndGet();
+        try {
+            Thread.sleep(200);
+        } catch (InterruptedException ex) {
+        }
+        throw new IllegalStateException(argument);
+    }
+
+    public int getSlowCounter() {
+        return slowCounter.get();
+    }
     
     @Cache(maxEntries=5, evictionStrategy= EvictionStrategy.FIFO)
     public double esFIFO(int arg) {
@@ -95,6 +278,11 @@ public class CacheService implements Cacheable {
         return Math.random();
     }
 
+    @Cache(maxEntries=5, evictionStrategy= EvictionStrategy.TINY_LFU)
+    public double esTINY_LFU(int arg) {
+        return arg+Math.random();
+    }
+
     @Cache(maxEntries=100, softValues=true)
     public byte[] bigMemSoft(Integer n) {
         return new byte[50*1024*1024];
@@ -104,4 +292,48 @@ public class CacheService implements Cacheable {
     public byte[] bigMemHard(Integer n) {
         return new byte[50*1024*1024];
     }
+
+    @Cache(maxEntries = 2, offHeapBytes = 1024 * 1024)
+    public String offHeapService(String argument) {
+        callCounter++;
+        return argument + callCounter;
+    }
+
+    @Cache(maxEntries = 4000)
+    public byte[] fragment(Integer n) {
+        return new byte[16 * 1024];
+    }
+
+    @Cache(maxEntries = 100, offHeapBytes = 128 * 1024 * 1024)
+    public byte[] fragmentOffHeap(Integer n) {
+        return new byte[16 * 1024];
+    }
+
+    @Cache(maxEntries = 2, diskBytes = 1024 * 1024, diskWriteThrough = true, scope = CacheScope.INJECTOR)
+    public String diskService(String argument) {
+        callCounter++;
+        return argument + callCounter;
+    }
+
+    @Cache(maxEntries = 2, diskBytes = 1024 * 1024, scope = CacheScope.INJECTOR)
+    public String diskSpillService(String argument) {
+        callCounter++;
+        return argument + callCounter;
+    }
+
+    @Cache(maxEntries = 2, diskBytes = 1024 * 1024, diskWriteThrough = true, scope = CacheScope.INJECTOR)
+    public String diskObjectService(Object argument) {
+        callCounter++;
+        return argument + "-" + callCounter;
+    }
+
+    @Cache(maxEntries = 100)
+    public String reusedService(String argument) {
+        return argument;
+    }
+
+    @Cache(maxEntries = 100)
+    public String uniqueService(String argument) {
+        return argument;
+    }
 }
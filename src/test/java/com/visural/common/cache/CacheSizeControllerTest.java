@@ -0,0 +1,129 @@
+/*
+ *  Copyright 2026 the visural-common contributors.
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+package com.visural.common.cache;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.visural.common.IOUtil;
+import java.io.File;
+import java.lang.reflect.Method;
+import java.util.Map;
+import junit.framework.Assert;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CacheSizeControllerTest extends Assert {
+
+    private static final long BUDGET = 10 * 1024 * 1024;
+    // enough keys for their curve to be sampled, and requests to loop over them a few times
+    private static final int LOOP = 12800;
+    private static final int REQUESTS = 64000;
+
+    private File directory;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = File.createTempFile("cache-settings", "");
+        directory.delete();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (directory.exists()) {
+            IOUtil.nukeFolder(directory);
+        }
+    }
+
+    @Test
+    public void testStore() throws Exception {
+        CacheSettingsStore store = new HomeDirectoryCacheSettingsStore(directory);
+        Method reused = CacheService.class.getMethod("reusedService", String.class);
+        assertNull(store.load(reused));
+        CacheSettings settings = new CacheSettings(reused.getAnnotation(Cache.class));
+        settings.setMaxEntries(250);
+        store.save(reused, settings);
+        assertEquals(250, store.load(reused).getMaxEntries());
+        assertNull(store.load(CacheService.class.getMethod("uniqueService", String.class)));
+    }
+
+    @Test
+    public void testResize() throws Exception {
+        CacheSettingsStore store = new HomeDirectoryCacheSettingsStore(directory);
+        CacheModule module = new CacheModule();
+        CacheSizeController controller = new CacheSizeController(module, store, BUDGET);
+        Injector injector = Guice.createInjector(module);
+        CacheService cs = injector.getInstance(CacheService.class);
+        // keys in a loop miss every time with 100 entries, and fit in more
+        for (int n = 0; n < REQUESTS; n++) {
+            cs.reusedService("key" + (n % LOOP));
+            cs.uniqueService("key" + n);
+        }
+        String className = CacheService.class.getName();
+        Method reused = CacheService.class.getMethod("reusedService", String.class);
+        Method unique = CacheService.class.getMethod("uniqueService", String.class);
+
+        Map<String, Map<String, Integer>> resized = controller.resize();
+        // grown, but only by up to MAX_CHANGE in one round
+        assertEquals(200, resized.get(className).get(reused.toString()).intValue());
+        // nothing to gain, so shrunk as far as allowed
+        assertEquals(50, resized.get(className).get(unique.toString()).intValue());
+        assertEquals(200, cs.__cacheData().getStatistics(false).get(reused.toString()).getSettings().getMaxEntries());
+        assertEquals(200, store.load(reused).getMaxEntries());
+
+        // the next start uses the saved size
+        CacheModule restarted = new CacheModule();
+        new CacheSizeController(restarted, store, BUDGET);
+        CacheService other = Guice.createInjector(restarted).getInstance(CacheService.class);
+        other.reusedService("key0");
+        assertEquals(200, other.__cacheData().getStatistics(false).get(reused.toString()).getSettings().getMaxEntries());
+    }
+
+    @Test
+    public void testBudget() throws Exception {
+        CacheModule module = new CacheModule();
+        // too small for anything over the minimum size
+        CacheSizeController controller = new CacheSizeController(module, null, 1);
+        CacheService cs = Guice.createInjector(module).getInstance(CacheService.class);
+        for (int n = 0; n < REQUESTS; n++) {
+            cs.reusedService("key" + (n % LOOP));
+        }
+        String method = CacheService.class.getMethod("reusedService", String.class).toString();
+        assertEquals(50, controller.resize().get(CacheService.class.getName()).get(method).intValue());
+    }
+
+    @Test
+    public void testHitRatiosSampled() throws Exception {
+        CacheModule module = new CacheModule();
+        Injector injector = Guice.createInjector(module);
+        String method = CacheService.class.getMethod("reusedService", String.class).toString();
+        CacheService before = injector.getInstance(CacheService.class);
+        for (int n = 0; n < REQUESTS; n++) {
+            before.reusedService("key" + (n % LOOP));
+        }
+        // not sampled without a controller
+        assertEquals(0, before.__cacheData().getStatistics(false).get(method).getCombinedStats()
+                .getHitRatioCurve().getSampledAccesses());
+        new CacheSizeController(module, null, BUDGET);
+        CacheService after = injector.getInstance(CacheService.class);
+        for (int n = 0; n < REQUESTS; n++) {
+            after.reusedService("key" + (n % LOOP));
+        }
+        assertTrue(after.__cacheData().getStatistics(false).get(method).getCombinedStats()
+                .getHitRatioCurve().getSampledAccesses() > 0);
+    }
+}
@@ -16,8 +16,25 @@
  */
 package com.visural.common.cache;
 
+import com.google.common.util.concurrent.ListenableFuture;
 import com.google.inject.Guice;
+import com.google.inject.Inject;
 import com.google.inject.Injector;
+import com.visural.common.cache.impl.CacheStatsAggregated;
+import com.visural.common.cache.impl.CacheStatsSnapshot;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import junit.framework.Assert;
 import org.junit.Test;
 
@@ -56,6 +73,79 @@ public class CacheTest extends Assert {
         }
     }
 
+    @Test
+    public void testBenchHit() {
+        CacheService cs = getCache();
+        int result = cs.longServiceToCache_5("static");
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            for (int n = 0; n < 1000000; n++) {
+                assertEquals(result, cs.longServiceToCache_5("static"));
+            }
+            if (round == 2) {
+                System.out.println("BENCH @Cache hit, ns/hit = " + (System.nanoTime() - start) / 1000000);
+            }
+        }
+    }
+
+    @Test
+    public void testMemo() throws Exception {
+        CacheService cs = getCache();
+        assertFalse(CacheMemo.isActive());
+        CacheMemo.begin();
+        try {
+            int result = cs.memoService("foo");
+            for (int n = 0; n < 10; n++) {
+                assertEquals(result, cs.memoService("foo"));
+            }
+            // invalidation also clears the memo
+            cs.__cacheData().invalidateCache(MethodCall.get(cs.getClass(), "memoService", "foo"));
+            assertEquals(result + 1, cs.memoService("foo"));
+            assertEquals(result + 1, cs.memoService("foo"));
+            // as does invalidation by another thread
+            final CacheService shared = cs;
+            Thread other = new Thread() {
+                @Override
+                public void run() {
+                    shared.__cacheData().invalidateCache(MethodCall.get(shared.getClass(), "memoService", "foo").getMethod());
+                }
+            };
+            other.start();
+            other.join();
+            assertEquals(result + 2, cs.memoService("foo"));
+            assertEquals(result + 2, cs.memoService("foo"));
+        } finally {
+            CacheMemo.end();
+        }
+        assertFalse(CacheMemo.isActive());
+        CacheStatsSnapshot stats = getStats(cs, "memoService", "foo").getCombinedStats();
+        assertEquals(12, stats.getMemoHitCount().get());
+        assertEquals(0, stats.getHitCount().get());
+        // no longer memoized, so a hit in the cache
+        assertEquals(2, cs.memoService("foo"));
+        assertEquals(1, getStats(cs, "memoService", "foo").getCombinedStats().getHitCount().get());
+    }
+
+    @Test
+    public void testBenchMemoHit() {
+        CacheService cs = getCache();
+        int result = cs.memoService("static");
+        CacheMemo.begin();
+        try {
+            for (int round = 0; round < 3; round++) {
+                long start = System.nanoTime();
+                for (int n = 0; n < 1000000; n++) {
+                    assertEquals(result, cs.memoService("static"));
+                }
+                if (round == 2) {
+                    System.out.println("BENCH @Cache memo hit, ns/hit = " + (System.nanoTime() - start) / 1000000);
+                }
+            }
+        } finally {
+            CacheMemo.end();
+        }
+    }
+
     @Test
     public void testCacheMax() {
         CacheService cs = getCache();
@@ -107,6 +197,43 @@ public class CacheTest extends Assert {
         assertTrue(prev + 4 == cs.getCounter());
     }
 
+    public static class SubCacheService extends CacheService {
+        @Inject
+        protected SubCacheService(CacheData data) {
+            super(data);
+        }
+    }
+
+    @Test
+    public void testClassScope() {
+        CacheModule module = new CacheModule();
+        Injector i = Guice.createInjector(module);
+        CacheService a = i.getInstance(CacheService.class);
+        CacheService b = i.getInstance(CacheService.class);
+        int result = a.classScopedService("foo");
+        assertEquals(result, b.classScopedService("foo"));
+        assertEquals(result, b.classScopedService("foo"));
+        // not shared with subclasses, or instances from another injector
+        assertTrue(result != i.getInstance(SubCacheService.class).classScopedService("foo"));
+        assertTrue(result != getCache().classScopedService("foo"));
+        b.__cacheData().invalidateCache(MethodCall.get(CacheService.class, "classScopedService", "foo"));
+        assertTrue(result != a.classScopedService("foo"));
+        // counted once, rather than once per instance
+        String method = MethodCall.get(CacheService.class, "classScopedService", "foo").getMethod().toString();
+        CacheStatsAggregated stats = module.getStatistics(false).get(CacheService.class.getName()).get(method);
+        assertEquals(1, stats.getInstanceCount());
+        assertEquals(2, stats.getCombinedStats().getHitCount().get());
+    }
+
+    @Test
+    public void testInjectorScope() {
+        Injector i = getInjector();
+        int result = i.getInstance(CacheService.class).injectorScopedService("foo");
+        assertEquals(result, i.getInstance(CacheService.class).injectorScopedService("foo"));
+        assertEquals(result, i.getInstance(SubCacheService.class).injectorScopedService("foo"));
+        assertTrue(result != getCache().injectorScopedService("foo"));
+    }
+
     @Test
     public void testInvalidMaxEntries() {
         CacheService cs = getCache();
@@ -117,6 +244,85 @@ public class CacheTest extends Assert {
         }
     }
 
+    @Test
+    public void testInvalidRefreshAfter() {
+        CacheService cs = getCache();
+        try {
+            cs.invalidRefreshAfter();
+            fail("Should not allow refreshAfter >= timeToLive");
+        } catch (IllegalArgumentException e) {
+        }
+        try {
+            cs.negativeRefreshAfter();
+            fail("Should not allow refreshAfter < 0");
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    @Test
+    public void testInvalidDiskScope() {
+        CacheService cs = getCache();
+        try {
+            cs.instanceDiskService();
+            fail("Should not allow diskBytes with INSTANCE scope");
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    @Test
+    public void testInvalidConcurrencyLevel() {
+        CacheService cs = getCache();
+        try {
+            cs.invalidConcurrencyLevel();
+            fail("Should not allow concurrencyLevel > maxEntries");
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    @Test
+    public void testSegmentedCache() throws Exception {
+        final CacheService cs = getCache();
+        for (int n = 0; n < 50; n++) {
+            cs.segmentedService("key" + n);
+        }
+        runConcurrently(8, new Callable<Void>() {
+            public Void call() {
+                for (int n = 0; n < 1000; n++) {
+                    cs.segmentedService("key" + (n % 500));
+                }
+                return null;
+            }
+        });
+        CacheStatsSnapshot stats = getStats(cs, "segmentedService", "key0").getCombinedStats();
+        assertTrue(stats.getEntries() <= 100);
+        assertTrue(stats.getEntries() + stats.getEvictionCount().get() >= 500);
+        assertTrue(stats.getHitCount().get() > 0);
+        cs.__cacheData().invalidateCache(MethodCall.get(cs.getClass(), "segmentedService", "key0").getMethod());
+        assertEquals(0, getStats(cs, "segmentedService", "key0").getCombinedStats().getEntries());
+        for (int n = 0; n < 50; n++) {
+            String result = cs.segmentedService("key" + n);
+            assertEquals(result, cs.segmentedService("key" + n));
+        }
+    }
+
+    @Test
+    public void testRefreshAhead() throws Exception {
+        CacheService cs = getCache();
+        assertEquals(1, cs.refreshingService("foo"));
+        assertEquals(1, cs.refreshingService("foo"));
+        Thread.sleep(150);
+        // stale value is served immediately while it reloads in the background
+        long start = System.currentTimeMillis();
+        assertEquals(1, cs.refreshingService("foo"));
+        assertTrue(System.currentTimeMillis() - start < 50);
+        for (int n = 0; n < 100 && getStats(cs, "refreshingService", "foo").getCombinedStats().getRefreshCount().get() == 0; n++) {
+            Thread.sleep(20);
+        }
+        assertEquals(2, cs.refreshingService("foo"));
+        assertEquals(2, cs.getSlowCounter());
+        assertEquals(1, getStats(cs, "refreshingService", "foo").getCombinedStats().getRefreshCount().get());
+    }
+
     @Test
     public void testTTL() throws Exception {
         CacheService cs = getCache();
@@ -126,6 +332,292 @@ public class CacheTest extends Assert {
         assertTrue(result + 1 == cs.longServiceToCache_3_100("foo"));
     }
 
+    @Test
+    public void testProactiveExpiry() throws Exception {
+        CacheService cs = getCache();
+        for (int n = 0; n < 100; n++) {
+            cs.expiringService("key" + n);
+        }
+        Thread.sleep(300);
+        // a write for a different key reclaims everything which has expired
+        cs.expiringService("other");
+        CacheStatsSnapshot stats = getStats(cs, "expiringService", "other").getCombinedStats();
+        assertEquals(1, stats.getEntries());
+        assertEquals(100, stats.getExpirationCount().get());
+        assertEquals(0, stats.getEvictionCount().get());
+    }
+
+    @Test
+    public void testMaxWeight() {
+        CacheService cs = getCache();
+        for (int n = 0; n < 10; n++) {
+            cs.weighedService("key" + n);
+        }
+        CacheStatsSnapshot stats = getStats(cs, "weighedService", "key0").getCombinedStats();
+        assertEquals(3, stats.getEntries());
+        assertEquals(900, stats.getTotalWeight());
+        assertEquals(7, stats.getEvictionCount().get());
+    }
+
+    @Test
+    public void testOffHeapTier() {
+        CacheService cs = getCache();
+        String[] results = new String[5];
+        for (int n = 0; n < 5; n++) {
+            results[n] = cs.offHeapService("key" + n);
+        }
+        for (int n = 0; n < 5; n++) {
+            assertEquals(results[n], cs.offHeapService("key" + n));
+        }
+        assertEquals(5, cs.getCounter());
+        CacheStatsSnapshot stats = getStats(cs, "offHeapService", "key0").getCombinedStats();
+        assertEquals(2, stats.getEntries());
+        assertEquals(5, stats.getOffHeapHitCount().get());
+        assertTrue(stats.getOffHeapBytes() > 0);
+        cs.__cacheData().invalidateCache(MethodCall.get(cs.getClass(), "offHeapService", "key0").getMethod());
+        assertEquals(0, getStats(cs, "offHeapService", "key0").getCombinedStats().getOffHeapBytes());
+    }
+
+    @Test
+    public void testDiskTier() throws Exception {
+        File dir = File.createTempFile("cachetest", "");
+        dir.delete();
+        System.setProperty(Cache.DISK_DIRECTORY_PROPERTY, dir.getPath());
+        try {
+            CacheService cs = getCache();
+            String[] results = new String[5];
+            for (int n = 0; n < 5; n++) {
+                results[n] = cs.diskService("key" + n);
+            }
+            // a new instance, e.g. after a restart, starts with the results on disk
+            CacheService warm = getCache();
+            for (int n = 0; n < 5; n++) {
+                assertEquals(results[n], warm.diskService("key" + n));
+            }
+            assertEquals(0, warm.getCounter());
+            CacheStatsSnapshot stats = getStats(warm, "diskService", "key0").getCombinedStats();
+            assertEquals(5, stats.getDiskHitCount().get());
+            assertTrue(stats.getDiskBytes() > 0);
+            warm.__cacheData().invalidateCache(MethodCall.get(warm.getClass(), "diskService", "key0").getMethod());
+            assertEquals(0, getStats(cs, "diskService", "key0").getCombinedStats().getDiskBytes());
+        } finally {
+            System.clearProperty(Cache.DISK_DIRECTORY_PROPERTY);
+        }
+    }
+
+    @Test
+    public void testDiskTierSpill() throws Exception {
+        File dir = File.createTempFile("cachetest", "");
+        dir.delete();
+        System.setProperty(Cache.DISK_DIRECTORY_PROPERTY, dir.getPath());
+        try {
+            CacheService cs = getCache();
+            String[] results = new String[5];
+            for (int n = 0; n < 5; n++) {
+                results[n] = cs.diskSpillService("key" + n);
+            }
+            // only the 3 results evicted from memory were written to disk
+            CacheService warm = getCache();
+            for (int n = 0; n < 5; n++) {
+                String result = warm.diskSpillService("key" + n);
+                if (n < 3) {
+                    assertEquals(results[n], result);
+                }
+            }
+            assertEquals(2, warm.getCounter());
+            assertEquals(3, getStats(warm, "diskSpillService", "key0").getCombinedStats().getDiskHitCount().get());
+        } finally {
+            System.clearProperty(Cache.DISK_DIRECTORY_PROPERTY);
+        }
+    }
+
+    @Test
+    public void testDiskTierKeyCollision() throws Exception {
+        File dir = File.createTempFile("cachetest", "");
+        dir.delete();
+        System.setProperty(Cache.DISK_DIRECTORY_PROPERTY, dir.getPath());
+        try {
+            CacheService cs = getCache();
+            String one = cs.diskObjectService(Integer.valueOf(1));
+            // same String form as the Integer, but a record of its own on disk
+            String other = cs.diskObjectService("1");
+            assertFalse(one.equals(other));
+            String method = CacheService.class.getMethod("diskObjectService", Object.class).toString();
+            assertEquals(0, cs.__cacheData().getStatistics(false).get(method).getCombinedStats().getDiskHitCount().get());
+            CacheService warm = getCache();
+            assertEquals(other, warm.diskObjectService("1"));
+            assertEquals(one, warm.diskObjectService(Integer.valueOf(1)));
+            assertEquals(0, warm.getCounter());
+        } finally {
+            System.clearProperty(Cache.DISK_DIRECTORY_PROPERTY);
+        }
+    }
+
+    @Test
+    public void testExceptionCaching() throws Exception {
+        CacheService cs = getCache();
+        int prev = cs.getCounter();
+        IllegalStateException first = null;
+        for (int n = 0; n < 3; n++) {
+            try {
+                cs.failingService("state");
+                fail();
+            } catch (IllegalStateException e) {
+                if (first == null) {
+                    first = e;
+                }
+                assertSame(first, e);
+            }
+        }
+        assertEquals(prev + 1, cs.getCounter());
+        // other exceptions are not cached
+        for (int n = 0; n < 3; n++) {
+            try {
+                cs.failingService("argument");
+                fail();
+            } catch (IllegalArgumentException e) {
+            }
+        }
+        assertEquals(prev + 4, cs.getCounter());
+        assertEquals(2, getStats(cs, "failingService", "state").getCombinedStats().getNegativeHitCount().get());
+        Thread.sleep(300);
+        try {
+            cs.failingService("state");
+            fail();
+        } catch (IllegalStateException e) {
+            assertNotSame(first, e);
+        }
+        assertEquals(prev + 5, cs.getCounter());
+    }
+
+    @Test
+    public void testNullTimeToLive() throws Exception {
+        CacheService cs = getCache();
+        int prev = cs.getCounter();
+        assertNull(cs.notFoundService("missing"));
+        assertNull(cs.notFoundService("missing"));
+        assertEquals("found", cs.notFoundService("found"));
+        assertEquals("found", cs.notFoundService("found"));
+        assertEquals(prev + 2, cs.getCounter());
+        assertEquals(1, getStats(cs, "notFoundService", "found").getCombinedStats().getNegativeHitCount().get());
+        Thread.sleep(300);
+        // only the null result has expired
+        assertNull(cs.notFoundService("missing"));
+        assertEquals("found", cs.notFoundService("found"));
+        assertEquals(prev + 3, cs.getCounter());
+    }
+
+    @Test
+    public void testAsync() throws Exception {
+        CacheService cs = getCache();
+        int prev = cs.getCounter();
+        ListenableFuture<String> first = cs.asyncService("a");
+        // in flight future is shared
+        assertSame(first, cs.asyncService("a"));
+        Thread.sleep(50);
+        cs.getFuture("a").set("A");
+        ListenableFuture<String> done = cs.asyncService("a");
+        assertNotSame(first, done);
+        assertEquals("A", done.get());
+        assertEquals(prev + 1, cs.getCounter());
+        CacheStatsSnapshot stats = getStats(cs, "asyncService", "a").getCombinedStats();
+        assertEquals(1, stats.getLoadCount().get());
+        // time to complete, rather than to return the future
+        assertTrue(stats.getTotalLoadTime().get() >= 40000000L);
+        // failures are removed
+        cs.asyncService("b");
+        cs.getFuture("b").setException(new IllegalStateException());
+        cs.asyncService("b");
+        assertEquals(prev + 3, cs.getCounter());
+    }
+
+    @Test
+    public void testMemoFuture() throws Exception {
+        CacheService cs = getCache();
+        int prev = cs.getCounter();
+        CacheMemo.begin();
+        try {
+            ListenableFuture<String> first = cs.asyncService("a");
+            // not memoized while in flight
+            assertSame(first, cs.asyncService("a"));
+            cs.getFuture("a").setException(new IllegalStateException());
+            // nor once failed, so the call is made again
+            cs.asyncService("a");
+            assertEquals(prev + 2, cs.getCounter());
+            cs.getFuture("a").set("A");
+            ListenableFuture<String> done = cs.asyncService("a");
+            assertEquals("A", done.get());
+            // memoized once it has succeeded
+            assertSame(done, cs.asyncService("a"));
+            assertEquals(prev + 2, cs.getCounter());
+        } finally {
+            CacheMemo.end();
+        }
+        assertEquals(1, getStats(cs, "asyncService", "a").getCombinedStats().getMemoHitCount().get());
+    }
+
+    @Test
+    public void testAsyncPlainFuture() throws Exception {
+        CacheService cs = getCache();
+        int prev = cs.getCounter();
+        assertEquals("A", cs.plainFutureService("a").get());
+        for (int n = 0; n < 100 && getStats(cs, "plainFutureService", "a").getCombinedStats().getLoadCount().get() == 0; n++) {
+            Thread.sleep(10);
+        }
+        assertEquals("A", cs.plainFutureService("a").get());
+        assertEquals(prev + 1, cs.getCounter());
+    }
+
+    @Test
+    public void testBulk() {
+        CacheService cs = getCache();
+        Map<String, String> first = cs.bulkService(Arrays.asList("a", "b", "missing"));
+        assertEquals(Arrays.asList("a", "b"), new ArrayList<String>(first.keySet()));
+        assertEquals("A", first.get("a"));
+        // only the ids not already cached are loaded, absent ids are cached too
+        Map<String, String> second = cs.bulkService(Arrays.asList("c", "b", "missing", "a"));
+        assertEquals(Arrays.asList("c", "b", "a"), new ArrayList<String>(second.keySet()));
+        assertEquals(2, cs.getBulkCalls().size());
+        assertEquals(Arrays.asList("c"), cs.getBulkCalls().get(1));
+        cs.bulkService(Arrays.asList("a", "b", "c"));
+        assertEquals(2, cs.getBulkCalls().size());
+    }
+
+    @Test
+    public void testBulkCoalescing() throws Exception {
+        final CacheService cs = getCache();
+        Thread other = new Thread() {
+            @Override
+            public void run() {
+                cs.slowBulkService(Arrays.asList("a", "b"));
+            }
+        };
+        other.start();
+        Thread.sleep(50);
+        // b is already being loaded by the other thread, so only c is loaded here
+        List<String> ids = new ArrayList<String>(Arrays.asList("b", "c"));
+        Map<String, String> result = cs.slowBulkService(ids);
+        other.join();
+        assertEquals("B", result.get("b"));
+        assertEquals("C", result.get("c"));
+        assertEquals(Arrays.asList("b", "c"), ids);
+        assertEquals(2, cs.getBulkCalls().size());
+        assertTrue(cs.getBulkCalls().contains(Arrays.asList("a", "b")));
+        assertTrue(cs.getBulkCalls().contains(Arrays.asList("c")));
+        String method = CacheService.class.getMethod("slowBulkService", List.class).toString();
+        assertEquals(1, cs.__cacheData().getStatistics(false).get(method).getCombinedStats().getCoalescedCount().get());
+    }
+
+    @Test
+    public void testInvalidBulk() {
+        CacheService cs = getCache();
+        try {
+            cs.invalidBulk(Arrays.asList("a"));
+            fail("Should not allow a bulk method that doesn't return a Map");
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
     @Test
     public void testFIFO() {
         CacheService cs = getCache();
@@ -150,6 +642,84 @@ public class CacheTest extends Assert {
         assertTrue(result1 != cs.esLFU(1));
     }
 
+    @Test
+    public void testTinyLFU() {
+        CacheService cs = getCache();
+        double result0 = cs.esTINY_LFU(0);
+        for (int n = 0; n < 10; n++) {
+            assertTrue(result0 == cs.esTINY_LFU(0));
+        }
+        // one off requests should not displace the popular entry
+        for (int n = 1; n < 50; n++) {
+            cs.esTINY_LFU(n);
+        }
+        assertTrue(result0 == cs.esTINY_LFU(0));
+    }
+
+    private <T> List<Future<T>> runConcurrently(int threads, Callable<T> task) throws Exception {
+        ExecutorService exec = Executors.newFixedThreadPool(threads);
+        try {
+            List<Callable<T>> tasks = new ArrayList<Callable<T>>();
+            for (int n = 0; n < threads; n++) {
+                tasks.add(task);
+            }
+            return exec.invokeAll(tasks);
+        } finally {
+            exec.shutdown();
+        }
+    }
+
+    private CacheStatsAggregated getStats(CacheService cs, String method, Object... args) {
+        String key = MethodCall.get(cs.getClass(), method, args).getMethod().toString();
+        return cs.__cacheData().getStatistics(false).get(key);
+    }
+
+    @Test
+    public void testLoadCoalescing() throws Exception {
+        final CacheService cs = getCache();
+        List<Future<Integer>> results = runConcurrently(8, new Callable<Integer>() {
+            public Integer call() {
+                return cs.slowServiceToCache("hot");
+            }
+        });
+        for (Future<Integer> f : results) {
+            assertEquals(Integer.valueOf(1), f.get());
+        }
+        assertEquals(1, cs.getSlowCounter());
+        assertTrue(getStats(cs, "slowServiceToCache", "hot").getCombinedStats().getCoalescedCount().get() > 0);
+    }
+
+    @Test
+    public void testLoadCoalescingFailure() throws Exception {
+        final CacheService cs = getCache();
+        List<Future<Integer>> results = runConcurrently(4, new Callable<Integer>() {
+            public Integer call() {
+                return cs.slowFailingService("broken");
+            }
+        });
+        Set<Throwable> thrown = Collections.newSetFromMap(new IdentityHashMap<Throwable, Boolean>());
+        for (Future<Integer> f : results) {
+            try {
+                f.get();
+                fail("Should have thrown the loader's exception");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof IllegalStateException);
+                assertEquals("broken", e.getCause().getMessage());
+                thrown.add(e.getCause());
+            }
+        }
+        // each waiter throws its own copy of the loader's exception
+        assertEquals(4, thrown.size());
+        assertEquals(1, cs.getSlowCounter());
+        // failures are not cached, so the next call loads again
+        try {
+            cs.slowFailingService("broken");
+            fail("Should have thrown");
+        } catch (IllegalStateException e) {
+        }
+        assertEquals(2, cs.getSlowCounter());
+    }
+
     @Test
     public void testSoftRef() {
         CacheService cs = getCache();
@@ -160,7 +730,7 @@ public class CacheTest extends Assert {
             fail("should run out of ram");
         } catch (java.lang.OutOfMemoryError e) {
             // clear cache to free ram
-            cs.__cacheData().invalidateCache(MethodCall.get(cs.getClass(), "bigMemHard", (int) 0).getMethod());
+            cs.__cacheData().invalidateCache(MethodCall.get(cs.getClass(), "bigMemHard", 0).getMethod());
         }
 
         for (int n = 0; n < 10; n++) {
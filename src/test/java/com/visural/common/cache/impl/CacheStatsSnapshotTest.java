@@ -0,0 +1,39 @@
+/*
+ *  Copyright 2026 the visural-common contributors.
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+package com.visural.common.cache.impl;
+
+import junit.framework.Assert;
+import org.junit.Test;
+
+public class CacheStatsSnapshotTest extends Assert {
+
+    private static CacheStatsSnapshot estimate(long usage, long error) {
+        return new CacheStatsSnapshot.Builder().estimatedMemoryUsage(usage).estimatedMemoryError(error).build();
+    }
+
+    @Test
+    public void testEstimatedMemoryError() {
+        CacheStatsSnapshot sum = estimate(1000, 30).plus(estimate(2000, 40));
+        assertEquals(3000, sum.getEstimatedMemoryUsageBytes());
+        assertEquals(50, sum.getEstimatedMemoryErrorBytes());
+        // a difference is no more certain than a sum
+        CacheStatsSnapshot difference = estimate(2000, 40).minus(estimate(1000, 30));
+        assertEquals(1000, difference.getEstimatedMemoryUsageBytes());
+        assertEquals(50, difference.getEstimatedMemoryErrorBytes());
+        assertEquals(40, estimate(2000, 40).minus(estimate(1000, 0)).getEstimatedMemoryErrorBytes());
+    }
+}
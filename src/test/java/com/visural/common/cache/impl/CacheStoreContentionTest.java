@@ -0,0 +1,187 @@
+/*
+ *  Copyright 2026 the visural-common contributors.
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+package com.visural.common.cache.impl;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import junit.framework.Assert;
+import org.junit.Test;
+
+/**
+ * Contention benchmark and consistency checks for {@link CacheStore}.
+ */
+public class CacheStoreContentionTest extends Assert {
+
+    private static final int ENTRIES = 1000;
+    private static final long RUN_MILLIS = 200;
+
+    private static EvictionPolicy[] allPolicies() {
+        return new EvictionPolicy[]{
+                    new LRUEvictionPolicy(true),
+                    new LRUEvictionPolicy(false),
+                    new LFUEvictionPolicy(false),
+                    new LFUEvictionPolicy(true),
+                    new TinyLFUEvictionPolicy(100)};
+    }
+
+    private static CacheEntry entry(String key) {
+        return new CacheEntry(key, System.currentTimeMillis(), 0, 1, key);
+    }
+
+    @Test
+    public void testPutIfAbsent() {
+        CacheStore store = new CacheStore(10, 0, new LRUEvictionPolicy(true), new CacheStats(), true);
+        CacheEntry fresh = entry("a");
+        assertNull(store.putIfAbsent("a", fresh));
+        assertSame(fresh, store.putIfAbsent("a", entry("a")));
+        assertSame(fresh, store.get("a"));
+        // an expired entry is replaced
+        store.put("b", new CacheEntry("b", System.currentTimeMillis() - 1000, 1, 1, "b"));
+        CacheEntry replacement = entry("b");
+        assertNull(store.putIfAbsent("b", replacement));
+        assertSame(replacement, store.get("b"));
+        assertEquals(2, store.size());
+    }
+
+    @Test
+    public void testHitThroughputScaling() throws Exception {
+        final CacheStore store = new CacheStore(ENTRIES, new LRUEvictionPolicy(true), new CacheStats());
+        for (int n = 0; n < ENTRIES; n++) {
+            store.put("" + n, entry("" + n));
+        }
+        int maxThreads = Runtime.getRuntime().availableProcessors() * 2;
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            final AtomicLong hits = new AtomicLong();
+            run(threads, new Worker() {
+                public void run(Random r, long until) {
+                    long local = 0;
+                    while (System.currentTimeMillis() < until) {
+                        for (int n = 0; n < 1000; n++) {
+                            CacheEntry e = store.get("" + r.nextInt(ENTRIES));
+                            store.recordAccess(e);
+                            local++;
+                        }
+                    }
+                    hits.addAndGet(local);
+                }
+            });
+            System.out.println("CacheStore hits, threads = " + threads + ", ops/s = " + (hits.get() * 1000 / RUN_MILLIS));
+        }
+        assertEquals(ENTRIES, store.size());
+    }
+
+    @Test
+    public void testConcurrentReadWriteAllPolicies() throws Exception {
+        for (EvictionPolicy policy : allPolicies()) {
+            final CacheStore store = new CacheStore(100, policy, new CacheStats());
+            run(4, new Worker() {
+                public void run(Random r, long until) {
+                    while (System.currentTimeMillis() < until) {
+                        String key = "" + r.nextInt(500);
+                        CacheEntry e = store.get(key);
+                        if (e == null) {
+                            store.put(key, entry(key));
+                        } else {
+                            e.incrementUses();
+                            store.recordAccess(e);
+                            if (r.nextInt(50) == 0) {
+                                store.remove(key, e);
+                            }
+                        }
+                    }
+                }
+            });
+            assertTrue(policy.getClass().getSimpleName(), store.size() <= 100);
+            // the policy must still agree with the map
+            for (int n = 0; n < 200; n++) {
+                store.put("fill" + n, entry("fill" + n));
+            }
+            assertEquals(100, store.size());
+            store.clear();
+            assertEquals(0, store.size());
+            assertNull(policy.evict());
+        }
+    }
+
+    @Test
+    public void testConcurrentWeightBoundAllPolicies() throws Exception {
+        for (EvictionPolicy policy : allPolicies()) {
+            final CacheStore store = new CacheStore(1000, 5000, policy, new CacheStats(), false);
+            run(4, new Worker() {
+                public void run(Random r, long until) {
+                    while (System.currentTimeMillis() < until) {
+                        String key = "" + r.nextInt(500);
+                        CacheEntry e = store.get(key);
+                        if (e == null) {
+                            e = entry(key);
+                            e.setWeight(r.nextInt(200));
+                            store.put(key, e);
+                        } else {
+                            store.recordAccess(e);
+                            if (r.nextInt(50) == 0) {
+                                store.remove(key, e);
+                            }
+                        }
+                    }
+                }
+            });
+            String name = policy.getClass().getSimpleName();
+            assertTrue(name, store.getTotalWeight() <= 5000);
+            long sum = 0;
+            for (CacheEntry e : store.asMap().values()) {
+                sum += e.getWeight();
+            }
+            assertEquals(name, sum, store.getTotalWeight());
+            store.clear();
+            assertEquals(0, store.getTotalWeight());
+        }
+    }
+
+    private void run(int threads, final Worker worker) throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threads);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        for (int n = 0; n < threads; n++) {
+            final long seed = n;
+            new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        worker.run(new Random(seed), System.currentTimeMillis() + RUN_MILLIS);
+                    } catch (Throwable t) {
+                        failure.set(t);
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }.start();
+        }
+        start.countDown();
+        done.await();
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+    }
+
+    private interface Worker {
+
+        void run(Random r, long until);
+    }
+}
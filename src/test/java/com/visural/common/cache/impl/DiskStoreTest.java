@@ -0,0 +1,153 @@
+/*
+ *  Copyright 2026 the visural-common contributors.
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+package com.visural.common.cache.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import junit.framework.Assert;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DiskStoreTest extends Assert {
+
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = File.createTempFile("diskstore", "");
+        dir.delete();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                f.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    private static byte[] data(int length, int fill) {
+        byte[] data = new byte[length];
+        for (int n = 0; n < length; n++) {
+            data[n] = (byte) (fill + n);
+        }
+        return data;
+    }
+
+    private static byte[] bytes(SerializedResult r) {
+        byte[] data = new byte[r.getData().remaining()];
+        r.getData().get(data);
+        return data;
+    }
+
+    @Test
+    public void testPutGetRemove() throws IOException {
+        DiskStore store = DiskStore.open(dir, 1024 * 1024);
+        try {
+            assertTrue(store.put("a", 5, 10, 15, data(100, 1)));
+            store.put("b", 0, 0, 0, data(10, 2));
+            store.put("b", 0, 0, 0, data(20, 3));
+            SerializedResult r = store.get("a");
+            assertEquals(5, r.getCreated());
+            assertEquals(10, r.getTtl());
+            assertEquals(15, r.getTimeCost());
+            assertTrue(Arrays.equals(data(100, 1), bytes(r)));
+            assertTrue(Arrays.equals(data(20, 3), bytes(store.get("b"))));
+            assertEquals(120, store.getUsedBytes());
+            store.remove("a");
+            assertNull(store.get("a"));
+            assertEquals(1, store.size());
+            assertSame(store, DiskStore.open(dir, 1024 * 1024));
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    public void testRecoveryAfterRestart() throws IOException {
+        DiskStore store = DiskStore.open(dir, 1024 * 1024);
+        for (int n = 0; n < 100; n++) {
+            store.put("" + n, n, 0, 0, data(1000, n));
+        }
+        store.remove("5");
+        store.put("6", 0, 0, 0, data(10, 0));
+        store.close();
+
+        store = DiskStore.open(dir, 1024 * 1024);
+        try {
+            assertEquals(99, store.size());
+            assertNull(store.get("5"));
+            assertTrue(Arrays.equals(data(10, 0), bytes(store.get("6"))));
+            assertTrue(Arrays.equals(data(1000, 99), bytes(store.get("99"))));
+            assertEquals(99, store.get("99").getCreated());
+            // still appends where it left off
+            store.put("new", 0, 0, 0, data(10, 0));
+            assertEquals(100, store.size());
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    public void testTornWriteIgnored() throws IOException {
+        DiskStore store = DiskStore.open(dir, 1024 * 1024);
+        store.put("a", 0, 0, 0, data(100, 1));
+        store.put("b", 0, 0, 0, data(100, 2));
+        store.close();
+        // corrupt the last byte of b's data, as if the write was cut short
+        File segment = new File(dir, String.format("%016d.seg", 1));
+        RandomAccessFile raf = new RandomAccessFile(segment, "rw");
+        try {
+            long end = 2 * (8 + 4 + 1 + 8 + 4 + 8 + 4 + 100);
+            raf.seek(end - 1);
+            raf.write(0xff);
+        } finally {
+            raf.close();
+        }
+        store = DiskStore.open(dir, 1024 * 1024);
+        try {
+            assertNotNull(store.get("a"));
+            assertNull(store.get("b"));
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    public void testEvictsOldestSegment() throws IOException {
+        // two segments of 64KB
+        DiskStore store = DiskStore.open(dir, 128 * 1024);
+        try {
+            for (int n = 0; n < 40; n++) {
+                store.put("" + n, 0, 0, 0, data(10000, n));
+            }
+            assertNull(store.get("0"));
+            assertNotNull(store.get("39"));
+            assertTrue(store.getEvictionCount() > 0);
+            assertTrue(store.getUsedBytes() <= 128 * 1024);
+            assertEquals(2, dir.listFiles().length - 1);
+        } finally {
+            store.close();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ *  Copyright 2026 the visural-common contributors.
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+package com.visural.common.cache.impl;
+
+import com.visural.common.cache.EvictionStrategy;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import junit.framework.Assert;
+import org.junit.Test;
+
+/**
+ * Replays a synthetic trace against each {@link EvictionStrategy} and
+ * compares hit ratios.
+ *
+ * The trace is a Zipf distributed (s = 0.9) working set, interrupted by
+ * regular scans of keys which are only ever requested once.
+ */
+public class EvictionPolicySimulationTest extends Assert {
+
+    private static final int CAPACITY = 1000;
+    private static final int KEYS = 50000;
+    private static final int REQUESTS = 300000;
+    private static final int SCAN_EVERY = 20000;
+    private static final int SCAN_LENGTH = 3000;
+
+    @Test
+    public void testHitRatios() {
+        String[] trace = trace(new Random(42));
+        Map<EvictionStrategy, Double> ratios = new EnumMap<EvictionStrategy, Double>(EvictionStrategy.class);
+        for (EvictionStrategy es : EvictionStrategy.values()) {
+            double ratio = simulate(policyFor(es), trace);
+            ratios.put(es, ratio);
+            System.out.println("Simulated hit ratio, " + es + " = " + ratio);
+        }
+        assertTrue(ratios.get(EvictionStrategy.TINY_LFU) > ratios.get(EvictionStrategy.LRU));
+        assertTrue(ratios.get(EvictionStrategy.TINY_LFU) > ratios.get(EvictionStrategy.FIFO));
+    }
+
+    private static EvictionPolicy policyFor(EvictionStrategy es) {
+        switch (es) {
+            case LRU:
+                return new LRUEvictionPolicy(true);
+            case FIFO:
+                return new LRUEvictionPolicy(false);
+            case LFU:
+                return new LFUEvictionPolicy(false);
+            case LFU_TIMECOST:
+                return new LFUEvictionPolicy(true);
+            case TINY_LFU:
+                return new TinyLFUEvictionPolicy(CAPACITY);
+            default:
+                throw new IllegalStateException("Unknown strategy " + es);
+        }
+    }
+
+    private static double simulate(EvictionPolicy policy, String[] trace) {
+        CacheStore store = new CacheStore(CAPACITY, policy, new CacheStats());
+        long hits = 0;
+        for (String key : trace) {
+            CacheEntry e = store.get(key);
+            if (e != null) {
+                hits++;
+                e.incrementUses();
+                store.recordAccess(e);
+            } else {
+                store.put(key, new CacheEntry(key, 0, 0, 1, key));
+            }
+        }
+        return (double) hits / trace.length;
+    }
+
+    private static String[] trace(Random r) {
+        double[] cumulative = new double[KEYS];
+        double total = 0;
+        for (int n = 0; n < KEYS; n++) {
+            total += 1d / Math.pow(n + 1, 0.9);
+            cumulative[n] = total;
+        }
+        String[] trace = new String[REQUESTS];
+        int scanned = 0;
+        for (int n = 0; n < REQUESTS; n++) {
+            if (n % SCAN_EVERY < SCAN_LENGTH) {
+                trace[n] = "scan" + (scanned++);
+            } else {
+                int i = Arrays.binarySearch(cumulative, r.nextDouble() * total);
+                trace[n] = "key" + (i < 0 ? -i - 1 : i);
+            }
+        }
+        return trace;
+    }
+}
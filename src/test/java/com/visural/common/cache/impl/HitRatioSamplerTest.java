@@ -0,0 +1,122 @@
+/*
+ *  Copyright 2026 the visural-common contributors.
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+package com.visural.common.cache.impl;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import junit.framework.Assert;
+import org.junit.Test;
+
+/**
+ * Compares the sampled hit ratio curve with an exact LRU simulation.
+ */
+public class HitRatioSamplerTest extends Assert {
+
+    private static final int KEYS = 50000;
+    private static final int REQUESTS = 300000;
+    private static final int RUNS = 5;
+
+    @Test
+    public void testLoop() {
+        HitRatioSampler sampler = new HitRatioSampler();
+        // 6400 keys in a loop, so LRU hits only when every key fits
+        for (int n = 0; n < 64000; n++) {
+            sampler.record("key" + (n % 6400));
+        }
+        HitRatioCurve curve = sampler.getCurve();
+        // about 1 in SAMPLE_RATE keys are sampled
+        assertEquals(64000 / HitRatioSampler.SAMPLE_RATE, curve.getSampledAccesses(), 300);
+        assertEquals(0d, curve.getHitRatio(3200), 0.05);
+        assertEquals(0.9, curve.getHitRatio(12800), 0.05);
+        assertEquals(0d, curve.getHitRatio(0));
+    }
+
+    @Test
+    public void testSampledZipf() {
+        int[] trace = trace(new Random(42));
+        // which keys are sampled depends on their hashes, and a hot key being
+        // in or out skews a single run, so average runs with different names
+        int[] sizes = {256, 1024, 4096, 16384};
+        double[] estimates = new double[sizes.length];
+        for (int run = 0; run < RUNS; run++) {
+            HitRatioSampler sampler = new HitRatioSampler();
+            for (int key : trace) {
+                sampler.record("run" + run + "key" + key);
+            }
+            HitRatioCurve curve = sampler.getCurve(REQUESTS);
+            assertTrue(curve.getSampledAccesses() < REQUESTS);
+            for (int n = 0; n < sizes.length; n++) {
+                estimates[n] += curve.getHitRatio(sizes[n]) / RUNS;
+            }
+        }
+        for (int n = 0; n < sizes.length; n++) {
+            double exact = lru(trace, sizes[n]);
+            System.out.println("LRU hit ratio at " + sizes[n] + ", exact = " + exact + ", estimated = " + estimates[n]);
+            assertEquals(exact, estimates[n], 0.05);
+        }
+    }
+
+    @Test
+    public void testPlusMinus() {
+        HitRatioSampler a = new HitRatioSampler();
+        HitRatioSampler b = new HitRatioSampler();
+        for (int n = 0; n < 10000; n++) {
+            a.record("a" + (n % 1000));
+            b.record("b" + n);
+        }
+        HitRatioCurve sum = a.getCurve().plus(b.getCurve());
+        assertEquals(a.getCurve().getSampledAccesses() + b.getCurve().getSampledAccesses(), sum.getSampledAccesses());
+        // a hits 90% at 2000, b never does
+        assertEquals(0.45, sum.getHitRatio(2000), 0.1);
+        assertEquals(a.getCurve().getHitRatio(2000), sum.minus(b.getCurve()).getHitRatio(2000));
+    }
+
+    private static double lru(int[] trace, final int size) {
+        Map<Integer, Boolean> cache = new LinkedHashMap<Integer, Boolean>(size * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Boolean> eldest) {
+                return size() > size;
+            }
+        };
+        long hits = 0;
+        for (int key : trace) {
+            if (cache.get(key) != null) {
+                hits++;
+            } else {
+                cache.put(key, Boolean.TRUE);
+            }
+        }
+        return (double) hits / trace.length;
+    }
+
+    private static int[] trace(Random r) {
+        double[] cumulative = new double[KEYS];
+        double total = 0;
+        for (int n = 0; n < KEYS; n++) {
+            total += 1d / Math.pow(n + 1, 0.9);
+            cumulative[n] = total;
+        }
+        int[] trace = new int[REQUESTS];
+        for (int n = 0; n < REQUESTS; n++) {
+            int i = Arrays.binarySearch(cumulative, r.nextDouble() * total);
+            trace[n] = i < 0 ? -i - 1 : i;
+        }
+        return trace;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ *  Copyright 2026 the visural-common contributors.
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+package com.visural.common.cache.impl;
+
+import junit.framework.Assert;
+import org.junit.Test;
+
+public class LFUEvictionPolicyTest extends Assert {
+
+    private static CacheEntry entry(String key, long timeCost) {
+        return new CacheEntry(key, System.currentTimeMillis(), 0, timeCost, key);
+    }
+
+    private static void hit(EvictionPolicy p, CacheEntry e, int times) {
+        for (int n = 0; n < times; n++) {
+            e.incrementUses();
+            p.onAccess(e);
+        }
+    }
+
+    @Test
+    public void testEvictsLeastFrequent() {
+        LFUEvictionPolicy p = new LFUEvictionPolicy(false);
+        CacheEntry a = entry("a", 0);
+        CacheEntry b = entry("b", 0);
+        CacheEntry c = entry("c", 0);
+        p.onInsert(a);
+        p.onInsert(b);
+        p.onInsert(c);
+        hit(p, a, 3);
+        hit(p, c, 1);
+        assertSame(b, p.evict());
+        assertSame(c, p.evict());
+        assertSame(a, p.evict());
+        assertNull(p.evict());
+    }
+
+    @Test
+    public void testBatchedHitsCatchUp() {
+        LFUEvictionPolicy p = new LFUEvictionPolicy(false);
+        CacheEntry a = entry("a", 0);
+        CacheEntry b = entry("b", 0);
+        p.onInsert(a);
+        p.onInsert(b);
+        hit(p, b, 2);
+        // several hits on a reported by a single drained access
+        a.incrementUses();
+        a.incrementUses();
+        a.incrementUses();
+        p.onAccess(a);
+        assertSame(b, p.evict());
+    }
+
+    @Test
+    public void testRemove() {
+        LFUEvictionPolicy p = new LFUEvictionPolicy(false);
+        CacheEntry a = entry("a", 0);
+        CacheEntry b = entry("b", 0);
+        p.onInsert(a);
+        p.onInsert(b);
+        p.onRemove(a);
+        assertSame(b, p.evict());
+        assertNull(p.evict());
+    }
+
+    @Test
+    public void testTimecostWeighting() {
+        LFUEvictionPolicy p = new LFUEvictionPolicy(true);
+        CacheEntry cheap = entry("cheap", 10);
+        CacheEntry expensive = entry("expensive", 1000000);
+        p.onInsert(expensive);
+        p.onInsert(cheap);
+        hit(p, cheap, 5);
+        // 6 * 11 is still far less valuable than 1 * 1000001
+        assertSame(cheap, p.evict());
+        assertSame(expensive, p.evict());
+    }
+
+    @Test
+    public void testHitCostIndependentOfSize() {
+        for (int size = 1000; size <= 100000; size *= 10) {
+            LFUEvictionPolicy p = new LFUEvictionPolicy(false);
+            CacheEntry[] entries = new CacheEntry[size];
+            for (int n = 0; n < size; n++) {
+                entries[n] = entry("" + n, 0);
+                p.onInsert(entries[n]);
+            }
+            long start = System.nanoTime();
+            for (int n = 0; n < 200000; n++) {
+                hit(p, entries[(n * 31) % size], 1);
+            }
+            long dur = System.nanoTime() - start;
+            System.out.println("LFU hit, entries = " + size + ", ns/hit = " + (dur / 200000));
+        }
+    }
+}
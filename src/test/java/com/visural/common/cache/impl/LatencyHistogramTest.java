@@ -0,0 +1,69 @@
+/*
+ *  Copyright 2026 the visural-common contributors.
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+package com.visural.common.cache.impl;
+
+import junit.framework.Assert;
+import org.junit.Test;
+
+public class LatencyHistogramTest extends Assert {
+
+    @Test
+    public void testBuckets() {
+        for (long v = 0; v < 100000; v++) {
+            int index = LatencyHistogram.indexOf(v);
+            assertTrue(LatencyHistogram.lowestValueAt(index) <= v);
+            assertTrue(LatencyHistogram.highestValueAt(index) >= v);
+        }
+        assertEquals(LatencyHistogram.indexOf(Long.MAX_VALUE), LatencyHistogram.indexOf(Long.MAX_VALUE - 1));
+        assertEquals(0, LatencyHistogram.indexOf(-1));
+    }
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram h = new LatencyHistogram();
+        assertEquals(0, h.getValueAtPercentile(99));
+        for (long ms = 1; ms <= 1000; ms++) {
+            h.record(ms * 1000000L);
+        }
+        assertEquals(1000, h.getCount());
+        assertWithin(500000000L, h.getValueAtPercentile(50));
+        assertWithin(900000000L, h.getValueAtPercentile(90));
+        assertWithin(990000000L, h.getValueAtPercentile(99));
+        assertWithin(999000000L, h.getValueAtPercentile(99.9));
+        assertWithin(1000000000L, h.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testPlusMinus() {
+        LatencyHistogram fast = new LatencyHistogram();
+        LatencyHistogram slow = new LatencyHistogram();
+        for (int n = 0; n < 99; n++) {
+            fast.record(1000);
+        }
+        slow.record(1000000000L);
+        LatencyHistogram all = fast.plus(slow);
+        assertEquals(100, all.getCount());
+        assertWithin(1000, all.getValueAtPercentile(99));
+        assertWithin(1000000000L, all.getValueAtPercentile(99.9));
+        assertWithin(1000000000L, all.minus(fast).getValueAtPercentile(1));
+        assertEquals(1, all.minus(fast).getCount());
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(expected + " vs " + actual, Math.abs(actual - expected) <= expected / 16);
+    }
+}
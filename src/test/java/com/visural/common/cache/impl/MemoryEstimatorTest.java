@@ -0,0 +1,68 @@
+/*
+ *  Copyright 2026 the visural-common contributors.
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+package com.visural.common.cache.impl;
+
+import com.visural.common.ObjectSize;
+import junit.framework.Assert;
+import org.junit.Test;
+
+public class MemoryEstimatorTest extends Assert {
+
+    private static CacheStore[] store(int entries) {
+        CacheStore store = new CacheStore(entries, new LRUEvictionPolicy(false), new CacheStats());
+        for (int n = 0; n < entries; n++) {
+            String key = "key" + n;
+            store.put(key, new CacheEntry(key, 0, 0, 0, new byte[n % 1000]));
+        }
+        return new CacheStore[]{store};
+    }
+
+    @Test
+    public void testSampledEstimate() {
+        CacheStore[] segments = store(20000);
+        long actual = 0;
+        for (CacheEntry e : segments[0].asMap().values()) {
+            actual += 96 + ObjectSize.estimate(e.getKey()) + ObjectSize.estimate(e.getResult());
+        }
+        MemoryEstimate estimate = new MemoryEstimator(0).estimate(segments);
+        assertEquals(20000, estimate.getEntries());
+        assertTrue(estimate.getSampled() >= 10 && estimate.getSampled() <= MemoryEstimator.SAMPLE_SIZE);
+        assertTrue(estimate.getErrorBytes() > 0);
+        // 95% bound, so allow a wider margin to keep the test stable
+        assertTrue(actual + " vs " + estimate.getBytes() + " +- " + estimate.getErrorBytes(),
+                Math.abs(actual - estimate.getBytes()) <= 2 * estimate.getErrorBytes());
+    }
+
+    @Test
+    public void testSmallCacheMeasuredExactly() {
+        CacheStore[] segments = store(50);
+        MemoryEstimate estimate = new MemoryEstimator(0).estimate(segments);
+        assertEquals(50, estimate.getSampled());
+        assertEquals(0, estimate.getErrorBytes());
+        assertTrue(estimate.getBytes() > 0);
+    }
+
+    @Test
+    public void testEstimateReused() {
+        CacheStore[] segments = store(50);
+        MemoryEstimator estimator = new MemoryEstimator(60000);
+        MemoryEstimate first = estimator.estimate(segments);
+        segments[0].clear();
+        assertSame(first, estimator.estimate(segments));
+        assertEquals(0, new MemoryEstimator(0).estimate(segments).getBytes());
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ *  Copyright 2026 the visural-common contributors.
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+package com.visural.common.cache.impl;
+
+import com.google.inject.Guice;
+import com.visural.common.cache.CacheModule;
+import com.visural.common.cache.CacheService;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import junit.framework.Assert;
+import org.junit.Test;
+
+public class OffHeapStoreTest extends Assert {
+
+    private static final int FRAGMENTS = 4000;
+
+    private static byte[] data(int length, int fill) {
+        byte[] data = new byte[length];
+        for (int n = 0; n < length; n++) {
+            data[n] = (byte) (fill + n);
+        }
+        return data;
+    }
+
+    private static byte[] bytes(SerializedResult r) {
+        byte[] data = new byte[r.getData().remaining()];
+        r.getData().get(data);
+        return data;
+    }
+
+    @Test
+    public void testPutTake() {
+        OffHeapStore store = new OffHeapStore(1024);
+        assertTrue(store.put("a", 5, 10, 15, data(100, 1)));
+        assertTrue(store.put("b", 6, 11, 16, data(200, 2)));
+        assertEquals(300, store.getUsedBytes());
+        SerializedResult r = store.take("a");
+        assertEquals(5, r.getCreated());
+        assertEquals(10, r.getTtl());
+        assertEquals(15, r.getTimeCost());
+        assertTrue(java.util.Arrays.equals(data(100, 1), bytes(r)));
+        assertNull(store.take("a"));
+        assertEquals(1, store.size());
+        assertEquals(200, store.getUsedBytes());
+    }
+
+    @Test
+    public void testReplaceAndOversize() {
+        OffHeapStore store = new OffHeapStore(1024);
+        store.put("a", 0, 0, 0, data(100, 1));
+        store.put("a", 0, 0, 0, data(50, 3));
+        assertEquals(1, store.size());
+        assertEquals(50, store.getUsedBytes());
+        assertTrue(java.util.Arrays.equals(data(50, 3), bytes(store.take("a"))));
+        assertFalse(store.put("big", 0, 0, 0, data(2000, 0)));
+        assertNull(store.take("big"));
+    }
+
+    @Test
+    public void testSlabRecycling() {
+        // 4 slabs of 4MB
+        OffHeapStore store = new OffHeapStore(16 * 1024 * 1024);
+        int size = 1024 * 1024;
+        for (int n = 0; n < 20; n++) {
+            assertTrue(store.put("" + n, 0, 0, 0, data(size, n)));
+        }
+        // writing the 17th value wrapped around, evicting the oldest slab
+        assertEquals(16 * 1024 * 1024, store.getAllocatedBytes());
+        assertNull(store.take("0"));
+        assertNull(store.take("3"));
+        assertEquals(4, store.getEvictionCount());
+        for (int n = 4; n < 20; n++) {
+            assertTrue(java.util.Arrays.equals(data(size, n), bytes(store.take("" + n))));
+        }
+        assertEquals(0, store.getUsedBytes());
+    }
+
+    @Test
+    public void testCapacityRoundedUp() {
+        // one byte over a slab gets a second slab, rather than being cut to one
+        OffHeapStore store = new OffHeapStore(4 * 1024 * 1024 + 1);
+        int size = 1024 * 1024;
+        for (int n = 0; n < 8; n++) {
+            assertTrue(store.put("" + n, 0, 0, 0, data(size, n)));
+        }
+        assertEquals(8 * 1024 * 1024, store.getAllocatedBytes());
+        assertEquals(0, store.getEvictionCount());
+        assertEquals(8, store.size());
+    }
+
+    @Test
+    public void testSegments() {
+        // 4 slabs of 4MB, but no more segments than slabs
+        assertEquals(4, new OffHeapStore(16 * 1024 * 1024, 16).getSegmentCount());
+        assertEquals(1, new OffHeapStore(1024, 4).getSegmentCount());
+        OffHeapStore store = new OffHeapStore(16 * 1024 * 1024, 4);
+        for (int n = 0; n < 100; n++) {
+            assertTrue(store.put("" + n, n, 0, 0, data(1000, n)));
+        }
+        assertEquals(100, store.size());
+        assertEquals(100 * 1000, store.getUsedBytes());
+        for (int n = 0; n < 100; n++) {
+            SerializedResult r = store.take("" + n);
+            assertEquals(n, r.getCreated());
+            assertTrue(java.util.Arrays.equals(data(1000, n), bytes(r)));
+        }
+        assertEquals(0, store.size());
+        store.put("a", 0, 0, 0, data(10, 1));
+        store.clear();
+        assertNull(store.take("a"));
+    }
+
+    /**
+     * Compares heap use and full GC time of a cache holding 4000 16KB
+     * results, with all of them on heap and with all but 100 off heap.
+     */
+    @Test
+    public void testHeapBenchmark() throws Exception {
+        for (int pass = 0; pass < 2; pass++) {
+            boolean offHeap = pass == 1;
+            CacheService cs = Guice.createInjector(new CacheModule()).getInstance(CacheService.class);
+            long heapBefore = usedHeap();
+            for (int n = 0; n < FRAGMENTS; n++) {
+                if (offHeap) {
+                    cs.fragmentOffHeap(n);
+                } else {
+                    cs.fragment(n);
+                }
+            }
+            long heapAfter = usedHeap();
+            long gcBefore = gcTime();
+            long start = System.nanoTime();
+            for (int n = 0; n < 5; n++) {
+                System.gc();
+            }
+            long gcMillis = (System.nanoTime() - start) / 5000000;
+            System.out.println("BENCH off heap tier = " + offHeap
+                    + ", heap used MB = " + (heapAfter - heapBefore) / (1024 * 1024)
+                    + ", full gc ms = " + gcMillis
+                    + ", gc collection time ms = " + (gcTime() - gcBefore) / 5);
+            // results are still cached
+            for (int n = 0; n < FRAGMENTS; n++) {
+                assertEquals(16 * 1024, offHeap ? cs.fragmentOffHeap(n).length : cs.fragment(n).length);
+            }
+        }
+    }
+
+    private static long usedHeap() {
+        for (int n = 0; n < 3; n++) {
+            System.gc();
+        }
+        Runtime rt = Runtime.getRuntime();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    private static long gcTime() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ *  Copyright 2026 the visural-common contributors.
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+package com.visural.common.cache.impl;
+
+import com.visural.common.cache.KeyIgnore;
+import com.visural.common.cache.MethodCall;
+import com.visural.common.cache.WithCacheId;
+import java.lang.annotation.Annotation;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import junit.framework.Assert;
+import org.junit.Test;
+
+public class StandardKeyProviderTest extends Assert {
+
+    private final StandardKeyProvider kp = new StandardKeyProvider();
+
+    public static class Service {
+        public String one(String a) {
+            return a;
+        }
+        public String two(String a, String b) {
+            return a + b;
+        }
+        public String ignore(String a, @KeyIgnore String b) {
+            return a;
+        }
+        public String withId(Object a) {
+            return null;
+        }
+        public String array(int[] a) {
+            return null;
+        }
+        public String lookup(String name, Integer version, Long id) {
+            return null;
+        }
+        public String plain(Object a) {
+            return null;
+        }
+    }
+
+    public static class Criteria {
+        private final String name;
+        public Criteria(String name) {
+            this.name = name;
+        }
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    public static class Entity implements WithCacheId {
+        private final String id;
+        private final String detail;
+        public Entity(String id, String detail) {
+            this.id = id;
+            this.detail = detail;
+        }
+        public String __cacheId() {
+            return id;
+        }
+    }
+
+    private Object key(String method, Object... args) {
+        for (Method m : Service.class.getMethods()) {
+            if (m.getName().equals(method)) {
+                return kp.getKey(new MethodCall(m, args));
+            }
+        }
+        throw new IllegalArgumentException(method);
+    }
+
+    @Test
+    public void testEquality() {
+        assertEquals(key("two", "a", "b"), key("two", "a", "b"));
+        assertEquals(key("two", "a", "b").hashCode(), key("two", "a", "b").hashCode());
+        assertFalse(key("two", "a", "b").equals(key("two", "b", "a")));
+        assertFalse(key("two", "a", null).equals(key("two", "a", "null")));
+    }
+
+    @Test
+    public void testNoSeparatorCollision() {
+        // both were "~~a~~b" when keys were joined strings
+        assertFalse(key("one", "a~~b").equals(key("two", "a", "b")));
+        assertFalse(key("one", "a~~b").toString().equals(key("two", "a", "b").toString()));
+        assertFalse(key("two", "a,1:b", "c").toString().equals(key("two", "a", "b,1:c").toString()));
+    }
+
+    @Test
+    public void testKeyIgnore() {
+        assertEquals(key("ignore", "a", "x"), key("ignore", "a", "y"));
+        assertEquals(key("one", "a"), key("ignore", "a", "y"));
+    }
+
+    @Test
+    public void testWithCacheId() {
+        assertEquals(key("withId", new Entity("1", "x")), key("withId", new Entity("1", "y")));
+        assertFalse(key("withId", new Entity("1", "x")).equals(key("withId", new Entity("2", "x"))));
+    }
+
+    @Test
+    public void testArrayContent() {
+        assertEquals(key("array", new int[]{1, 2}), key("array", new int[]{1, 2}));
+        assertFalse(key("array", new int[]{1, 2}).equals(key("array", new int[]{2, 1})));
+        assertEquals("6:[1, 2]", key("array", new int[]{1, 2}).toString());
+    }
+
+    @Test
+    public void testArrayCopied() {
+        int[] a = {1, 2};
+        Object before = key("array", a);
+        a[0] = 2;
+        assertEquals(key("array", new int[]{1, 2}), before);
+        String[] s = {"a"};
+        before = key("plain", (Object) s);
+        s[0] = "b";
+        assertEquals(key("plain", (Object) new String[]{"a"}), before);
+    }
+
+    @Test
+    public void testCollectionsCopied() {
+        List<Object> list = new ArrayList<Object>(Arrays.asList("a", new Criteria("b")));
+        Object before = key("plain", list);
+        list.set(0, "x");
+        list.add("y");
+        assertEquals(key("plain", Arrays.asList("a", new Criteria("b"))), before);
+        Set<String> set = new HashSet<String>(Arrays.asList("a"));
+        before = key("plain", set);
+        set.add("b");
+        assertEquals(key("plain", Collections.singleton("a")), before);
+        Map<String, String> map = new HashMap<String, String>();
+        map.put("a", "1");
+        before = key("plain", map);
+        map.put("a", "2");
+        assertEquals(key("plain", Collections.singletonMap("a", "1")), before);
+        Date date = new Date(1000);
+        before = key("plain", date);
+        date.setTime(2000);
+        assertEquals(key("plain", new Date(1000)), before);
+    }
+
+    @Test
+    public void testToStringWithoutEquals() {
+        assertEquals(key("plain", new Criteria("a")), key("plain", new Criteria("a")));
+        assertFalse(key("plain", new Criteria("a")).equals(key("plain", new Criteria("b"))));
+    }
+
+    @Test
+    public void testBenchHitPath() {
+        Method m = null;
+        for (Method method : Service.class.getMethods()) {
+            if (method.getName().equals("lookup")) {
+                m = method;
+            }
+        }
+        int keys = 1000;
+        MethodCall[] calls = new MethodCall[keys];
+        ConcurrentMap<Object, Object> stringMap = new ConcurrentHashMap<Object, Object>();
+        ConcurrentMap<Object, Object> keyMap = new ConcurrentHashMap<Object, Object>();
+        for (int n = 0; n < keys; n++) {
+            calls[n] = new MethodCall(m, new Object[]{"customer-record-" + n, n % 7, 1000000L + n});
+            stringMap.put(legacyKey(calls[n]), calls[n]);
+            keyMap.put(kp.getKey(calls[n]), calls[n]);
+        }
+        int iterations = 2000000;
+        for (int round = 0; round < 3; round++) {
+            long[] legacy = hitPath(stringMap, calls, iterations, true);
+            long[] typed = hitPath(keyMap, calls, iterations, false);
+            if (round == 2) {
+                System.out.println("BENCH key hit path, String key = " + legacy[0] + " ns/op, "
+                        + legacy[1] + " bytes/op, CacheKey = " + typed[0] + " ns/op, " + typed[1] + " bytes/op");
+            }
+        }
+    }
+
+    private long[] hitPath(ConcurrentMap<Object, Object> map, MethodCall[] calls, int iterations, boolean legacy) {
+        long bytes = allocatedBytes();
+        long start = System.nanoTime();
+        for (int n = 0; n < iterations; n++) {
+            MethodCall call = calls[n % calls.length];
+            Object key = legacy ? legacyKey(call) : kp.getKey(call);
+            assertSame(call, map.get(key));
+        }
+        long time = System.nanoTime() - start;
+        bytes = allocatedBytes() - bytes;
+        return new long[]{time / iterations, bytes < 0 ? -1 : bytes / iterations};
+    }
+
+    /**
+     * The key StandardKeyProvider used to build.
+     */
+    private static String legacyKey(MethodCall methodCall) {
+        StringBuilder key = new StringBuilder();
+        int n = 0;
+        for (Object o : methodCall.getArguments()) {
+            if (!hasIgnoreAnnotation(methodCall.getMethod(), n++)) {
+                key.append("~~");
+                if (o != null) {
+                    key.append(o.toString());
+                }
+            }
+        }
+        return key.toString();
+    }
+
+    private static boolean hasIgnoreAnnotation(Method method, int i) {
+        for (Annotation a : method.getParameterAnnotations()[i]) {
+            if (KeyIgnore.class.isAssignableFrom(a.annotationType())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return Long.MIN_VALUE;
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ *  Copyright 2026 the visural-common contributors.
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+package com.visural.common.cache.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+import junit.framework.Assert;
+import org.junit.Test;
+
+/**
+ * Compares StripedCounter with AtomicLong under contention. Not part of the
+ * normal build, run with: mvn test -Pbench
+ */
+public class StripedCounterBenchmark extends Assert {
+
+    @Test
+    public void benchContendedIncrement() throws Exception {
+        final int iterations = 2000000;
+        for (int round = 0; round < 3; round++) {
+            final AtomicLong atomic = new AtomicLong();
+            long atomicTime = StripedCounterTest.run(new Runnable() {
+                public void run() {
+                    for (int n = 0; n < iterations; n++) {
+                        atomic.incrementAndGet();
+                    }
+                }
+            });
+            final StripedCounter striped = new StripedCounter();
+            long stripedTime = StripedCounterTest.run(new Runnable() {
+                public void run() {
+                    for (int n = 0; n < iterations; n++) {
+                        striped.increment();
+                    }
+                }
+            });
+            assertEquals(atomic.get(), striped.sum());
+            if (round == 2) {
+                long ops = (long) StripedCounterTest.THREADS * iterations;
+                System.out.println("BENCH " + StripedCounterTest.THREADS + " threads incrementing one counter, AtomicLong = "
+                        + ops * 1000 / atomicTime + " ops/us, StripedCounter = " + ops * 1000 / stripedTime + " ops/us");
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ *  Copyright 2026 the visural-common contributors.
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+package com.visural.common.cache.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import junit.framework.Assert;
+import org.junit.Test;
+
+public class StripedCounterTest extends Assert {
+
+    static final int THREADS = Math.max(4, Runtime.getRuntime().availableProcessors());
+
+    @Test
+    public void testConcurrentSum() throws Exception {
+        final StripedCounter counter = new StripedCounter(5);
+        run(new Runnable() {
+            public void run() {
+                for (int n = 0; n < 100000; n++) {
+                    counter.increment();
+                    counter.add(2);
+                }
+            }
+        });
+        assertEquals(5 + THREADS * 300000L, counter.sum());
+        assertEquals(Long.toString(counter.sum()), counter.toString());
+    }
+
+    /**
+     * Runs the task on each thread at once.
+     * @return elapsed nanos
+     */
+    static long run(final Runnable task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+            for (int n = 0; n < THREADS; n++) {
+                tasks.add(new Callable<Void>() {
+                    public Void call() {
+                        task.run();
+                        return null;
+                    }
+                });
+            }
+            long start = System.nanoTime();
+            for (Future<Void> f : executor.invokeAll(tasks)) {
+                f.get();
+            }
+            return System.nanoTime() - start;
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
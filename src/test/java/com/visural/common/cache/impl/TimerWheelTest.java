@@ -0,0 +1,92 @@
+/*
+ *  Copyright 2026 the visural-common contributors.
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+package com.visural.common.cache.impl;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import junit.framework.Assert;
+import org.junit.Test;
+
+public class TimerWheelTest extends Assert {
+
+    private static final long START = 1000000000L;
+
+    private static CacheEntry entry(String key, long ttl) {
+        return new CacheEntry(key, START, ttl, 0, key);
+    }
+
+    @Test
+    public void testExpiresAtEachLevel() {
+        long[] ttls = {5, 100, 5000, 600000, 20000000};
+        for (long ttl : ttls) {
+            TimerWheel wheel = new TimerWheel(START);
+            CacheEntry e = entry("e", ttl);
+            wheel.schedule(e);
+            assertTrue(wheel.advance(START + ttl - 20).isEmpty());
+            assertEquals(1, wheel.size());
+            // may be reported up to one bucket late
+            List<CacheEntry> expired = wheel.advance(START + ttl + 16);
+            assertEquals("ttl = " + ttl, 1, expired.size());
+            assertSame(e, expired.get(0));
+            assertEquals(0, wheel.size());
+        }
+    }
+
+    @Test
+    public void testRemove() {
+        TimerWheel wheel = new TimerWheel(START);
+        CacheEntry a = entry("a", 100);
+        CacheEntry b = entry("b", 100);
+        CacheEntry c = entry("c", 100);
+        wheel.schedule(a);
+        wheel.schedule(b);
+        wheel.schedule(c);
+        wheel.remove(b);
+        wheel.remove(b);
+        assertEquals(2, wheel.size());
+        List<CacheEntry> expired = wheel.advance(START + 200);
+        assertEquals(2, expired.size());
+        assertTrue(expired.contains(a));
+        assertTrue(expired.contains(c));
+    }
+
+    @Test
+    public void testRandomSchedule() {
+        Random r = new Random(7);
+        TimerWheel wheel = new TimerWheel(START);
+        Set<CacheEntry> pending = new HashSet<CacheEntry>();
+        for (int n = 0; n < 10000; n++) {
+            CacheEntry e = entry("" + n, 1 + r.nextInt(10000000));
+            wheel.schedule(e);
+            pending.add(e);
+        }
+        long now = START;
+        while (!pending.isEmpty()) {
+            now += r.nextInt(200000);
+            for (CacheEntry e : wheel.advance(now)) {
+                assertTrue(e.getExpiresAt() <= now);
+                assertTrue(pending.remove(e));
+            }
+            for (CacheEntry e : pending) {
+                assertTrue(e.getExpiresAt() > now - 16);
+            }
+        }
+        assertEquals(0, wheel.size());
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ *  Copyright 2026 the visural-common contributors.
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+package com.visural.common.cache.inspector;
+
+import com.google.inject.Guice;
+import com.visural.common.cache.CacheModule;
+import com.visural.common.cache.CacheService;
+import java.io.StringWriter;
+import junit.framework.Assert;
+import org.junit.Test;
+
+public class CacheMetricsFilterTest extends Assert {
+
+    @Test
+    public void testWrite() throws Exception {
+        CacheModule module = new CacheModule();
+        CacheService cs = Guice.createInjector(module).getInstance(CacheService.class);
+        CacheMetricsFilter.setCacheModule(module);
+        cs.segmentedService("a");
+        cs.segmentedService("a");
+        cs.segmentedService("b");
+        StringWriter out = new StringWriter();
+        CacheMetricsFilter.write(module.getStatistics(false), out);
+        String text = out.toString();
+        String labels = "{class=\"com.visural.common.cache.CacheService\",method=\"public java.lang.String segmentedService(java.lang.String)\"}";
+        assertTrue(text, text.contains("# TYPE visural_cache_hits_total counter\n"));
+        assertTrue(text, text.contains("visural_cache_hits_total" + labels + " 1\n"));
+        assertTrue(text, text.contains("visural_cache_entries" + labels + " 2\n"));
+        assertTrue(text, text.contains("visural_cache_max_entries" + labels + " 100\n"));
+        assertTrue(text, text.contains("visural_cache_load_seconds_count" + labels + " 2\n"));
+        assertTrue(text, text.contains("visural_cache_load_seconds{class=\"com.visural.common.cache.CacheService\","
+                + "method=\"public java.lang.String segmentedService(java.lang.String)\",quantile=\"0.99\"} "));
+        // each family is declared once
+        assertEquals(text.indexOf("# TYPE visural_cache_entries "), text.lastIndexOf("# TYPE visural_cache_entries "));
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ *  Copyright 2026 the visural-common contributors.
+ * 
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *  under the License.
+ */
+package com.visural.common.cache.jmx;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.visural.common.cache.CacheModule;
+import com.visural.common.cache.CacheService;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import junit.framework.Assert;
+import org.junit.Test;
+
+public class CacheJmxTest extends Assert {
+
+    @Test
+    public void testMBean() throws Exception {
+        CacheModule module = new CacheModule();
+        Injector injector = Guice.createInjector(module);
+        // shared caches used before registration are found too
+        injector.getInstance(CacheService.class).injectorScopedService("before");
+        MBeanServer server = MBeanServerFactory.newMBeanServer();
+        CacheJmx jmx = CacheJmx.register(module, server, "test");
+        String className = CacheService.class.getName();
+        assertTrue(server.isRegistered(jmx.getObjectName(className,
+                CacheService.class.getMethod("injectorScopedService", String.class).toString())));
+
+        CacheService cs = injector.getInstance(CacheService.class);
+        String method = CacheService.class.getMethod("segmentedService", String.class).toString();
+        ObjectName name = jmx.getObjectName(className, method);
+        for (int n = 0; n < 50; n++) {
+            cs.segmentedService("key" + n);
+        }
+        assertTrue(server.isRegistered(name));
+        cs.segmentedService("key0");
+        assertEquals(50, server.getAttribute(name, "Entries"));
+        assertEquals(1L, server.getAttribute(name, "HitCount"));
+        assertEquals(100, server.getAttribute(name, "MaxEntries"));
+
+        server.invoke(name, "resize", new Object[]{20}, new String[]{int.class.getName()});
+        assertEquals(20, server.getAttribute(name, "MaxEntries"));
+        assertTrue((Integer) server.getAttribute(name, "Entries") <= 20);
+        // instances created later use the new size too
+        CacheService other = injector.getInstance(CacheService.class);
+        other.segmentedService("key0");
+        assertEquals(20, other.__cacheData().getStatistics(false).get(method).getSettings().getMaxEntries());
+
+        server.invoke(name, "invalidate", new Object[0], new String[0]);
+        assertEquals(0, server.getAttribute(name, "Entries"));
+
+        // registered when first used
+        cs.memoService("a");
+        ObjectName memo = jmx.getObjectName(className, CacheService.class.getMethod("memoService", String.class).toString());
+        assertTrue(server.isRegistered(memo));
+
+        jmx.unregister();
+        assertFalse(server.isRegistered(name));
+        assertFalse(server.isRegistered(memo));
+    }
+}